@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2024 RKDAW Enterprises and Ralph Williamson.
+ *       email: rkdawenterprises@gmail.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ddns.rkdawenterprises.rkdawe_api_common;
+
+import java.util.Random;
+
+/**
+ * Times {@link Check_CRC#calculate_CRC_16(byte[], int, int)} against the byte-wise loop it replaced, over 438 byte
+ * HILOWS blocks and 99 byte LOOP packets. Checks that both agree before timing.
+ * <p>
+ * Run with no arguments. Prints the throughput of each for a number of rounds, the first few of which include
+ * warming up.
+ * <p>
+ * Kept under src/benchmark, compiled against the library but not shipped with it. It is in the library's package to
+ * reach the CRC table.
+ */
+@SuppressWarnings("unused")
+public final class Check_CRC_benchmark
+{
+    private static final int HILOWS_SIZE = 438;
+    private static final int LOOP_SIZE = 99;
+    private static final int BUFFER_SIZE = HILOWS_SIZE * 1000;
+    private static final int REPEATS = 200;
+    private static final int ROUNDS = 5;
+
+    private Check_CRC_benchmark()
+    {
+    }
+
+    public static void main( String[] args )
+    {
+        Random random = new Random( 3 );
+        byte[] buffer = new byte[BUFFER_SIZE];
+        random.nextBytes( buffer );
+
+        for( int i = 0; i < 100000; i++ )
+        {
+            int offset = random.nextInt( BUFFER_SIZE );
+            int length = random.nextInt( BUFFER_SIZE - offset + 1 );
+            if( byte_wise_CRC_16( buffer,
+                                  offset,
+                                  length ) != Check_CRC.calculate_CRC_16( buffer,
+                                                                          offset,
+                                                                          length ) )
+            {
+                throw new IllegalStateException( "CRC mismatch at " + offset + ", length " + length );
+            }
+        }
+
+        long sum = 0;
+        for( int round = 0; round < ROUNDS; round++ )
+        {
+            long start = System.nanoTime();
+            sum += run( buffer,
+                        HILOWS_SIZE,
+                        false );
+            long byte_wise_hilows = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            sum += run( buffer,
+                        HILOWS_SIZE,
+                        true );
+            long sliced_hilows = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            sum += run( buffer,
+                        LOOP_SIZE,
+                        false );
+            long byte_wise_loop = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            sum += run( buffer,
+                        LOOP_SIZE,
+                        true );
+            long sliced_loop = System.nanoTime() - start;
+
+            System.out.printf( "%d byte blocks: byte-wise %.0f MB/s, slice-by-8 %.0f MB/s | "
+                                       + "%d byte blocks: byte-wise %.0f MB/s, slice-by-8 %.0f MB/s%n",
+                               HILOWS_SIZE,
+                               megabytes_per_second( HILOWS_SIZE,
+                                                     byte_wise_hilows ),
+                               megabytes_per_second( HILOWS_SIZE,
+                                                     sliced_hilows ),
+                               LOOP_SIZE,
+                               megabytes_per_second( LOOP_SIZE,
+                                                     byte_wise_loop ),
+                               megabytes_per_second( LOOP_SIZE,
+                                                     sliced_loop ) );
+        }
+
+        // Printed so the loops are not optimized away.
+        System.out.println( "Checksum: " + sum );
+    }
+
+    /*
+     * The CRC of every block of the given size in the buffer, repeated.
+     */
+    private static long run( byte[] buffer,
+                             int block_size,
+                             boolean sliced )
+    {
+        long sum = 0;
+        int blocks = BUFFER_SIZE / block_size;
+        for( int repeat = 0; repeat < REPEATS; repeat++ )
+        {
+            for( int block = 0; block < blocks; block++ )
+            {
+                sum += sliced ? Check_CRC.calculate_CRC_16( buffer,
+                                                            block * block_size,
+                                                            block_size )
+                        : byte_wise_CRC_16( buffer,
+                                            block * block_size,
+                                            block_size );
+            }
+        }
+
+        return sum;
+    }
+
+    private static double megabytes_per_second( int block_size,
+                                                long elapsed_ns )
+    {
+        double bytes = (double)( BUFFER_SIZE / block_size ) * block_size * REPEATS;
+        return ( bytes / 1.0e6 ) / ( elapsed_ns / 1.0e9 );
+    }
+
+    /*
+     * The one lookup and shift per byte loop that slice-by-8 replaced.
+     */
+    private static short byte_wise_CRC_16( byte[] packet,
+                                           int offset,
+                                           int length )
+    {
+        int crc = 0;
+        for( int i = offset; i < ( offset + length ); i++ )
+        {
+            int data = packet[i] & 0xFF;
+            int index = ( ( crc >>> 8 ) & 0xFFFF ) ^ data;
+            crc = Check_CRC.crc_table[index & 0xFF] ^ ( ( crc << 8 ) & 0xFFFF );
+        }
+
+        return( (short)crc );
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2024 RKDAW Enterprises and Ralph Williamson.
+ *       email: rkdawenterprises@gmail.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ddns.rkdawenterprises.rkdawe_api_common;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compares {@link Weather_data_binary_codec} with the Gson form of {@link Get_weather_station_data_GET_response}, in
+ * size, plain and gzipped, and in encode and decode time. The response holds a LOOP, LOOP2 and HILOWS sample of
+ * random values. Checks that the binary form decodes to the same response before timing.
+ * <p>
+ * Run with no arguments. Prints the sizes, then the times of each for a number of rounds, the first few of which
+ * include warming up.
+ * <p>
+ * Kept under src/benchmark, compiled against the library but not shipped with it.
+ */
+@SuppressWarnings("unused")
+public final class Weather_data_binary_codec_benchmark
+{
+    private static final int LOOP_SIZE = 99;
+    private static final int HILOWS_SIZE = 438;
+    private static final int REPEATS = 20000;
+    private static final int ROUNDS = 5;
+
+    private Weather_data_binary_codec_benchmark()
+    {
+    }
+
+    public static void main( String[] args )
+            throws IOException
+    {
+        Random random = new Random( 14 );
+        Weather_data data = new Weather_data();
+        data.parse_packet( Weather_data.Type.LOOP2,
+                           packet( random,
+                                   LOOP_SIZE,
+                                   1 ),
+                           LOOP_SIZE );
+        data.parse_packet( Weather_data.Type.LOOP,
+                           packet( random,
+                                   LOOP_SIZE,
+                                   0 ),
+                           LOOP_SIZE );
+        data.parse_packet( Weather_data.Type.HILOWS,
+                           packet( random,
+                                   HILOWS_SIZE,
+                                   -1 ),
+                           HILOWS_SIZE );
+
+        Get_weather_station_data_GET_response response = new Get_weather_station_data_GET_response();
+        response.success = "true";
+        response.weather_data = data;
+
+        Weather_data_binary_codec codec = new Weather_data_binary_codec();
+        String JSON = response.serialize_to_JSON();
+        byte[] JSON_bytes = JSON.getBytes( StandardCharsets.UTF_8 );
+        byte[] binary = codec.encode( response );
+
+        if( !JSON.equals( Weather_data_binary_codec.decode( binary )
+                                                   .serialize_to_JSON() ) )
+        {
+            throw new IllegalStateException( "The binary form does not decode to the same response" );
+        }
+
+        System.out.printf( "JSON %d bytes, %d gzipped | binary %d bytes, %d gzipped%n",
+                           JSON_bytes.length,
+                           gzipped_size( JSON_bytes ),
+                           binary.length,
+                           gzipped_size( binary ) );
+
+        long sum = 0;
+        for( int round = 0; round < ROUNDS; round++ )
+        {
+            long start = System.nanoTime();
+            for( int i = 0; i < REPEATS; i++ )
+            {
+                sum += response.serialize_to_JSON()
+                               .length();
+            }
+            long JSON_encode = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for( int i = 0; i < REPEATS; i++ )
+            {
+                sum += Get_weather_station_data_GET_response.deserialize_from_JSON( JSON ).success.length();
+            }
+            long JSON_decode = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for( int i = 0; i < REPEATS; i++ )
+            {
+                sum += codec.encode( response ).length;
+            }
+            long binary_encode = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for( int i = 0; i < REPEATS; i++ )
+            {
+                sum += Weather_data_binary_codec.decode( binary ).success.length();
+            }
+            long binary_decode = System.nanoTime() - start;
+
+            System.out.printf( "Gson encode %.2f us, decode %.2f us | binary encode %.2f us, decode %.2f us%n",
+                               microseconds_each( JSON_encode ),
+                               microseconds_each( JSON_decode ),
+                               microseconds_each( binary_encode ),
+                               microseconds_each( binary_decode ) );
+        }
+
+        // Printed so the loops are not optimized away.
+        System.out.println( "Checksum: " + sum );
+    }
+
+    /*
+     * A packet of random values that passes its CRC. A type of 0 or 1 makes a LOOP or LOOP2 packet, otherwise the
+     * data is left as it is, as for a HILOWS block.
+     */
+    private static byte[] packet( Random random,
+                                  int size,
+                                  int type )
+    {
+        byte[] packet = new byte[size];
+        random.nextBytes( packet );
+        if( type >= 0 )
+        {
+            packet[0] = 'L';
+            packet[1] = 'O';
+            packet[2] = 'O';
+            packet[3] = 0;
+            packet[4] = (byte)type;
+            packet[95] = 0x0A;
+            packet[96] = 0x0D;
+        }
+
+        short CRC = Check_CRC.calculate_CRC_16( packet,
+                                                0,
+                                                size - 2 );
+        packet[size - 2] = (byte)( CRC >> 8 );
+        packet[size - 1] = (byte)CRC;
+        return packet;
+    }
+
+    private static int gzipped_size( byte[] data )
+            throws IOException
+    {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try( GZIPOutputStream gzip = new GZIPOutputStream( output ) )
+        {
+            gzip.write( data );
+        }
+
+        return output.size();
+    }
+
+    private static double microseconds_each( long elapsed_ns )
+    {
+        return ( elapsed_ns / 1.0e3 ) / REPEATS;
+    }
+}
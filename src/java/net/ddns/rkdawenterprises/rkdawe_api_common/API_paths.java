@@ -26,6 +26,19 @@ public class API_paths
     public static final String WEATHER_STATION_DATA_PATH = API_PATH + "/weather_station_data";
     public static final String WEATHER_STATION_DONNA_APP_INFO_PATH = API_PATH + "/weather_station_donna_app_info";
 
+    /**
+     * Query parameter of {@link #WEATHER_STATION_DATA_PATH} with the version of the weather data the client last
+     * received, to get only what changed since.
+     */
+    public static final String SINCE_VERSION_PARAMETER = "since_version";
+
+    /**
+     * Query parameter of {@link #WEATHER_STATION_DATA_PATH} with the epoch of the version in
+     * {@link #SINCE_VERSION_PARAMETER}. A version is only known within its epoch, the versions start over with each
+     * one.
+     */
+    public static final String SINCE_EPOCH_PARAMETER = "since_epoch";
+
     public final String api_path = API_PATH;
     public final String authenticate_path = AUTHENTICATE_PATH;
     public final String get_logged_in_path = GET_LOGGED_IN_PATH;
@@ -33,4 +46,6 @@ public class API_paths
     public final String log_out_path = LOG_OUT_PATH;
     public final String weather_station_data_path = WEATHER_STATION_DATA_PATH;
     public final String weather_station_donna_app_info_path = WEATHER_STATION_DONNA_APP_INFO_PATH;
+    public final String since_version_parameter = SINCE_VERSION_PARAMETER;
+    public final String since_epoch_parameter = SINCE_EPOCH_PARAMETER;
 }
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2024 RKDAW Enterprises and Ralph Williamson.
+ *       email: rkdawenterprises@gmail.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ddns.rkdawenterprises.rkdawe_api_common;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Decodes the 267 byte archive pages sent by the weather station for the DMP and DMPAFT commands. A page is a
+ * sequence number, five {@link Archive_record}s, four unused bytes and the CRC.
+ */
+@SuppressWarnings("unused")
+public final class Archive_page
+{
+    public static final int PAGE_SIZE = 267;
+    public static final int RECORDS_PER_PAGE = 5;
+
+    private Archive_page()
+    {
+    }
+
+    /**
+     * Decodes the records of the page between the buffer's position and limit. Slots that have never been written
+     * are skipped.
+     *
+     * @param page The page data, read with absolute reads.
+     *
+     * @return The records in the page, oldest first.
+     *
+     * @throws IllegalArgumentException
+     * @throws ArithmeticException
+     */
+    public static List< Archive_record > parse_page( ByteBuffer page )
+            throws IllegalArgumentException, ArithmeticException
+    {
+        int base = page.position();
+        if( page.remaining() != PAGE_SIZE ) throw new IllegalArgumentException( "Incorrect page size" );
+
+        Check_CRC.check_CRC_16( page,
+                                base,
+                                PAGE_SIZE );
+
+        List< Archive_record > records = new ArrayList< Archive_record >( RECORDS_PER_PAGE );
+        for( int i = 0; i < RECORDS_PER_PAGE; i++ )
+        {
+            int index = base + 1 + ( i * Archive_record.RECORD_SIZE );
+            if( Archive_record.is_record( page,
+                                          index ) )
+            {
+                records.add( Archive_record.parse_record( page,
+                                                          index ) );
+            }
+        }
+
+        return records;
+    }
+
+    /**
+     * Builds the date and time stamp, with its CRC, that is sent after the DMPAFT command. The station then sends the
+     * records after the given local time.
+     *
+     * @param after The time, in the station's time zone.
+     *
+     * @return The six bytes to send.
+     */
+    public static byte[] make_DMPAFT_time_stamp( ZonedDateTime after )
+    {
+        int date_stamp = after.getDayOfMonth() + ( after.getMonthValue() * 32 ) + ( ( after.getYear() - 2000 ) * 512 );
+        int time_stamp = ( after.getHour() * 100 ) + after.getMinute();
+
+        byte[] bytes = new byte[6];
+        bytes[0] = (byte)date_stamp;
+        bytes[1] = (byte)( date_stamp >>> 8 );
+        bytes[2] = (byte)time_stamp;
+        bytes[3] = (byte)( time_stamp >>> 8 );
+
+        short crc = Check_CRC.calculate_CRC_16( bytes,
+                                                0,
+                                                4 );
+        bytes[4] = (byte)( crc >>> 8 );
+        bytes[5] = (byte)crc;
+
+        return bytes;
+    }
+
+    /**
+     * Streams the records from consecutive pages, such as a dump file or the station's reply to DMPAFT. Pages whose
+     * CRC does not check, or that hold an invalid time stamp, are skipped and counted. Records at or before the given
+     * time are skipped, which drops the older records DMPAFT sends in its first page as well as the oldest data left
+     * over when the archive memory has wrapped around.
+     */
+    public static final class Reader implements Iterator< Archive_record >, Closeable
+    {
+        private final InputStream m_input;
+        private final long m_after_ms;
+        private final byte[] m_page = new byte[PAGE_SIZE];
+        private final ByteBuffer m_page_view = ByteBuffer.wrap( m_page );
+        private final List< Archive_record > m_pending = new ArrayList< Archive_record >( RECORDS_PER_PAGE );
+        private int m_pending_index = 0;
+        private boolean m_end_of_input = false;
+        private int m_number_of_bad_pages = 0;
+
+        /**
+         * @param input    The page data.
+         * @param after_ms Only records after this time, in milliseconds since the epoch, are returned.
+         */
+        public Reader( InputStream input,
+                       long after_ms )
+        {
+            m_input = input;
+            m_after_ms = after_ms;
+        }
+
+        public Reader( InputStream input )
+        {
+            this( input,
+                  Long.MIN_VALUE );
+        }
+
+        public int get_number_of_bad_pages()
+        {
+            return m_number_of_bad_pages;
+        }
+
+        /**
+         * @throws UncheckedIOException If reading the input fails.
+         */
+        @Override
+        public boolean hasNext()
+        {
+            while( ( m_pending_index >= m_pending.size() ) && !m_end_of_input )
+            {
+                read_page();
+            }
+
+            return( m_pending_index < m_pending.size() );
+        }
+
+        @Override
+        public Archive_record next()
+        {
+            if( !hasNext() ) throw new NoSuchElementException();
+
+            return m_pending.get( m_pending_index++ );
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            m_input.close();
+        }
+
+        private void read_page()
+        {
+            m_pending.clear();
+            m_pending_index = 0;
+
+            try
+            {
+                int count = 0;
+                while( count < PAGE_SIZE )
+                {
+                    int read = m_input.read( m_page,
+                                             count,
+                                             PAGE_SIZE - count );
+                    if( read < 0 )
+                    {
+                        m_end_of_input = true;
+                        return;
+                    }
+
+                    count += read;
+                }
+            }
+            catch( IOException exception )
+            {
+                throw new UncheckedIOException( exception );
+            }
+
+            try
+            {
+                for( Archive_record record : parse_page( m_page_view ) )
+                {
+                    if( record.timestamp_ms > m_after_ms ) m_pending.add( record );
+                }
+            }
+            catch( ArithmeticException | IllegalArgumentException exception )
+            {
+                m_number_of_bad_pages++;
+            }
+        }
+    }
+}
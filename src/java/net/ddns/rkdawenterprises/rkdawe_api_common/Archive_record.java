@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2024 RKDAW Enterprises and Ralph Williamson.
+ *       email: rkdawenterprises@gmail.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ddns.rkdawenterprises.rkdawe_api_common;
+
+import java.nio.ByteBuffer;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.util.TimeZone;
+
+/**
+ * One 52 byte "Rev B" archive record from the weather station's archive memory, as returned in the pages of the DMP
+ * and DMPAFT commands. Values the station reports as "dashed", meaning no data, are set to the same "no data" values
+ * as {@link Weather_data}. The leaf, soil and extra sensor values are not decoded since the Vantage Vue has none.
+ */
+@SuppressWarnings("unused")
+public class Archive_record
+{
+    public static final int RECORD_SIZE = 52;
+
+    /**
+     * The end of the archive interval as UTC, formatted like the {@link Weather_data} times.
+     */
+    public String time = "N/A";
+
+    /**
+     * The end of the archive interval in milliseconds since the epoch.
+     */
+    public long timestamp_ms = Long.MAX_VALUE;
+
+    public double outside_temperature = Double.MAX_VALUE;
+    public double high_outside_temperature = Double.MAX_VALUE;
+    public double low_outside_temperature = Double.MAX_VALUE;
+    public double rainfall = Double.MAX_VALUE;
+    public double high_rain_rate = Double.MAX_VALUE;
+    public double barometer = Double.MAX_VALUE;
+    public int solar_radiation = Integer.MAX_VALUE;
+    public int number_of_wind_samples = Integer.MAX_VALUE;
+    public double inside_temperature = Double.MAX_VALUE;
+    public int inside_humidity = Integer.MAX_VALUE;
+    public int outside_humidity = Integer.MAX_VALUE;
+    public int average_wind_speed = Integer.MAX_VALUE;
+    public int high_wind_speed = Integer.MAX_VALUE;
+    public int direction_of_high_wind_speed = Integer.MAX_VALUE;
+    public int prevailing_wind_direction = Integer.MAX_VALUE;
+    public double average_UV_index = Double.MAX_VALUE;
+    public double ET = Double.MAX_VALUE;
+    public int high_solar_radiation = Integer.MAX_VALUE;
+    public double high_UV_index = Double.MAX_VALUE;
+    public int forecast_rule = Integer.MAX_VALUE;
+
+    /**
+     * @param buffer The buffer containing the record.
+     * @param index  The absolute index of the record within the buffer.
+     *
+     * @return True if the record slot holds a record, false if it has never been written.
+     */
+    static boolean is_record( ByteBuffer buffer,
+                              int index )
+    {
+        int date_stamp = Weather_data.bytes_to_short( buffer,
+                                                      index ) & 0xFFFF;
+        return( date_stamp != 0xFFFF ) && ( date_stamp != 0x0000 );
+    }
+
+    /**
+     * Decodes the record at the given index, which must hold a record.
+     *
+     * @param buffer The buffer containing the record, read with absolute reads.
+     * @param index  The absolute index of the record within the buffer.
+     *
+     * @throws IllegalArgumentException If the date or time stamp is not valid.
+     */
+    static Archive_record parse_record( ByteBuffer buffer,
+                                        int index )
+            throws IllegalArgumentException
+    {
+        Archive_record record = new Archive_record();
+
+        int date_stamp = Weather_data.bytes_to_short( buffer,
+                                                      index ) & 0xFFFF;
+        int time_stamp = Weather_data.bytes_to_short( buffer,
+                                                      index + 2 );
+        try
+        {
+            LocalDateTime local_time = LocalDateTime.of( ( date_stamp >>> 9 ) + 2000,
+                                                         ( date_stamp >>> 5 ) & 0x0F,
+                                                         date_stamp & 0x1F,
+                                                         time_stamp / 100,
+                                                         time_stamp % 100 );
+            ZonedDateTime time_at_local = local_time.atZone( TimeZone.getDefault()
+                                                                     .toZoneId() );
+            record.timestamp_ms = time_at_local.toInstant()
+                                               .toEpochMilli();
+            record.time = Time_of_day_table.UTC_FORMATTER.format( time_at_local );
+        }
+        catch( DateTimeException exception )
+        {
+            throw new IllegalArgumentException( "Invalid archive record time stamp" );
+        }
+
+        record.outside_temperature = tenths( buffer,
+                                             index + 4,
+                                             32767 );
+        record.high_outside_temperature = tenths( buffer,
+                                                  index + 6,
+                                                  -32768 );
+        record.low_outside_temperature = tenths( buffer,
+                                                 index + 8,
+                                                 32767 );
+        record.rainfall = (double)Weather_data.bytes_to_short( buffer,
+                                                               index + 10 )
+                / 100;
+        record.high_rain_rate = (double)Weather_data.bytes_to_short( buffer,
+                                                                     index + 12 )
+                / 100;
+
+        int barometer = Weather_data.bytes_to_short( buffer,
+                                                     index + 14 );
+        if( barometer != 0 ) record.barometer = (double)barometer / 1000;
+
+        record.solar_radiation = short_value( buffer,
+                                              index + 16,
+                                              32767 );
+        record.number_of_wind_samples = Weather_data.bytes_to_short( buffer,
+                                                                     index + 18 );
+        record.inside_temperature = tenths( buffer,
+                                            index + 20,
+                                            32767 );
+        record.inside_humidity = byte_value( buffer,
+                                             index + 22 );
+        record.outside_humidity = byte_value( buffer,
+                                              index + 23 );
+        record.average_wind_speed = byte_value( buffer,
+                                                index + 24 );
+        record.high_wind_speed = buffer.get( index + 25 ) & 0xFF;
+        record.direction_of_high_wind_speed = direction_value( buffer,
+                                                               index + 26 );
+        record.prevailing_wind_direction = direction_value( buffer,
+                                                            index + 27 );
+
+        int average_UV_index = byte_value( buffer,
+                                           index + 28 );
+        if( average_UV_index != Integer.MAX_VALUE ) record.average_UV_index = (double)average_UV_index / 10;
+
+        record.ET = (double)( buffer.get( index + 29 ) & 0xFF ) / 1000;
+        record.high_solar_radiation = short_value( buffer,
+                                                   index + 30,
+                                                   32767 );
+
+        int high_UV_index = byte_value( buffer,
+                                        index + 32 );
+        if( high_UV_index != Integer.MAX_VALUE ) record.high_UV_index = (double)high_UV_index / 10;
+
+        record.forecast_rule = buffer.get( index + 33 ) & 0xFF;
+
+        return record;
+    }
+
+    /**
+     * Creates weather data from the record, for back filling history. The record's averages stand in for the
+     * current values, the high wind speed for the ten minute gust and the high rain rate for the rain rate. Values
+     * not kept in the archive are left as "no data".
+     *
+     * @return The weather data.
+     */
+    public Weather_data to_weather_data()
+    {
+        Weather_data weather_data = new Weather_data();
+
+        weather_data.time = time;
+        weather_data.barometer = barometer;
+        weather_data.inside_temperature = inside_temperature;
+        weather_data.inside_humidity = inside_humidity;
+        weather_data.setOutside_temperature( outside_temperature );
+        weather_data.setOutside_humidity( outside_humidity );
+        weather_data.setWind_speed( average_wind_speed );
+        weather_data.wind_direction = prevailing_wind_direction;
+        weather_data.ten_min_wind_gust = high_wind_speed;
+        weather_data.wind_direction_of_ten_min_wind_gust = direction_of_high_wind_speed;
+        weather_data.rain_rate = high_rain_rate;
+
+        return weather_data;
+    }
+
+    private static double tenths( ByteBuffer buffer,
+                                  int index,
+                                  int dashed )
+    {
+        short value = Weather_data.bytes_to_short( buffer,
+                                                   index );
+        return( value == dashed ) ? Double.MAX_VALUE : (double)value / 10;
+    }
+
+    private static int short_value( ByteBuffer buffer,
+                                    int index,
+                                    int dashed )
+    {
+        short value = Weather_data.bytes_to_short( buffer,
+                                                   index );
+        return( value == dashed ) ? Integer.MAX_VALUE : value;
+    }
+
+    private static int byte_value( ByteBuffer buffer,
+                                   int index )
+    {
+        int value = buffer.get( index ) & 0xFF;
+        return( value == 255 ) ? Integer.MAX_VALUE : value;
+    }
+
+    /*
+     * Directions are stored as one of 16 compass points, returned in degrees.
+     */
+    private static int direction_value( ByteBuffer buffer,
+                                        int index )
+    {
+        int value = byte_value( buffer,
+                                index );
+        return( ( value == Integer.MAX_VALUE ) || ( value > 15 ) ) ? Integer.MAX_VALUE : (int)( value * 22.5 );
+    }
+}
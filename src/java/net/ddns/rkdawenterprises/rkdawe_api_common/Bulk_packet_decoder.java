@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2024 RKDAW Enterprises and Ralph Williamson.
+ *       email: rkdawenterprises@gmail.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ddns.rkdawenterprises.rkdawe_api_common;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Decodes many stored packets in parallel on a fork-join pool, for rebuilding derived data from archives. Each
+ * packet is checked and decoded into its own {@link Weather_data}. A packet that fails does not stop the others, its
+ * error is returned in its place.
+ */
+@SuppressWarnings("unused")
+public final class Bulk_packet_decoder
+{
+    /**
+     * Packets per task below which the work is no longer split.
+     */
+    private static final int SPLIT_THRESHOLD = 256;
+
+    public static final class Packet
+    {
+        public final Weather_data.Type type;
+        public final ByteBuffer data;
+
+        /**
+         * @param type The type of the packet data.
+         * @param data The packet data between the buffer's position and limit. It is only read with absolute reads,
+         *             so the same buffer may be shared.
+         */
+        public Packet( Weather_data.Type type,
+                       ByteBuffer data )
+        {
+            this.type = type;
+            this.data = data;
+        }
+
+        public Packet( Weather_data.Type type,
+                       byte[] data )
+        {
+            this( type,
+                  ByteBuffer.wrap( data ) );
+        }
+    }
+
+    public static final class Result
+    {
+        /**
+         * The decoded packet, or null if it failed.
+         */
+        public final Weather_data weather_data;
+
+        /**
+         * Why the packet failed, or null if it was decoded.
+         */
+        public final RuntimeException error;
+
+        Result( Weather_data weather_data,
+                RuntimeException error )
+        {
+            this.weather_data = weather_data;
+            this.error = error;
+        }
+
+        public boolean is_valid()
+        {
+            return( error == null );
+        }
+    }
+
+    private Bulk_packet_decoder()
+    {
+    }
+
+    /**
+     * Decodes the packets on the common fork-join pool.
+     *
+     * @param packets The packets to decode.
+     *
+     * @return The results, in the same order as the packets.
+     */
+    public static List< Result > decode( List< Packet > packets )
+    {
+        return decode( packets,
+                       ForkJoinPool.commonPool() );
+    }
+
+    /**
+     * @param packets The packets to decode.
+     * @param pool    The pool to decode on.
+     *
+     * @return The results, in the same order as the packets.
+     */
+    public static List< Result > decode( List< Packet > packets,
+                                         ForkJoinPool pool )
+    {
+        List< Packet > indexable = ( packets instanceof RandomAccess ) ? packets : new ArrayList< Packet >( packets );
+        Result[] results = new Result[indexable.size()];
+
+        pool.invoke( new Decode_task( indexable,
+                                      results,
+                                      0,
+                                      results.length ) );
+
+        return Arrays.asList( results );
+    }
+
+    static Result decode( Packet packet )
+    {
+        try
+        {
+            Weather_data weather_data = new Weather_data();
+            weather_data.parse_packet( packet.type,
+                                       packet.data );
+            return new Result( weather_data,
+                               null );
+        }
+        catch( IllegalArgumentException | ArithmeticException | IndexOutOfBoundsException exception )
+        {
+            return new Result( null,
+                               exception );
+        }
+    }
+
+    private static final class Decode_task extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final List< Packet > m_packets;
+        private final Result[] m_results;
+        private final int m_from;
+        private final int m_to;
+
+        Decode_task( List< Packet > packets,
+                     Result[] results,
+                     int from,
+                     int to )
+        {
+            m_packets = packets;
+            m_results = results;
+            m_from = from;
+            m_to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if( ( m_to - m_from ) <= SPLIT_THRESHOLD )
+            {
+                for( int i = m_from; i < m_to; i++ )
+                {
+                    m_results[i] = decode( m_packets.get( i ) );
+                }
+
+                return;
+            }
+
+            int middle = ( m_from + m_to ) >>> 1;
+            invokeAll( new Decode_task( m_packets,
+                                        m_results,
+                                        m_from,
+                                        middle ),
+                       new Decode_task( m_packets,
+                                        m_results,
+                                        middle,
+                                        m_to ) );
+        }
+    }
+}
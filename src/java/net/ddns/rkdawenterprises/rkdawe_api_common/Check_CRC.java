@@ -17,6 +17,8 @@
 
 package net.ddns.rkdawenterprises.rkdawe_api_common;
 
+import java.nio.ByteBuffer;
+
 public class Check_CRC
 {
     public static void check_CRC_16( byte[] packet, int offset, int length )
@@ -30,17 +32,206 @@ public class Check_CRC
         }
     }
 
+    /**
+     * Checks the CRC over a view of a buffer, using absolute reads so the buffer's position and limit are left
+     * unchanged.
+     *
+     * @param packet The buffer, direct or heap backed.
+     * @param offset The absolute index of the first byte to check.
+     * @param length The number of bytes to check, including the two CRC bytes.
+     *
+     * @throws ArithmeticException If the CRC does not check.
+     */
+    public static void check_CRC_16( ByteBuffer packet, int offset, int length )
+            throws ArithmeticException
+    {
+        short crc = calculate_CRC_16( packet, offset, length );
+
+        if( crc != 0 )
+        {
+            throw new ArithmeticException( "CRC Error" );
+        }
+    }
+
+    /**
+     * Checks the CRC of a number of equal sized packets stored back to back, as in an archive dump.
+     *
+     * @param packets       The packets.
+     * @param offset        The index of the first packet.
+     * @param packet_length The length of each packet, including its two CRC bytes.
+     * @param count         The number of packets.
+     * @param valid         If not null, set to whether each packet checks.
+     *
+     * @return The number of packets that do not check.
+     */
+    public static int check_CRC_16_batch( byte[] packets, int offset, int packet_length, int count, boolean[] valid )
+    {
+        int errors = 0;
+        for( int i = 0; i < count; i++ )
+        {
+            boolean ok = ( update_CRC_16( 0, packets, offset + ( i * packet_length ), packet_length ) == 0 );
+            if( !ok ) errors++;
+            if( valid != null ) valid[i] = ok;
+        }
+
+        return errors;
+    }
+
+    /**
+     * Checks the CRC of a number of whole packets.
+     *
+     * @param packets The packets, each including its two CRC bytes.
+     * @param valid   If not null, set to whether each packet checks.
+     *
+     * @return The number of packets that do not check.
+     */
+    public static int check_CRC_16_batch( byte[][] packets, boolean[] valid )
+    {
+        int errors = 0;
+        for( int i = 0; i < packets.length; i++ )
+        {
+            boolean ok = ( update_CRC_16( 0, packets[i], 0, packets[i].length ) == 0 );
+            if( !ok ) errors++;
+            if( valid != null ) valid[i] = ok;
+        }
+
+        return errors;
+    }
+
+    public static short calculate_CRC_16( ByteBuffer packet, int offset, int length )
+    {
+        if( packet.hasArray() )
+        {
+            return calculate_CRC_16( packet.array(), packet.arrayOffset() + offset, length );
+        }
+
+        return( (short)update_CRC_16( 0, packet, offset, length ) );
+    }
+
     public static short calculate_CRC_16( byte[] packet, int offset, int length )
     {
-        int crc = 0;
-        for( int i = offset; i < ( offset + length ); i++ )
+        return( (short)update_CRC_16( 0, packet, offset, length ) );
+    }
+
+    /**
+     * CRC-16 state that can be updated a piece at a time, as data arrives. The value after all the data of a packet,
+     * including its two CRC bytes, is zero if the packet checks.
+     */
+    public static final class CRC_16
+    {
+        private int m_crc = 0;
+
+        public CRC_16 update( byte data )
+        {
+            m_crc = crc_table[( ( m_crc >>> 8 ) ^ data ) & 0xFF] ^ ( ( m_crc << 8 ) & 0xFFFF );
+            return this;
+        }
+
+        public CRC_16 update( byte[] data, int offset, int length )
+        {
+            m_crc = update_CRC_16( m_crc, data, offset, length );
+            return this;
+        }
+
+        /**
+         * @param data   The buffer, read with absolute reads.
+         * @param offset The absolute index of the first byte.
+         * @param length The number of bytes.
+         */
+        public CRC_16 update( ByteBuffer data, int offset, int length )
+        {
+            m_crc = data.hasArray() ? update_CRC_16( m_crc, data.array(), data.arrayOffset() + offset, length )
+                                    : update_CRC_16( m_crc, data, offset, length );
+            return this;
+        }
+
+        public short get_value()
+        {
+            return( (short)m_crc );
+        }
+
+        public boolean is_valid()
+        {
+            return( m_crc == 0 );
+        }
+
+        public void reset()
+        {
+            m_crc = 0;
+        }
+    }
+
+    /*
+     * Slice-by-8, eight table lookups per eight bytes instead of one lookup and shift per byte.
+     */
+    private static int update_CRC_16( int crc, byte[] packet, int offset, int length )
+    {
+        int i = offset;
+        int end = offset + length;
+
+        for( ; ( end - i ) >= 8; i += 8 )
         {
-            int data = packet[i] & 0xFF;
-            int index = ( ( crc >>> 8 ) & 0xFFFF ) ^ data;
-            crc = crc_table[index & 0xFF] ^ ( ( crc << 8 ) & 0xFFFF );
+            crc = s_slice_tables[7][( ( crc >>> 8 ) ^ packet[i] ) & 0xFF]
+                    ^ s_slice_tables[6][( crc ^ packet[i + 1] ) & 0xFF]
+                    ^ s_slice_tables[5][packet[i + 2] & 0xFF]
+                    ^ s_slice_tables[4][packet[i + 3] & 0xFF]
+                    ^ s_slice_tables[3][packet[i + 4] & 0xFF]
+                    ^ s_slice_tables[2][packet[i + 5] & 0xFF]
+                    ^ s_slice_tables[1][packet[i + 6] & 0xFF]
+                    ^ crc_table[packet[i + 7] & 0xFF];
         }
 
-        return( (short)crc );
+        for( ; i < end; i++ )
+        {
+            crc = crc_table[( ( crc >>> 8 ) ^ packet[i] ) & 0xFF] ^ ( ( crc << 8 ) & 0xFFFF );
+        }
+
+        return crc;
+    }
+
+    private static int update_CRC_16( int crc, ByteBuffer packet, int offset, int length )
+    {
+        int i = offset;
+        int end = offset + length;
+
+        for( ; ( end - i ) >= 8; i += 8 )
+        {
+            crc = s_slice_tables[7][( ( crc >>> 8 ) ^ packet.get( i ) ) & 0xFF]
+                    ^ s_slice_tables[6][( crc ^ packet.get( i + 1 ) ) & 0xFF]
+                    ^ s_slice_tables[5][packet.get( i + 2 ) & 0xFF]
+                    ^ s_slice_tables[4][packet.get( i + 3 ) & 0xFF]
+                    ^ s_slice_tables[3][packet.get( i + 4 ) & 0xFF]
+                    ^ s_slice_tables[2][packet.get( i + 5 ) & 0xFF]
+                    ^ s_slice_tables[1][packet.get( i + 6 ) & 0xFF]
+                    ^ crc_table[packet.get( i + 7 ) & 0xFF];
+        }
+
+        for( ; i < end; i++ )
+        {
+            crc = crc_table[( ( crc >>> 8 ) ^ packet.get( i ) ) & 0xFF] ^ ( ( crc << 8 ) & 0xFFFF );
+        }
+
+        return crc;
+    }
+
+    /*
+     * Table k is the CRC of a byte followed by k zero bytes, table zero is the CCITT table below.
+     */
+    private static int[][] make_slice_tables()
+    {
+        int[][] tables = new int[8][];
+        tables[0] = crc_table;
+        for( int k = 1; k < 8; k++ )
+        {
+            tables[k] = new int[256];
+            for( int b = 0; b < 256; b++ )
+            {
+                int previous = tables[k - 1][b];
+                tables[k][b] = crc_table[( previous >>> 8 ) & 0xFF] ^ ( ( previous << 8 ) & 0xFFFF );
+            }
+        }
+
+        return tables;
     }
 
     public static final int[] crc_table =
@@ -76,4 +267,6 @@ public class Check_CRC
           0x7c26, 0x6c07, 0x5c64, 0x4c45, 0x3ca2, 0x2c83, 0x1ce0, 0x0cc1,
           0xef1f, 0xff3e, 0xcf5d, 0xdf7c, 0xaf9b, 0xbfba, 0x8fd9, 0x9ff8,
           0x6e17, 0x7e36, 0x4e55, 0x5e74, 0x2e93, 0x3eb2, 0x0ed1, 0x1ef0 };
+
+    private static final int[][] s_slice_tables = make_slice_tables();
 }
@@ -0,0 +1,424 @@
+/*
+ * Copyright (c) 2024 RKDAW Enterprises and Ralph Williamson.
+ *       email: rkdawenterprises@gmail.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ddns.rkdawenterprises.rkdawe_api_common;
+
+import java.nio.ByteBuffer;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Packs {@link Weather_data} snapshots into fixed size records, for keeping many samples in memory, such as a
+ * direct buffer holding weeks of history. Each record is {@link #RECORD_SIZE} bytes laid out in
+ * {@link Weather_data.Field} order, after a bitmap with a bit per field:
+ * <ul>
+ *     <li>INT fields are 4 byte ints, the bit is set if the field has data.</li>
+ *     <li>DOUBLE fields from the station are 4 byte ints scaled by their decimals, calculated ones are the 8 byte
+ *     bits of the double. The bit is set if the field has data. A value too large to scale is stored as no data.</li>
+ *     <li>TIME fields are 8 byte milliseconds since the epoch if the bit is set, otherwise the id of the string,
+ *     such as "N/A", in the codec's string table.</li>
+ *     <li>STRING fields are the 4 byte id of the string in the codec's string table, -1 for null.</li>
+ * </ul>
+ * The strings, mostly units and forecast text, repeat from sample to sample so the table stays small. Records can
+ * only be decoded by the codec that encoded them, using the same byte order.
+ * <p>
+ * Thread safe, the string table may be added to while records are being decoded.
+ */
+@SuppressWarnings("unused")
+public final class Compact_weather_data
+{
+    private static final Weather_data.Field[] FIELDS = Weather_data.Field.get_values();
+    private static final double[] SCALES = { 1, 10, 100, 1000, 10000 };
+    private static final int BITMAP_SIZE = ( FIELDS.length + 7 ) / 8;
+    private static final int[] OFFSETS = new int[FIELDS.length];
+
+    public static final int RECORD_SIZE;
+
+    static
+    {
+        int offset = BITMAP_SIZE;
+        for( int i = 0; i < FIELDS.length; i++ )
+        {
+            OFFSETS[i] = offset;
+            offset += field_size( FIELDS[i] );
+        }
+
+        RECORD_SIZE = offset;
+    }
+
+    private static final int TIME_CACHE_SIZE = 1024;
+
+    private static final class Time_entry
+    {
+        final long m_time_ms;
+        final String m_time;
+
+        Time_entry( long time_ms,
+                    String time )
+        {
+            m_time_ms = time_ms;
+            m_time = time;
+        }
+    }
+
+    private final ConcurrentHashMap< String, Integer > m_string_ids = new ConcurrentHashMap< String, Integer >();
+    private volatile String[] m_strings = new String[64];
+    private int m_number_of_strings = 0;
+
+    /*
+     * Decoded times, by minute, so the many samples holding the same time share one string.
+     */
+    private final Time_entry[] m_time_cache = new Time_entry[TIME_CACHE_SIZE];
+
+    public Compact_weather_data()
+    {
+    }
+
+    /**
+     * Encodes the weather data into a record using absolute writes, so the buffer's position is unchanged.
+     *
+     * @param data   The weather data to encode.
+     * @param record The buffer to hold the record.
+     * @param index  The absolute index of the record within the buffer.
+     *
+     * @throws IndexOutOfBoundsException If the record does not fit in the buffer.
+     */
+    public void encode( Weather_data data,
+                        ByteBuffer record,
+                        int index )
+            throws IndexOutOfBoundsException
+    {
+        check_index( record,
+                     index );
+
+        for( int i = 0; i < BITMAP_SIZE; i++ )
+        {
+            record.put( index + i,
+                        (byte)0 );
+        }
+
+        for( int i = 0; i < FIELDS.length; i++ )
+        {
+            Weather_data.Field field = FIELDS[i];
+            int offset = index + OFFSETS[i];
+            boolean has_data = false;
+
+            switch( field.kind )
+            {
+                case STRING:
+                    record.putInt( offset,
+                                   get_string_id( field.get_string( data ) ) );
+                    break;
+
+                case TIME:
+                    String time = field.get_string( data );
+                    long time_ms = parse_time( time );
+                    has_data = ( time_ms != Long.MIN_VALUE );
+                    record.putLong( offset,
+                                    has_data ? time_ms : get_string_id( time ) );
+                    break;
+
+                case INT:
+                    int int_value = (int)field.get_number( data );
+                    has_data = ( int_value != Integer.MAX_VALUE );
+                    record.putInt( offset,
+                                   has_data ? int_value : 0 );
+                    break;
+
+                case DOUBLE:
+                    double value = field.get_number( data );
+                    if( field.decimals < 0 )
+                    {
+                        has_data = ( value != Double.MAX_VALUE );
+                        record.putLong( offset,
+                                        Double.doubleToRawLongBits( value ) );
+                    }
+                    else
+                    {
+                        double scaled = Math.rint( value * SCALES[field.decimals] );
+                        has_data = ( value != Double.MAX_VALUE ) && ( Math.abs( scaled ) <= Integer.MAX_VALUE );
+                        record.putInt( offset,
+                                       has_data ? (int)scaled : 0 );
+                    }
+                    break;
+            }
+
+            if( has_data )
+            {
+                int bitmap_index = index + ( i >>> 3 );
+                record.put( bitmap_index,
+                            (byte)( record.get( bitmap_index ) | ( 1 << ( i & 7 ) ) ) );
+            }
+        }
+    }
+
+    /**
+     * Decodes a record into the given weather data, setting every field.
+     *
+     * @param record The buffer holding the record, read with absolute reads.
+     * @param index  The absolute index of the record within the buffer.
+     * @param data   The weather data to decode into.
+     *
+     * @throws IndexOutOfBoundsException If the record is not within the buffer.
+     * @throws IllegalArgumentException  If the record refers to a string this codec does not have.
+     */
+    public void decode( ByteBuffer record,
+                        int index,
+                        Weather_data data )
+            throws IndexOutOfBoundsException, IllegalArgumentException
+    {
+        check_index( record,
+                     index );
+
+        String[] strings = m_strings;
+
+        for( int i = 0; i < FIELDS.length; i++ )
+        {
+            Weather_data.Field field = FIELDS[i];
+            int offset = index + OFFSETS[i];
+            boolean has_data = ( ( record.get( index + ( i >>> 3 ) ) >>> ( i & 7 ) ) & 1 ) != 0;
+
+            switch( field.kind )
+            {
+                case STRING:
+                    field.set_string( data,
+                                      get_string( strings,
+                                                  record.getInt( offset ) ) );
+                    break;
+
+                case TIME:
+                    long time = record.getLong( offset );
+                    field.set_string( data,
+                                      has_data ? format_time( time ) : get_string( strings,
+                                                                                     (int)time ) );
+                    break;
+
+                case INT:
+                    field.set_number( data,
+                                      has_data ? record.getInt( offset ) : Integer.MAX_VALUE );
+                    break;
+
+                case DOUBLE:
+                    if( !has_data )
+                    {
+                        field.set_number( data,
+                                          Double.MAX_VALUE );
+                    }
+                    else if( field.decimals < 0 )
+                    {
+                        field.set_number( data,
+                                          Double.longBitsToDouble( record.getLong( offset ) ) );
+                    }
+                    else
+                    {
+                        field.set_number( data,
+                                          (double)record.getInt( offset ) / SCALES[field.decimals] );
+                    }
+                    break;
+            }
+        }
+    }
+
+    /**
+     * @param record The buffer holding the record, read with absolute reads.
+     * @param index  The absolute index of the record within the buffer.
+     *
+     * @return New weather data decoded from the record.
+     *
+     * @throws IndexOutOfBoundsException If the record is not within the buffer.
+     * @throws IllegalArgumentException  If the record refers to a string this codec does not have.
+     */
+    public Weather_data decode( ByteBuffer record,
+                                int index )
+            throws IndexOutOfBoundsException, IllegalArgumentException
+    {
+        Weather_data data = new Weather_data();
+        decode( record,
+                index,
+                data );
+        return data;
+    }
+
+    /**
+     * @return The number of distinct strings seen.
+     */
+    public synchronized int get_number_of_strings()
+    {
+        return m_number_of_strings;
+    }
+
+    /**
+     * @param record The buffer holding the record.
+     * @param index  The absolute index of the record within the buffer.
+     *
+     * @return The time of the record in milliseconds since the epoch, or Long.MIN_VALUE if it has no valid time.
+     */
+    public static long get_time_ms( ByteBuffer record,
+                                    int index )
+    {
+        int field = Weather_data.Field.TIME.ordinal();
+        boolean has_data = ( ( record.get( index + ( field >>> 3 ) ) >>> ( field & 7 ) ) & 1 ) != 0;
+        return has_data ? record.getLong( index + OFFSETS[field] ) : Long.MIN_VALUE;
+    }
+
+    private static int field_size( Weather_data.Field field )
+    {
+        switch( field.kind )
+        {
+            case TIME:
+                return 8;
+            case DOUBLE:
+                return ( field.decimals < 0 ) ? 8 : 4;
+            default:
+                return 4;
+        }
+    }
+
+    private static void check_index( ByteBuffer record,
+                                     int index )
+    {
+        if( ( index < 0 ) || ( index > ( record.limit() - RECORD_SIZE ) ) )
+        {
+            throw new IndexOutOfBoundsException( "Record does not fit at index " + index );
+        }
+    }
+
+    private int get_string_id( String string )
+    {
+        if( string == null ) return -1;
+
+        Integer id = m_string_ids.get( string );
+        return( id != null ) ? id : add_string( string );
+    }
+
+    private synchronized int add_string( String string )
+    {
+        Integer id = m_string_ids.get( string );
+        if( id != null ) return id;
+
+        String[] strings = m_strings;
+        if( m_number_of_strings == strings.length )
+        {
+            strings = Arrays.copyOf( strings,
+                                     strings.length * 2 );
+        }
+
+        strings[m_number_of_strings] = string;
+        m_strings = strings;
+        m_string_ids.put( string,
+                          m_number_of_strings );
+        return m_number_of_strings++;
+    }
+
+    private static String get_string( String[] strings,
+                                      int id )
+    {
+        if( id == -1 ) return null;
+
+        if( ( id < 0 ) || ( id >= strings.length ) || ( strings[id] == null ) )
+        {
+            throw new IllegalArgumentException( "Unknown string id " + id );
+        }
+
+        return strings[id];
+    }
+
+    /*
+     * Parses a "yyyy-MM-dd'T'HH:mm:ss'Z'" time. Anything else, or a time that would not format back to the same
+     * string, returns Long.MIN_VALUE so it is kept as a string.
+     */
+    static long parse_time( String time )
+    {
+        if( ( time == null ) || ( time.length() != 20 ) || ( time.charAt( 4 ) != '-' ) || ( time.charAt( 7 ) != '-' )
+                || ( time.charAt( 10 ) != 'T' ) || ( time.charAt( 13 ) != ':' ) || ( time.charAt( 16 ) != ':' )
+                || ( time.charAt( 19 ) != 'Z' ) )
+        {
+            return Long.MIN_VALUE;
+        }
+
+        int year = digits( time,
+                           0,
+                           4 );
+        int month = digits( time,
+                            5,
+                            2 );
+        int day = digits( time,
+                          8,
+                          2 );
+        int hour = digits( time,
+                           11,
+                           2 );
+        int minute = digits( time,
+                             14,
+                             2 );
+        int second = digits( time,
+                             17,
+                             2 );
+        if( ( year < 0 ) || ( month < 0 ) || ( day < 0 ) || ( hour < 0 ) || ( minute < 0 ) || ( second < 0 ) )
+        {
+            return Long.MIN_VALUE;
+        }
+
+        try
+        {
+            return LocalDateTime.of( year,
+                                     month,
+                                     day,
+                                     hour,
+                                     minute,
+                                     second )
+                                .toEpochSecond( ZoneOffset.UTC ) * 1000;
+        }
+        catch( DateTimeException exception )
+        {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    private static int digits( String string,
+                               int index,
+                               int count )
+    {
+        int value = 0;
+        for( int i = index; i < ( index + count ); i++ )
+        {
+            char c = string.charAt( i );
+            if( ( c < '0' ) || ( c > '9' ) ) return -1;
+
+            value = ( value * 10 ) + ( c - '0' );
+        }
+
+        return value;
+    }
+
+    private String format_time( long time_ms )
+    {
+        int slot = (int)Math.floorMod( Math.floorDiv( time_ms,
+                                                      60 * 1000L ),
+                                       (long)TIME_CACHE_SIZE );
+        Time_entry entry = m_time_cache[slot];
+        if( ( entry != null ) && ( entry.m_time_ms == time_ms ) ) return entry.m_time;
+
+        String time = Time_of_day_table.UTC_FORMATTER.format( Instant.ofEpochMilli( time_ms ) );
+        m_time_cache[slot] = new Time_entry( time_ms,
+                                             time );
+        return time;
+    }
+}
@@ -0,0 +1,863 @@
+/*
+ * Copyright (c) 2024 RKDAW Enterprises and Ralph Williamson.
+ *       email: rkdawenterprises@gmail.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ddns.rkdawenterprises.rkdawe_api_common;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A compressed form of the {@link History_store} records, for keeping far more history in the same space, with a
+ * streaming {@link Encoder} and {@link Decoder}. The compression is that of Facebook's Gorilla: timestamps are kept as
+ * the difference of their differences, usually a bit or two, and each value as the XOR with the column's previous
+ * value, a single bit when it has not changed, otherwise only its changed bits. The XOR is of the bits the store
+ * keeps, the 32-bit scaled integer for station values and the 64 bits of the double for the rest, so values decode
+ * exactly as the store would give them.
+ * <p>
+ * The segment starts with 'W', 'Z' and the format version, followed by the header of a {@link History_store}
+ * segment with the columns. The records follow in blocks, each starting afresh so a block can be skipped or lost on
+ * its own, with a header of little-endian record count (4 bytes), first and last time (8 bytes each) and length in
+ * bytes (4 bytes). The times of a block are those of its first and last records that have one. A block cut short
+ * at the end of a segment, by a crash while writing it, is ignored.
+ * <p>
+ * A {@link History_store} set to {@link History_store#set_compress_full_segments(boolean)} compresses each segment
+ * when it is full, to prefix_N.whz, and its {@link History_reader}s and CSV export read the compressed segments.
+ * <p>
+ * Timestamps, after the first of a block, by their zigzag difference of differences:
+ * <pre>
+ *     0                     the same difference
+ *     10   then 7 bits
+ *     110  then 9 bits
+ *     1110 then 12 bits
+ *     1111 then 64 bits
+ * </pre>
+ * Values, after the first of a block, by the XOR with the previous value:
+ * <pre>
+ *     0    the same value
+ *     10   then the XOR's bits within the previous one's leading and trailing zeros
+ *     11   then 6 bits of leading zeros, 6 bits of the number of bits less one, and the bits
+ * </pre>
+ * Not thread safe.
+ */
+@SuppressWarnings("unused")
+public final class Compressed_history_segment
+{
+    public static final int FORMAT_VERSION = 1;
+
+    /**
+     * The records in a block unless it is flushed before.
+     */
+    public static final int DEFAULT_BLOCK_RECORDS = 1024;
+
+    private static final byte MAGIC_0 = 'W';
+    private static final byte MAGIC_1 = 'Z';
+    private static final int BLOCK_HEADER_SIZE = 24;
+
+    private Compressed_history_segment()
+    {
+    }
+
+    /**
+     * Writes records to a compressed segment.
+     */
+    public static final class Encoder implements Closeable
+    {
+        private final OutputStream m_output;
+        private final History_store.Column[] m_columns;
+        private final int m_block_records;
+        private final Bit_output m_bits = new Bit_output();
+        private final ByteBuffer m_block_header = ByteBuffer.allocate( BLOCK_HEADER_SIZE )
+                                                            .order( ByteOrder.LITTLE_ENDIAN );
+
+        private final long[] m_previous_values;
+        private final int[] m_previous_leading;
+        private final int[] m_previous_trailing;
+        private int m_records = 0;
+        private long m_previous_time;
+        private long m_previous_delta;
+        private long m_first_time;
+        private long m_last_time;
+
+        /**
+         * Writes the segment's header.
+         */
+        public Encoder( OutputStream output,
+                        History_store.Column[] columns )
+                throws IOException
+        {
+            this( output,
+                  columns,
+                  DEFAULT_BLOCK_RECORDS );
+        }
+
+        /**
+         * Writes the segment's header.
+         *
+         * @param output        Where to write the segment.
+         * @param columns       The columns of each record, after the timestamp.
+         * @param block_records The records in a block unless it is flushed before.
+         *
+         * @throws IllegalArgumentException If there are no columns, too many, or blocks are empty.
+         */
+        public Encoder( OutputStream output,
+                        History_store.Column[] columns,
+                        int block_records )
+                throws IOException, IllegalArgumentException
+        {
+            if( ( columns.length == 0 ) || ( columns.length > 255 ) )
+            {
+                throw new IllegalArgumentException( "Bad number of columns: " + columns.length );
+            }
+
+            if( block_records < 1 ) throw new IllegalArgumentException( "Blocks need at least one record" );
+
+            m_output = output;
+            m_columns = columns.clone();
+            m_block_records = block_records;
+            m_previous_values = new long[m_columns.length];
+            m_previous_leading = new int[m_columns.length];
+            m_previous_trailing = new int[m_columns.length];
+
+            m_output.write( new byte[] { MAGIC_0, MAGIC_1, FORMAT_VERSION } );
+            m_output.write( History_store.make_header( m_columns ) );
+        }
+
+        /**
+         * Appends a record, ending the block if it is full. Makes no garbage once the block buffer has grown.
+         *
+         * @param time_ms The timestamp, in milliseconds since the epoch, or {@link History_store#NO_TIME}.
+         * @param values  A value for each column.
+         *
+         * @throws IllegalArgumentException If the number of values does not match the columns.
+         */
+        public void append( long time_ms,
+                            double[] values )
+                throws IOException, IllegalArgumentException
+        {
+            if( values.length != m_columns.length )
+            {
+                throw new IllegalArgumentException( "Expected " + m_columns.length + " values" );
+            }
+
+            if( m_records == 0 )
+            {
+                m_bits.write( time_ms,
+                              64 );
+                m_previous_delta = 0;
+                m_first_time = History_store.NO_TIME;
+            }
+            else
+            {
+                long delta = time_ms - m_previous_time;
+                write_time( zigzag( delta - m_previous_delta ) );
+                m_previous_delta = delta;
+            }
+
+            m_previous_time = time_ms;
+            if( time_ms != History_store.NO_TIME )
+            {
+                if( m_first_time == History_store.NO_TIME ) m_first_time = time_ms;
+                m_last_time = time_ms;
+            }
+
+            for( int i = 0; i < m_columns.length; i++ )
+            {
+                History_store.Column column = m_columns[i];
+                int width = column.type.size * 8;
+                long value = History_store.to_bits( column,
+                                                    values[i] ) & mask( width );
+                if( m_records == 0 )
+                {
+                    m_bits.write( value,
+                                  width );
+                    m_previous_leading[i] = -1;
+                }
+                else
+                {
+                    write_value( i,
+                                 value ^ m_previous_values[i],
+                                 width );
+                }
+
+                m_previous_values[i] = value;
+            }
+
+            if( ++m_records == m_block_records ) end_block();
+        }
+
+        /**
+         * Ends the block and flushes the output, so the records written are complete in the segment.
+         */
+        public void flush()
+                throws IOException
+        {
+            end_block();
+            m_output.flush();
+        }
+
+        /**
+         * Ends the block and closes the output.
+         */
+        @Override
+        public void close()
+                throws IOException
+        {
+            try
+            {
+                end_block();
+            }
+            finally
+            {
+                m_output.close();
+            }
+        }
+
+        private void write_time( long zigzag )
+        {
+            if( zigzag == 0 )
+            {
+                m_bits.write( 0,
+                              1 );
+            }
+            else if( ( zigzag >>> 7 ) == 0 )
+            {
+                m_bits.write( ( 0b10L << 7 ) | zigzag,
+                              2 + 7 );
+            }
+            else if( ( zigzag >>> 9 ) == 0 )
+            {
+                m_bits.write( ( 0b110L << 9 ) | zigzag,
+                              3 + 9 );
+            }
+            else if( ( zigzag >>> 12 ) == 0 )
+            {
+                m_bits.write( ( 0b1110L << 12 ) | zigzag,
+                              4 + 12 );
+            }
+            else
+            {
+                m_bits.write( 0b1111,
+                              4 );
+                m_bits.write( zigzag,
+                              64 );
+            }
+        }
+
+        private void write_value( int column,
+                                  long xor,
+                                  int width )
+        {
+            if( xor == 0 )
+            {
+                m_bits.write( 0,
+                              1 );
+                return;
+            }
+
+            int leading = Long.numberOfLeadingZeros( xor ) - ( 64 - width );
+            int trailing = Long.numberOfTrailingZeros( xor );
+            int previous_leading = m_previous_leading[column];
+            int previous_trailing = m_previous_trailing[column];
+            if( ( previous_leading >= 0 ) && ( leading >= previous_leading ) && ( trailing >= previous_trailing ) )
+            {
+                m_bits.write( 0b10,
+                              2 );
+                m_bits.write( xor >>> previous_trailing,
+                              width - previous_leading - previous_trailing );
+                return;
+            }
+
+            int length = width - leading - trailing;
+            m_bits.write( ( ( ( 0b11L << 6 ) | leading ) << 6 ) | ( length - 1 ),
+                          2 + 6 + 6 );
+            m_bits.write( xor >>> trailing,
+                          length );
+            m_previous_leading[column] = leading;
+            m_previous_trailing[column] = trailing;
+        }
+
+        private void end_block()
+                throws IOException
+        {
+            if( m_records == 0 ) return;
+
+            m_bits.finish();
+            m_block_header.clear();
+            m_block_header.putInt( m_records )
+                          .putLong( m_first_time )
+                          .putLong( ( m_first_time == History_store.NO_TIME ) ? History_store.NO_TIME : m_last_time )
+                          .putInt( m_bits.m_count );
+            m_output.write( m_block_header.array() );
+            m_output.write( m_bits.m_buffer,
+                            0,
+                            m_bits.m_count );
+
+            m_bits.m_count = 0;
+            m_records = 0;
+        }
+    }
+
+    /**
+     * Reads the records of a compressed segment.
+     */
+    public static final class Decoder implements Closeable
+    {
+        private final InputStream m_input;
+        private final History_store.Column[] m_columns;
+        private final Bit_input m_bits = new Bit_input();
+        private final ByteBuffer m_block_header = ByteBuffer.allocate( BLOCK_HEADER_SIZE )
+                                                            .order( ByteOrder.LITTLE_ENDIAN );
+
+        private final long[] m_previous_values;
+        private final int[] m_previous_leading;
+        private final int[] m_previous_trailing;
+        private final double[] m_values;
+        private long m_previous_time;
+        private long m_previous_delta;
+
+        /**
+         * Reads the segment's header.
+         *
+         * @throws IOException If the input is not a compressed segment.
+         */
+        public Decoder( InputStream input )
+                throws IOException
+        {
+            m_input = input;
+
+            byte[] start = new byte[7];
+            read_fully( start,
+                        start.length );
+            // The store's header follows, with the columns.
+            if( ( start[0] != MAGIC_0 ) || ( start[1] != MAGIC_1 ) || ( start[2] != FORMAT_VERSION )
+                    || ( start[3] != 'W' ) || ( start[4] != 'H' ) || ( start[5] != History_store.FORMAT_VERSION ) )
+            {
+                throw new IOException( "Not a compressed history segment" );
+            }
+
+            m_columns = new History_store.Column[start[6] & 0xFF];
+            History_store.Column.Type[] types = History_store.Column.Type.values();
+            byte[] column = new byte[3];
+            byte[] name = new byte[255];
+            for( int i = 0; i < m_columns.length; i++ )
+            {
+                read_fully( column,
+                            column.length );
+                read_fully( name,
+                            column[2] & 0xFF );
+                if( ( column[0] & 0xFF ) >= types.length ) throw new IOException( "Bad column type" );
+
+                try
+                {
+                    m_columns[i] = new History_store.Column( new String( name,
+                                                                         0,
+                                                                         column[2] & 0xFF,
+                                                                         StandardCharsets.US_ASCII ),
+                                                             types[column[0] & 0xFF],
+                                                             column[1] & 0xFF );
+                }
+                catch( IllegalArgumentException exception )
+                {
+                    throw new IOException( "Bad column: " + exception.getMessage() );
+                }
+            }
+
+            m_previous_values = new long[m_columns.length];
+            m_previous_leading = new int[m_columns.length];
+            m_previous_trailing = new int[m_columns.length];
+            m_values = new double[m_columns.length];
+        }
+
+        /**
+         * @return A copy of the columns, after the timestamp.
+         */
+        public History_store.Column[] get_columns()
+        {
+            return m_columns.clone();
+        }
+
+        /**
+         * Calls the listener with every remaining record, including those without a time.
+         *
+         * @return The number of records read.
+         *
+         * @throws IOException If reading fails or a block is corrupt.
+         */
+        public int read( History_reader.Listener listener )
+                throws IOException
+        {
+            return read( Long.MIN_VALUE,
+                         Long.MAX_VALUE,
+                         false,
+                         listener );
+        }
+
+        /**
+         * Calls the listener with each remaining record whose time is in the range, oldest first, skipping whole
+         * blocks outside it without decoding them. Records are expected in the order of their time.
+         *
+         * @param from_ms  The start of the range, inclusive, in milliseconds since the epoch.
+         * @param until_ms The end of the range, exclusive.
+         * @param listener Called with each record, the values array is reused.
+         *
+         * @return The number of records read.
+         *
+         * @throws IOException If reading fails or a block is corrupt.
+         */
+        public int query( long from_ms,
+                          long until_ms,
+                          History_reader.Listener listener )
+                throws IOException
+        {
+            return read( from_ms,
+                         until_ms,
+                         true,
+                         listener );
+        }
+
+        @Override
+        public void close()
+                throws IOException
+        {
+            m_input.close();
+        }
+
+        private int read( long from_ms,
+                          long until_ms,
+                          boolean timed,
+                          History_reader.Listener listener )
+                throws IOException
+        {
+            int read = 0;
+            while( true )
+            {
+                if( !read_block_header() ) return read;
+
+                int records = m_block_header.getInt( 0 );
+                long first_time = m_block_header.getLong( 4 );
+                long last_time = m_block_header.getLong( 12 );
+                int length = m_block_header.getInt( 20 );
+                if( ( records <= 0 ) || ( length < 0 ) ) throw new IOException( "Corrupt block" );
+
+                if( timed && ( ( first_time == History_store.NO_TIME ) || ( last_time < from_ms ) ) )
+                {
+                    if( !skip_fully( length ) ) return read;
+                    continue;
+                }
+
+                if( timed && ( first_time >= until_ms ) ) return read;
+
+                if( !m_bits.fill( m_input,
+                                  length ) ) return read;
+
+                try
+                {
+                    for( int record = 0; record < records; record++ )
+                    {
+                        long time_ms = read_record( record );
+                        if( !timed
+                                || ( ( time_ms != History_store.NO_TIME ) && ( time_ms >= from_ms )
+                                        && ( time_ms < until_ms ) ) )
+                        {
+                            read++;
+                            if( !listener.record_read( time_ms,
+                                                       m_values ) ) return read;
+                        }
+                    }
+                }
+                catch( ArrayIndexOutOfBoundsException exception )
+                {
+                    throw new IOException( "Corrupt block" );
+                }
+
+                if( timed && ( last_time >= until_ms ) ) return read;
+            }
+        }
+
+        /*
+         * Decodes the record's values into the values array, returning its time.
+         */
+        private long read_record( int record )
+        {
+            long time_ms;
+            if( record == 0 )
+            {
+                time_ms = m_bits.read( 64 );
+                m_previous_delta = 0;
+            }
+            else
+            {
+                m_previous_delta += unzigzag( read_time() );
+                time_ms = m_previous_time + m_previous_delta;
+            }
+
+            m_previous_time = time_ms;
+
+            for( int i = 0; i < m_columns.length; i++ )
+            {
+                History_store.Column column = m_columns[i];
+                int width = column.type.size * 8;
+                long value;
+                if( record == 0 )
+                {
+                    value = m_bits.read( width );
+                    m_previous_leading[i] = -1;
+                }
+                else
+                {
+                    value = m_previous_values[i] ^ read_xor( i,
+                                                             width );
+                }
+
+                m_previous_values[i] = value;
+                m_values[i] = History_store.from_bits( column,
+                                                       ( width == 32 ) ? (int)value : value );
+            }
+
+            return time_ms;
+        }
+
+        private long read_time()
+        {
+            if( m_bits.read( 1 ) == 0 ) return 0;
+            if( m_bits.read( 1 ) == 0 ) return m_bits.read( 7 );
+            if( m_bits.read( 1 ) == 0 ) return m_bits.read( 9 );
+            if( m_bits.read( 1 ) == 0 ) return m_bits.read( 12 );
+
+            return m_bits.read( 64 );
+        }
+
+        private long read_xor( int column,
+                               int width )
+        {
+            if( m_bits.read( 1 ) == 0 ) return 0;
+
+            if( m_bits.read( 1 ) == 0 )
+            {
+                int trailing = m_previous_trailing[column];
+                return m_bits.read( width - m_previous_leading[column] - trailing ) << trailing;
+            }
+
+            int leading = (int)m_bits.read( 6 );
+            int length = (int)m_bits.read( 6 ) + 1;
+            int trailing = width - leading - length;
+            m_previous_leading[column] = leading;
+            m_previous_trailing[column] = trailing;
+            return m_bits.read( length ) << trailing;
+        }
+
+        private boolean read_block_header()
+                throws IOException
+        {
+            byte[] header = m_block_header.array();
+            int count = 0;
+            while( count < header.length )
+            {
+                int read = m_input.read( header,
+                                         count,
+                                         header.length - count );
+                if( read < 0 ) return false;
+
+                count += read;
+            }
+
+            return true;
+        }
+
+        private boolean skip_fully( long count )
+                throws IOException
+        {
+            while( count > 0 )
+            {
+                long skipped = m_input.skip( count );
+                if( skipped <= 0 )
+                {
+                    if( m_input.read() < 0 ) return false;
+
+                    skipped = 1;
+                }
+
+                count -= skipped;
+            }
+
+            return true;
+        }
+
+        private void read_fully( byte[] buffer,
+                                 int length )
+                throws IOException
+        {
+            int count = 0;
+            while( count < length )
+            {
+                int read = m_input.read( buffer,
+                                         count,
+                                         length - count );
+                if( read < 0 ) throw new EOFException( "Compressed history segment is cut short" );
+
+                count += read;
+            }
+        }
+    }
+
+    /**
+     * Compresses the records of a {@link History_store} segment, leaving off a record cut short at its end.
+     *
+     * @param segment The store's segment.
+     * @param output  Where to write the compressed segment, which is not closed.
+     *
+     * @return The number of records compressed.
+     *
+     * @throws IOException If the segment cannot be read or is not a store segment.
+     */
+    public static int compress( Path segment,
+                                OutputStream output )
+            throws IOException
+    {
+        try( FileChannel channel = FileChannel.open( segment,
+                                                     StandardOpenOption.READ ) )
+        {
+            History_store.Column[] columns = History_store.read_header( channel );
+            if( columns == null ) throw new IOException( "Not a history segment: " + segment );
+
+            int header_size = History_store.get_header_size( columns );
+            int record_size = History_store.get_record_size( columns );
+            Encoder encoder = new Encoder( output,
+                                           columns );
+            double[] values = new double[columns.length];
+            ByteBuffer buffer = ByteBuffer.allocate( record_size * 256 )
+                                          .order( ByteOrder.LITTLE_ENDIAN );
+
+            int records = 0;
+            long position = header_size;
+            long end = channel.size() - ( ( channel.size() - header_size ) % record_size );
+            while( position < end )
+            {
+                buffer.clear();
+                buffer.limit( (int)Math.min( buffer.capacity(),
+                                             end - position ) );
+                while( buffer.hasRemaining() )
+                {
+                    if( channel.read( buffer,
+                                      position + buffer.position() ) < 0 ) break;
+                }
+
+                buffer.flip();
+                position += buffer.limit();
+                while( buffer.remaining() >= record_size )
+                {
+                    long time_ms = buffer.getLong();
+                    for( int i = 0; i < columns.length; i++ )
+                    {
+                        values[i] = History_store.get_value( columns[i],
+                                                             buffer );
+                    }
+
+                    encoder.append( time_ms,
+                                    values );
+                    records++;
+                }
+            }
+
+            encoder.flush();
+            return records;
+        }
+    }
+
+    /**
+     * Reads the times of a compressed segment's first and last records that have one, from its block headers alone.
+     * A block cut short at the end is left out.
+     *
+     * @param segment The compressed segment.
+     *
+     * @return The first and last times, {@link History_store#NO_TIME} if there are none.
+     *
+     * @throws IOException If the segment cannot be read or is not a compressed segment.
+     */
+    static long[] read_time_bounds( Path segment )
+            throws IOException
+    {
+        long[] bounds = { History_store.NO_TIME, History_store.NO_TIME };
+        try( FileChannel channel = FileChannel.open( segment,
+                                                     StandardOpenOption.READ ) )
+        {
+            // The decoder reads exactly the header from the unbuffered channel, leaving it at the first block.
+            new Decoder( Channels.newInputStream( channel ) );
+
+            long size = channel.size();
+            long position = channel.position();
+            ByteBuffer header = ByteBuffer.allocate( BLOCK_HEADER_SIZE )
+                                          .order( ByteOrder.LITTLE_ENDIAN );
+            while( ( position + BLOCK_HEADER_SIZE ) <= size )
+            {
+                header.clear();
+                while( header.hasRemaining() )
+                {
+                    if( channel.read( header,
+                                      position + header.position() ) < 0 ) return bounds;
+                }
+
+                long first_time = header.getLong( 4 );
+                long last_time = header.getLong( 12 );
+                position += BLOCK_HEADER_SIZE + ( header.getInt( 20 ) & 0xFFFFFFFFL );
+                if( position > size ) break;
+
+                if( first_time != History_store.NO_TIME )
+                {
+                    if( bounds[0] == History_store.NO_TIME ) bounds[0] = first_time;
+                    bounds[1] = last_time;
+                }
+            }
+        }
+
+        return bounds;
+    }
+
+    private static long zigzag( long value )
+    {
+        return ( value << 1 ) ^ ( value >> 63 );
+    }
+
+    private static long unzigzag( long value )
+    {
+        return ( value >>> 1 ) ^ -( value & 1 );
+    }
+
+    private static long mask( int bits )
+    {
+        return ( bits == 64 ) ? -1L : ( ( 1L << bits ) - 1 );
+    }
+
+    /*
+     * Bits written most significant first into a growing buffer.
+     */
+    private static final class Bit_output
+    {
+        byte[] m_buffer = new byte[4 * 1024];
+        int m_count = 0;
+        private long m_bits = 0;
+        private int m_bit_count = 0;
+
+        /*
+         * Writes the low bits of the value.
+         */
+        void write( long value,
+                    int bits )
+        {
+            if( bits > 32 )
+            {
+                write( value >>> 32,
+                       bits - 32 );
+                bits = 32;
+            }
+
+            m_bits = ( m_bits << bits ) | ( value & mask( bits ) );
+            m_bit_count += bits;
+            while( m_bit_count >= 8 )
+            {
+                m_bit_count -= 8;
+                if( m_count == m_buffer.length ) m_buffer = Arrays.copyOf( m_buffer,
+                                                                           m_buffer.length * 2 );
+                m_buffer[m_count++] = (byte)( m_bits >>> m_bit_count );
+            }
+        }
+
+        /*
+         * Pads the last byte with zeros.
+         */
+        void finish()
+        {
+            if( m_bit_count > 0 )
+            {
+                write( 0,
+                       8 - m_bit_count );
+            }
+
+            m_bits = 0;
+        }
+    }
+
+    /*
+     * Bits read most significant first from a block.
+     */
+    private static final class Bit_input
+    {
+        private byte[] m_buffer = new byte[4 * 1024];
+        private int m_length = 0;
+        private int m_position = 0;
+        private long m_bits = 0;
+        private int m_bit_count = 0;
+
+        /*
+         * Reads the block, returning false if the input ends first.
+         */
+        boolean fill( InputStream input,
+                      int length )
+                throws IOException
+        {
+            if( m_buffer.length < length ) m_buffer = new byte[Math.max( length,
+                                                                         m_buffer.length * 2 )];
+
+            int count = 0;
+            while( count < length )
+            {
+                int read = input.read( m_buffer,
+                                       count,
+                                       length - count );
+                if( read < 0 ) return false;
+
+                count += read;
+            }
+
+            m_length = length;
+            m_position = 0;
+            m_bits = 0;
+            m_bit_count = 0;
+            return true;
+        }
+
+        long read( int bits )
+        {
+            if( bits > 32 )
+            {
+                long high = read( bits - 32 );
+                return ( high << 32 ) | read( 32 );
+            }
+
+            while( m_bit_count < bits )
+            {
+                if( m_position == m_length ) throw new ArrayIndexOutOfBoundsException( "Past the end of the block" );
+
+                m_bits = ( m_bits << 8 ) | ( m_buffer[m_position++] & 0xFF );
+                m_bit_count += 8;
+            }
+
+            m_bit_count -= bits;
+            return ( m_bits >>> m_bit_count ) & mask( bits );
+        }
+    }
+}
@@ -2,6 +2,10 @@ package net.ddns.rkdawenterprises.rkdawe_api_common;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.time.ZoneId;
@@ -11,9 +15,6 @@ import java.util.List;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.TypeAdapter;
-import com.google.gson.stream.JsonReader;
-import com.google.gson.stream.JsonWriter;
 
 public final class Directory_listing
 {
@@ -25,6 +26,23 @@ public final class Directory_listing
         public ZonedDateTime m_creation_time;
         public ZonedDateTime m_last_access_time;
 
+        File_info()
+        {
+        }
+
+        File_info( String name,
+                   long size,
+                   ZonedDateTime last_modified_time,
+                   ZonedDateTime creation_time,
+                   ZonedDateTime last_access_time )
+        {
+            m_name = name;
+            m_size = size;
+            m_last_modified_time = last_modified_time;
+            m_creation_time = creation_time;
+            m_last_access_time = last_access_time;
+        }
+
         File_info( File file ) throws IOException
         {
             BasicFileAttributes attributes = Files.readAttributes( file.toPath(),
@@ -52,7 +70,10 @@ public final class Directory_listing
     public static final String WEATHER_HISTORY_PATH = WEATHER_HISTORY_DIRECTORY + WEATHER_HISTORY_FILENAME;
     public static final int MAX_HISTORY_FILE_SIZE_KiB = 6 * 1024;
     public static final int MAX_HISTORY_FILES = 10;
+    public static final String WEATHER_HISTORY_SEGMENT_PREFIX = "weather_history";
+    public static final String WEATHER_HISTORY_SEGMENT_SUFFIX = ".bin";
     public static final String COMPRESSED_WEATHER_HISTORY_FILENAME = "weather_history";
+    public static final String COMPRESSED_WEATHER_HISTORY_SUFFIX = ".whz";
 
     List< Directory_listing.File_info > m_file_list = new ArrayList< Directory_listing.File_info >( 16 );
 
@@ -61,24 +82,12 @@ public final class Directory_listing
         m_file_list.add( new File_info( file ) );
     }
 
-    public static final Gson m_GSON = new GsonBuilder().registerTypeAdapter( ZonedDateTime.class,
-                                                                             new TypeAdapter< ZonedDateTime >()
-                                                                             {
-                                                                                 @Override
-                                                                                 public void write( JsonWriter out,
-                                                                                                    ZonedDateTime value )
-                                                                                         throws IOException
-                                                                                 {
-                                                                                     out.value( value.toString() );
-                                                                                 }
-
-                                                                                 @Override
-                                                                                 public ZonedDateTime read( JsonReader in )
-                                                                                         throws IOException
-                                                                                 {
-                                                                                     return ZonedDateTime.parse( in.nextString() );
-                                                                                 }
-                                                                             } )
+    void add_file( File_info info )
+    {
+        m_file_list.add( info );
+    }
+
+    public static final Gson m_GSON = JSON_type_adapters.register( new GsonBuilder() )
                                                        .enableComplexMapKeySerialization()
                                                        .disableHtmlEscaping()
                                                        .setPrettyPrinting()
@@ -91,19 +100,38 @@ public final class Directory_listing
 
     public static Directory_listing deserialize_from_JSON( String string_JSON )
     {
-        Directory_listing object = null;
-        try
-        {
-            object = m_GSON.fromJson( string_JSON,
-                                      Directory_listing.class );
-        }
-        catch( com.google.gson.JsonSyntaxException exception )
-        {
-            System.out.println( "Bad data format for File_info: " + exception );
-            System.out.println( ">>>" + string_JSON + "<<<" );
-        }
+        return JSON_deserializer.read( m_GSON,
+                                       Directory_listing.class,
+                                       string_JSON );
+    }
 
-        return object;
+    /**
+     * Reads the JSON straight from the reader, up to the end of the document. The reader is not closed.
+     *
+     * @return The object, or null if the JSON is empty or bad, which is reported without the data.
+     *
+     * @throws IOException If reading fails.
+     */
+    public static Directory_listing deserialize_from_JSON( Reader input )
+            throws IOException
+    {
+        return JSON_deserializer.read( m_GSON,
+                                       Directory_listing.class,
+                                       input );
+    }
+
+    /**
+     * Reads the UTF-8 JSON straight from the stream, up to the end of the document. The stream is not closed.
+     *
+     * @return The object, or null if the JSON is empty or bad, which is reported without the data.
+     *
+     * @throws IOException If reading fails.
+     */
+    public static Directory_listing deserialize_from_JSON( InputStream input )
+            throws IOException
+    {
+        return deserialize_from_JSON( new InputStreamReader( input,
+                                                             StandardCharsets.UTF_8 ) );
     }
 
     public String serialize_to_JSON()
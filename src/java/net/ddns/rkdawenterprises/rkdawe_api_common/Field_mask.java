@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2024 RKDAW Enterprises and Ralph Williamson.
+ *       email: rkdawenterprises@gmail.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ddns.rkdawenterprises.rkdawe_api_common;
+
+import java.util.Arrays;
+
+/**
+ * A set of {@link Weather_data.Field}s, one bit per field by {@link Weather_data.Field#tag}, such as the fields
+ * changed by a packet.
+ * <p>
+ * Not thread safe.
+ */
+@SuppressWarnings("unused")
+public final class Field_mask
+{
+    private final long[] m_bits = new long[( Weather_data.Field.get_max_tag() + 64 ) / 64];
+
+    public Field_mask()
+    {
+    }
+
+    public static Field_mask of( Weather_data.Field... fields )
+    {
+        Field_mask mask = new Field_mask();
+        for( Weather_data.Field field : fields )
+        {
+            mask.set( field );
+        }
+
+        return mask;
+    }
+
+    public void set( Weather_data.Field field )
+    {
+        m_bits[field.tag >>> 6] |= 1L << field.tag;
+    }
+
+    public boolean get( Weather_data.Field field )
+    {
+        return( m_bits[field.tag >>> 6] & ( 1L << field.tag ) ) != 0;
+    }
+
+    public void clear()
+    {
+        Arrays.fill( m_bits,
+                     0 );
+    }
+
+    public boolean is_empty()
+    {
+        for( long bits : m_bits )
+        {
+            if( bits != 0 ) return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Adds the fields of the given mask to this one.
+     */
+    public void or( Field_mask other )
+    {
+        for( int i = 0; i < m_bits.length; i++ )
+        {
+            m_bits[i] |= other.m_bits[i];
+        }
+    }
+
+    /**
+     * @return True if any field is in both masks, such as a change to a field a subscriber cares about.
+     */
+    public boolean intersects( Field_mask other )
+    {
+        for( int i = 0; i < m_bits.length; i++ )
+        {
+            if( ( m_bits[i] & other.m_bits[i] ) != 0 ) return true;
+        }
+
+        return false;
+    }
+
+    public void copy_from( Field_mask other )
+    {
+        System.arraycopy( other.m_bits,
+                          0,
+                          m_bits,
+                          0,
+                          m_bits.length );
+    }
+
+    public int get_number_of_fields_set()
+    {
+        int count = 0;
+        for( long bits : m_bits )
+        {
+            count += Long.bitCount( bits );
+        }
+
+        return count;
+    }
+
+    /**
+     * Iterates the fields in the mask, in tag order:
+     * {@code for( Field field = mask.next( null ); field != null; field = mask.next( field ) )}
+     *
+     * @param previous The previous field, or null to start.
+     *
+     * @return The next field in the mask after the previous one, or null if none.
+     */
+    public Weather_data.Field next( Weather_data.Field previous )
+    {
+        int from = ( previous == null ) ? 0 : previous.tag + 1;
+        int word = from >>> 6;
+        if( word >= m_bits.length ) return null;
+
+        long bits = m_bits[word] & ( -1L << from );
+        while( true )
+        {
+            if( bits != 0 ) return Weather_data.Field.for_tag( ( word * 64 ) + Long.numberOfTrailingZeros( bits ) );
+            if( ++word == m_bits.length ) return null;
+
+            bits = m_bits[word];
+        }
+    }
+
+    @Override
+    public boolean equals( Object object )
+    {
+        return( object instanceof Field_mask ) && Arrays.equals( m_bits,
+                                                                 ( (Field_mask)object ).m_bits );
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Arrays.hashCode( m_bits );
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder string = new StringBuilder( "[" );
+        for( Weather_data.Field field = next( null ); field != null; field = next( field ) )
+        {
+            if( string.length() > 1 ) string.append( ", " );
+            string.append( field.json_name );
+        }
+
+        return string.append( "]" )
+                     .toString();
+    }
+}
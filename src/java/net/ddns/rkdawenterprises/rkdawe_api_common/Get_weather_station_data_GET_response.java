@@ -16,15 +16,50 @@
 
 package net.ddns.rkdawenterprises.rkdawe_api_common;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 
 public class Get_weather_station_data_GET_response
 {
+    /**
+     * The full weather data, or null if this is a delta.
+     */
     public Weather_data weather_data;
     public String success;
 
-    public static final Gson m_GSON = new GsonBuilder().disableHtmlEscaping()
+    /**
+     * The epoch of the version, to send back with {@link API_paths#SINCE_EPOCH_PARAMETER}. It changes whenever the
+     * versions start over, such as when the server restarts. Null from servers without deltas.
+     */
+    public String epoch;
+
+    /**
+     * The version of the weather data, for asking for a delta with {@link API_paths#SINCE_VERSION_PARAMETER} next
+     * time. Null from servers without deltas.
+     */
+    public Long version;
+
+    /**
+     * If this is a delta, the version it was made from, which is the one the client sent.
+     */
+    public Long base_version;
+
+    /**
+     * If this is a delta, the fields that changed since the base version, by their JSON names.
+     */
+    public JsonObject delta;
+
+    public static final Gson m_GSON = JSON_type_adapters.register( new GsonBuilder() )
+            .disableHtmlEscaping()
             .setPrettyPrinting()
             .create();
 
@@ -35,19 +70,38 @@ public class Get_weather_station_data_GET_response
 
     public static Get_weather_station_data_GET_response deserialize_from_JSON( String string_JSON )
     {
-        Get_weather_station_data_GET_response object = null;
-        try
-        {
-            object = m_GSON.fromJson( string_JSON,
-                    Get_weather_station_data_GET_response.class );
-        }
-        catch( com.google.gson.JsonSyntaxException exception )
-        {
-            System.out.println( "Bad data format for Get_weather_station_data_GET_response: " + exception );
-            System.out.println( ">>>" + string_JSON + "<<<" );
-        }
+        return JSON_deserializer.read( m_GSON,
+                                       Get_weather_station_data_GET_response.class,
+                                       string_JSON );
+    }
+
+    /**
+     * Reads the JSON straight from the reader, up to the end of the document. The reader is not closed.
+     *
+     * @return The object, or null if the JSON is empty or bad, which is reported without the data.
+     *
+     * @throws IOException If reading fails.
+     */
+    public static Get_weather_station_data_GET_response deserialize_from_JSON( Reader input )
+            throws IOException
+    {
+        return JSON_deserializer.read( m_GSON,
+                                       Get_weather_station_data_GET_response.class,
+                                       input );
+    }
 
-        return object;
+    /**
+     * Reads the UTF-8 JSON straight from the stream, up to the end of the document. The stream is not closed.
+     *
+     * @return The object, or null if the JSON is empty or bad, which is reported without the data.
+     *
+     * @throws IOException If reading fails.
+     */
+    public static Get_weather_station_data_GET_response deserialize_from_JSON( InputStream input )
+            throws IOException
+    {
+        return deserialize_from_JSON( new InputStreamReader( input,
+                                                             StandardCharsets.UTF_8 ) );
     }
 
     @SuppressWarnings("unused")
@@ -55,4 +109,49 @@ public class Get_weather_station_data_GET_response
     {
         return serialize_to_JSON( this );
     }
+
+    public boolean is_delta()
+    {
+        return ( weather_data == null ) && ( delta != null );
+    }
+
+    /**
+     * Brings the client's copy of the weather data up to date with this response. Fields in the delta that this
+     * version of the library does not know are ignored.
+     *
+     * @param current The client's copy of the weather data, which must be of the base version if this is a delta.
+     *                It is updated in place. May be null if this is not a delta.
+     *
+     * @return The up to date weather data, the full weather data of this response if it has it.
+     *
+     * @throws IllegalArgumentException If this is a delta and there is no weather data to apply it to.
+     */
+    @SuppressWarnings("unused")
+    public Weather_data merge_into( Weather_data current )
+            throws IllegalArgumentException
+    {
+        if( weather_data != null ) return weather_data;
+        if( delta == null ) return current;
+        if( current == null ) throw new IllegalArgumentException( "No weather data to apply the delta to" );
+
+        for( Map.Entry< String, JsonElement > entry : delta.entrySet() )
+        {
+            Weather_data.Field field = Weather_data.Field.for_json_name( entry.getKey() );
+            if( field == null ) continue;
+
+            JsonElement value = entry.getValue();
+            if( field.is_string() )
+            {
+                field.set_string( current,
+                        value.isJsonNull() ? null : value.getAsString() );
+            }
+            else
+            {
+                field.set_number( current,
+                        value.getAsDouble() );
+            }
+        }
+
+        return current;
+    }
 }
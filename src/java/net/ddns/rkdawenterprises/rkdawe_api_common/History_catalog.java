@@ -0,0 +1,537 @@
+/*
+ * Copyright (c) 2024 RKDAW Enterprises and Ralph Williamson.
+ *       email: rkdawenterprises@gmail.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ddns.rkdawenterprises.rkdawe_api_common;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.regex.Pattern;
+
+/**
+ * The segments of a {@link History_store}, with their sizes and time bounds, kept in memory. The directory is listed
+ * and the segments read once, when the catalog is made. After that the store tells the catalog of each append, new
+ * segment and deleted segment, so rotating and expiring segments, reading them and listing them never go back to the
+ * file system. A store and its readers in one process share a catalog.
+ * <p>
+ * A catalog of segments written by another process sees new records only when {@link #poll()} or
+ * {@link #refresh()} is called.
+ * <p>
+ * Compressed segments, prefix_N.whz, are listed with the others. Their time bounds come from their block headers.
+ * <p>
+ * Thread safe.
+ */
+@SuppressWarnings("unused")
+public class History_catalog
+{
+    /**
+     * A segment as it was when {@link #get_segments()} was called.
+     */
+    public static final class Segment
+    {
+        public final Path path;
+        public final long sequence;
+        public final long size;
+
+        /**
+         * The times of the first and last records with one, {@link History_store#NO_TIME} if there are none.
+         */
+        public final long first_time;
+        public final long last_time;
+
+        public final long creation_time_ms;
+        public final long last_modified_time_ms;
+
+        /**
+         * True if the segment is a {@link Compressed_history_segment}.
+         */
+        public final boolean compressed;
+
+        Segment( Entry entry )
+        {
+            path = entry.path;
+            compressed = entry.compressed;
+            sequence = entry.sequence;
+            size = entry.size;
+            first_time = entry.first_time;
+            last_time = entry.last_time;
+            creation_time_ms = entry.creation_time_ms;
+            last_modified_time_ms = entry.last_modified_time_ms;
+        }
+    }
+
+    /*
+     * The catalog's own, changing, record of a segment.
+     */
+    private static final class Entry
+    {
+        Path path;
+        boolean compressed;
+        final long sequence;
+        final long creation_time_ms;
+        long size;
+        long first_time = History_store.NO_TIME;
+        long last_time = History_store.NO_TIME;
+        long last_modified_time_ms;
+
+        Entry( Path path,
+               long sequence,
+               long creation_time_ms )
+        {
+            this.path = path;
+            compressed = History_store.is_compressed( path );
+            this.sequence = sequence;
+            this.creation_time_ms = creation_time_ms;
+            last_modified_time_ms = creation_time_ms;
+        }
+    }
+
+    private final Path m_directory;
+    private final String m_prefix;
+    private final Pattern m_segment_pattern;
+
+    private ArrayDeque< Entry > m_segments = new ArrayDeque< Entry >();
+    private long m_next_sequence = 0;
+    private long m_total_size = 0;
+
+    /*
+     * Changes with each change to the catalog, so a reader can tell if it needs to look again.
+     */
+    private long m_version = 0;
+
+    /**
+     * Lists the directory and reads the segments.
+     *
+     * @param directory The directory of the segments, which is created if needed.
+     * @param prefix    The start of the segment file names.
+     *
+     * @throws IOException If the directory cannot be read or created.
+     */
+    public History_catalog( Path directory,
+                            String prefix )
+            throws IOException
+    {
+        m_directory = directory;
+        m_prefix = prefix;
+        m_segment_pattern = History_store.segment_pattern( prefix );
+
+        Files.createDirectories( directory );
+        refresh();
+    }
+
+    public Path get_directory()
+    {
+        return m_directory;
+    }
+
+    public String get_prefix()
+    {
+        return m_prefix;
+    }
+
+    /**
+     * Lists the directory and reads the segments again, for when something other than the store has changed them.
+     */
+    public synchronized void refresh()
+            throws IOException
+    {
+        ArrayDeque< Entry > segments = new ArrayDeque< Entry >();
+        long total_size = 0;
+        long next_sequence = m_next_sequence;
+        for( Path path : History_store.list_segments( m_directory,
+                                                      m_prefix ) )
+        {
+            Entry entry = read_entry( path );
+            if( entry == null ) continue;
+
+            // A crash while compressing can leave both forms of a segment, the compressed one is whole.
+            Entry previous = segments.peekLast();
+            if( ( previous != null ) && ( previous.sequence == entry.sequence ) )
+            {
+                if( !entry.compressed ) continue;
+
+                segments.pollLast();
+                total_size -= previous.size;
+            }
+
+            segments.addLast( entry );
+            total_size += entry.size;
+            next_sequence = Math.max( next_sequence,
+                                      entry.sequence + 1 );
+        }
+
+        m_segments = segments;
+        m_total_size = total_size;
+        m_next_sequence = next_sequence;
+        m_version++;
+    }
+
+    /**
+     * Catches up with a store in another process by looking only at the newest segment and for the one after it.
+     * Falls back to {@link #refresh()} if a segment was started, the one before the newest compressed, or the oldest
+     * deleted.
+     */
+    public synchronized void poll()
+            throws IOException
+    {
+        Entry newest = m_segments.peekLast();
+        if( ( newest == null ) || Files.exists( path_of( m_next_sequence ) )
+                || !Files.exists( m_segments.peekFirst().path ) || was_compressed( before_newest() ) )
+        {
+            refresh();
+            return;
+        }
+
+        long size = Files.size( newest.path );
+        if( size != newest.size )
+        {
+            Entry entry = read_entry( newest.path );
+            if( entry == null ) return;
+
+            m_segments.pollLast();
+            m_segments.addLast( entry );
+            m_total_size += entry.size - newest.size;
+            m_version++;
+        }
+    }
+
+    /**
+     * @return The segments, oldest first.
+     */
+    public synchronized Segment[] get_segments()
+    {
+        Segment[] segments = new Segment[m_segments.size()];
+        int i = 0;
+        for( Entry entry : m_segments )
+        {
+            segments[i++] = new Segment( entry );
+        }
+
+        return segments;
+    }
+
+    /**
+     * @return The newest segment, or null if there are none.
+     */
+    public synchronized Segment get_newest()
+    {
+        Entry newest = m_segments.peekLast();
+        return ( newest == null ) ? null : new Segment( newest );
+    }
+
+    public synchronized int get_segment_count()
+    {
+        return m_segments.size();
+    }
+
+    /**
+     * @return The size of all of the segments, in bytes.
+     */
+    public synchronized long get_total_size()
+    {
+        return m_total_size;
+    }
+
+    /**
+     * @return The time of the oldest record with one, or {@link History_store#NO_TIME} if there are none.
+     */
+    public synchronized long get_first_time()
+    {
+        for( Entry entry : m_segments )
+        {
+            if( entry.first_time != History_store.NO_TIME ) return entry.first_time;
+        }
+
+        return History_store.NO_TIME;
+    }
+
+    /**
+     * @return The time of the newest record with one, or {@link History_store#NO_TIME} if there are none.
+     */
+    public synchronized long get_last_time()
+    {
+        for( Iterator< Entry > iterator = m_segments.descendingIterator(); iterator.hasNext(); )
+        {
+            Entry entry = iterator.next();
+            if( entry.last_time != History_store.NO_TIME ) return entry.last_time;
+        }
+
+        return History_store.NO_TIME;
+    }
+
+    /**
+     * Adds the segments to the listing, from memory.
+     */
+    public synchronized void add_to( Directory_listing listing )
+    {
+        for( Entry entry : m_segments )
+        {
+            ZonedDateTime last_modified_time = to_UTC( entry.last_modified_time_ms );
+            listing.add_file( new Directory_listing.File_info( entry.path.getFileName()
+                                                                         .toString(),
+                                                               entry.size,
+                                                               last_modified_time,
+                                                               to_UTC( entry.creation_time_ms ),
+                                                               last_modified_time ) );
+        }
+    }
+
+    /**
+     * @return A listing of the segments, from memory.
+     */
+    public Directory_listing get_directory_listing()
+    {
+        Directory_listing listing = new Directory_listing();
+        add_to( listing );
+        return listing;
+    }
+
+    /**
+     * Changes with each change to the catalog.
+     */
+    synchronized long get_version()
+    {
+        return m_version;
+    }
+
+    /**
+     * @return The path the next segment is to have.
+     */
+    synchronized Path get_next_path()
+    {
+        return path_of( m_next_sequence );
+    }
+
+    /**
+     * @return The path of the compressed form of the segment.
+     */
+    Path get_compressed_path( long sequence )
+    {
+        return m_directory.resolve( m_prefix + "_" + sequence + History_store.COMPRESSED_SEGMENT_SUFFIX );
+    }
+
+    /**
+     * Adds the segment the store has just made at {@link #get_next_path()}.
+     *
+     * @param size The size of its header.
+     */
+    synchronized void segment_created( long size )
+    {
+        Entry entry = new Entry( path_of( m_next_sequence ),
+                                 m_next_sequence,
+                                 System.currentTimeMillis() );
+        entry.size = size;
+        m_segments.addLast( entry );
+        m_next_sequence++;
+        m_total_size += size;
+        m_version++;
+    }
+
+    /**
+     * Records the new size of the newest segment, and the time of its newest record.
+     *
+     * @param size    The size of the segment.
+     * @param time_ms The time of the record written, or {@link History_store#NO_TIME} if it has none or none was
+     *                written.
+     */
+    synchronized void segment_written( long size,
+                                       long time_ms )
+    {
+        Entry newest = m_segments.peekLast();
+        if( newest == null ) return;
+
+        m_total_size += size - newest.size;
+        newest.size = size;
+        newest.last_modified_time_ms = System.currentTimeMillis();
+        if( time_ms != History_store.NO_TIME )
+        {
+            if( newest.first_time == History_store.NO_TIME ) newest.first_time = time_ms;
+            newest.last_time = time_ms;
+        }
+
+        m_version++;
+    }
+
+    /**
+     * Replaces the segment with its compressed form, which the store has just written.
+     *
+     * @param sequence The sequence number of the segment.
+     * @param path     The compressed segment.
+     * @param size     Its size.
+     */
+    synchronized void segment_compressed( long sequence,
+                                          Path path,
+                                          long size )
+    {
+        for( Entry entry : m_segments )
+        {
+            if( entry.sequence != sequence ) continue;
+
+            m_total_size += size - entry.size;
+            entry.path = path;
+            entry.compressed = true;
+            entry.size = size;
+            entry.last_modified_time_ms = System.currentTimeMillis();
+            m_version++;
+            return;
+        }
+    }
+
+    /**
+     * Deletes the oldest segments, in either form, until the total size is within the budget. The newest segment is
+     * always kept.
+     *
+     * @param max_total_size The most bytes to keep.
+     */
+    synchronized void expire( long max_total_size )
+            throws IOException
+    {
+        while( ( m_total_size > max_total_size ) && ( m_segments.size() > 1 ) )
+        {
+            Entry oldest = m_segments.pollFirst();
+            m_total_size -= oldest.size;
+            m_version++;
+            Files.deleteIfExists( path_of( oldest.sequence ) );
+            Files.deleteIfExists( get_compressed_path( oldest.sequence ) );
+        }
+    }
+
+    private Path path_of( long sequence )
+    {
+        return m_directory.resolve( m_prefix + "_" + sequence + History_store.SEGMENT_SUFFIX );
+    }
+
+    /*
+     * The segment before the newest, or null if there is none.
+     */
+    private Entry before_newest()
+    {
+        Iterator< Entry > iterator = m_segments.descendingIterator();
+        iterator.next();
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    /*
+     * True if the segment is not compressed in the catalog but has been on disk, by a store in another process.
+     */
+    private boolean was_compressed( Entry entry )
+    {
+        return ( entry != null ) && !entry.compressed && !Files.exists( entry.path );
+    }
+
+    /*
+     * Reads the size, times and time bounds of a segment, compressed or not, or returns null if it has gone.
+     */
+    private Entry read_entry( Path path )
+            throws IOException
+    {
+        try( FileChannel channel = FileChannel.open( path,
+                                                     StandardOpenOption.READ ) )
+        {
+            BasicFileAttributes attributes = Files.readAttributes( path,
+                                                                   BasicFileAttributes.class );
+            Entry entry = new Entry( path,
+                                     History_store.get_sequence( path,
+                                                                 m_segment_pattern ),
+                                     attributes.creationTime()
+                                               .toMillis() );
+            entry.size = channel.size();
+            entry.last_modified_time_ms = attributes.lastModifiedTime()
+                                                    .toMillis();
+
+            if( entry.compressed )
+            {
+                try
+                {
+                    long[] bounds = Compressed_history_segment.read_time_bounds( path );
+                    entry.first_time = bounds[0];
+                    entry.last_time = bounds[1];
+                }
+                catch( NoSuchFileException exception )
+                {
+                    throw exception;
+                }
+                catch( IOException exception )
+                {
+                    // Not a compressed segment after all, it is listed without times.
+                }
+
+                return entry;
+            }
+
+            History_store.Column[] columns = History_store.read_header( channel );
+            if( columns == null ) return entry;
+
+            int header_size = History_store.get_header_size( columns );
+            int record_size = History_store.get_record_size( columns );
+            long count = Math.max( 0,
+                                   ( entry.size - header_size ) / record_size );
+            ByteBuffer time = ByteBuffer.allocate( 8 )
+                                        .order( ByteOrder.LITTLE_ENDIAN );
+            for( long i = 0; ( i < count ) && ( entry.first_time == History_store.NO_TIME ); i++ )
+            {
+                entry.first_time = read_time( channel,
+                                              header_size + ( i * record_size ),
+                                              time );
+            }
+
+            for( long i = count - 1; ( i >= 0 ) && ( entry.last_time == History_store.NO_TIME ); i-- )
+            {
+                entry.last_time = read_time( channel,
+                                             header_size + ( i * record_size ),
+                                             time );
+            }
+
+            return entry;
+        }
+        catch( NoSuchFileException exception )
+        {
+            return null;
+        }
+    }
+
+    private static long read_time( FileChannel channel,
+                                   long position,
+                                   ByteBuffer time )
+            throws IOException
+    {
+        time.clear();
+        while( time.hasRemaining() )
+        {
+            if( channel.read( time,
+                              position + time.position() ) < 0 ) return History_store.NO_TIME;
+        }
+
+        return time.getLong( 0 );
+    }
+
+    private static ZonedDateTime to_UTC( long time_ms )
+    {
+        return Instant.ofEpochMilli( time_ms )
+                      .atZone( ZoneId.of( "UTC" ) );
+    }
+}
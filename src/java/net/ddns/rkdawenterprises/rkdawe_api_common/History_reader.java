@@ -0,0 +1,469 @@
+/*
+ * Copyright (c) 2024 RKDAW Enterprises and Ralph Williamson.
+ *       email: rkdawenterprises@gmail.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ddns.rkdawenterprises.rkdawe_api_common;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads time ranges of the records of a {@link History_store} from its memory-mapped segments. The first record of a
+ * range is found by binary search on the timestamps, and only the records in the range are read, so a query costs
+ * the size of its result, not of the whole history.
+ * <p>
+ * Records are expected in the order of their time, as the store appends them. Records without a time are skipped.
+ * Segments whose columns differ from the reader's are ignored.
+ * <p>
+ * Compressed segments are not mapped, they are decoded from the first block that can hold the start of the range,
+ * see {@link Compressed_history_segment.Decoder#query(long, long, Listener)}.
+ * <p>
+ * Segments are found through a {@link History_catalog}. A reader sharing the store's catalog sees its appends without
+ * going to the file system, a reader of a store in another process polls its own catalog on each query.
+ * <p>
+ * Thread safe.
+ */
+@SuppressWarnings("unused")
+public class History_reader implements Closeable
+{
+    public interface Listener
+    {
+        /**
+         * Called for each record in the range, oldest first. The values array is reused, it is only valid for the
+         * duration of the call.
+         *
+         * @param time_ms The timestamp, in milliseconds since the epoch.
+         * @param values  The value of each column, with {@link Double#MAX_VALUE} for no data.
+         *
+         * @return True to continue, false to stop the query.
+         */
+        boolean record_read( long time_ms,
+                             double[] values );
+    }
+
+    /*
+     * A mapped segment, in the order of its sequence number. A segment with other columns has no buffer, nor does a
+     * compressed one, which is decoded from its path.
+     */
+    private static final class Segment
+    {
+        final long sequence;
+        final Path path;
+        final boolean compressed;
+        final MappedByteBuffer buffer;
+        final long size;
+        final int count;
+        final long last_time;
+
+        Segment( long sequence,
+                 Path path,
+                 boolean compressed,
+                 MappedByteBuffer buffer,
+                 long size,
+                 int count,
+                 long last_time )
+        {
+            this.sequence = sequence;
+            this.path = path;
+            this.compressed = compressed;
+            this.buffer = buffer;
+            this.size = size;
+            this.count = count;
+            this.last_time = last_time;
+        }
+    }
+
+    private final History_catalog m_catalog;
+    private final boolean m_owns_catalog;
+    private final History_store.Column[] m_columns;
+    private final int m_header_size;
+    private final int m_record_size;
+    private final double[] m_values;
+
+    private List< Segment > m_segments = new ArrayList< Segment >();
+    private long m_catalog_version = -1;
+
+    /**
+     * Opens a reader of the store of {@link Weather_data#get_history_record_columns()} in
+     * {@link Directory_listing#WEATHER_HISTORY_DIRECTORY}.
+     */
+    public static History_reader open_weather_history()
+            throws IOException
+    {
+        return new History_reader( Path.of( Directory_listing.WEATHER_HISTORY_DIRECTORY ),
+                                   History_store.HISTORY_PREFIX,
+                                   History_store.get_history_columns() );
+    }
+
+    /**
+     * A reader with its own catalog, for a store in another process. Each query polls the catalog, which looks
+     * only at the size of the newest segment and for the segment after it.
+     *
+     * @param directory The directory of the store's segments.
+     * @param prefix    The start of the segment file names.
+     * @param columns   The columns of the records, after the timestamp.
+     *
+     * @throws IOException If the segments cannot be read.
+     */
+    public History_reader( Path directory,
+                           String prefix,
+                           History_store.Column[] columns )
+            throws IOException
+    {
+        this( new History_catalog( directory,
+                                   prefix ),
+              true,
+              columns );
+    }
+
+    /**
+     * A reader sharing the catalog of a store in this process, which finds new records without going to the file
+     * system.
+     *
+     * @param catalog The store's catalog.
+     * @param columns The columns of the records, after the timestamp.
+     *
+     * @throws IOException If the segments cannot be read.
+     */
+    public History_reader( History_catalog catalog,
+                           History_store.Column[] columns )
+            throws IOException
+    {
+        this( catalog,
+              false,
+              columns );
+    }
+
+    private History_reader( History_catalog catalog,
+                            boolean owns_catalog,
+                            History_store.Column[] columns )
+            throws IOException
+    {
+        m_catalog = catalog;
+        m_owns_catalog = owns_catalog;
+        m_columns = columns.clone();
+        m_header_size = History_store.get_header_size( m_columns );
+        m_record_size = History_store.get_record_size( m_columns );
+        m_values = new double[m_columns.length];
+
+        update();
+    }
+
+    /**
+     * @return A copy of the columns, after the timestamp.
+     */
+    public History_store.Column[] get_columns()
+    {
+        return m_columns.clone();
+    }
+
+    /**
+     * Maps the segments again, after the store has been rewritten or segments removed by something else.
+     */
+    public synchronized void refresh()
+            throws IOException
+    {
+        m_catalog.refresh();
+        m_segments = new ArrayList< Segment >();
+        m_catalog_version = -1;
+        update();
+    }
+
+    /**
+     * Calls the listener with each record whose time is in the range, oldest first.
+     *
+     * @param from_ms  The start of the range, inclusive, in milliseconds since the epoch.
+     * @param until_ms The end of the range, exclusive.
+     * @param listener Called with each record.
+     *
+     * @return The number of records read.
+     *
+     * @throws IOException If the store's new records cannot be mapped.
+     */
+    public synchronized int query( long from_ms,
+                                   long until_ms,
+                                   Listener listener )
+            throws IOException
+    {
+        update();
+
+        int read = 0;
+        for( Segment segment : m_segments )
+        {
+            // The catalog's time bounds skip a segment without touching its pages.
+            if( ( segment.last_time == History_store.NO_TIME ) || ( segment.last_time < from_ms ) ) continue;
+
+            if( segment.compressed )
+            {
+                boolean[] stopped = { false };
+                read += query_compressed( segment,
+                                          from_ms,
+                                          until_ms,
+                                          ( time_ms, values ) ->
+                                          {
+                                              if( listener.record_read( time_ms,
+                                                                        values ) ) return true;
+
+                                              stopped[0] = true;
+                                              return false;
+                                          } );
+                if( stopped[0] || ( segment.last_time >= until_ms ) ) return read;
+
+                continue;
+            }
+
+            for( int index = first_at_or_after( segment,
+                                                from_ms ); index < segment.count; index++ )
+            {
+                long time_ms = time_of( segment,
+                                        index );
+                if( time_ms == History_store.NO_TIME ) continue;
+                if( time_ms >= until_ms ) return read;
+
+                for( int i = 0; i < m_columns.length; i++ )
+                {
+                    m_values[i] = History_store.get_value( m_columns[i],
+                                                           segment.buffer );
+                }
+
+                read++;
+                if( !listener.record_read( time_ms,
+                                           m_values ) ) return read;
+            }
+        }
+
+        return read;
+    }
+
+    /**
+     * @return The time of the newest record, or {@link History_store#NO_TIME} if there are none.
+     */
+    public synchronized long get_last_time()
+            throws IOException
+    {
+        update();
+
+        for( int i = m_segments.size() - 1; i >= 0; i-- )
+        {
+            Segment segment = m_segments.get( i );
+            if( ( segment.compressed || ( segment.count > 0 ) ) && ( segment.last_time != History_store.NO_TIME ) )
+            {
+                return segment.last_time;
+            }
+        }
+
+        return History_store.NO_TIME;
+    }
+
+    @Override
+    public synchronized void close()
+    {
+        // The mappings are released when they are collected.
+        m_segments = new ArrayList< Segment >();
+        m_catalog_version = -1;
+    }
+
+    /*
+     * Brings the mapped segments up to the catalog, keeping those that have not changed and mapping the rest.
+     */
+    private void update()
+            throws IOException
+    {
+        if( m_owns_catalog ) m_catalog.poll();
+
+        long version = m_catalog.get_version();
+        if( version == m_catalog_version ) return;
+
+        History_catalog.Segment[] catalog_segments = m_catalog.get_segments();
+        List< Segment > segments = new ArrayList< Segment >( catalog_segments.length );
+        int old = 0;
+        for( History_catalog.Segment catalog_segment : catalog_segments )
+        {
+            while( ( old < m_segments.size() ) && ( m_segments.get( old ).sequence < catalog_segment.sequence ) )
+            {
+                old++;
+            }
+
+            Segment segment = ( old < m_segments.size() ) ? m_segments.get( old ) : null;
+            if( ( segment != null ) && ( segment.sequence == catalog_segment.sequence )
+                    && ( segment.path.equals( catalog_segment.path ) ) && ( segment.size == catalog_segment.size ) )
+            {
+                // One read before without the reader's columns, such as before its header was written, is read again
+                // once it grows.
+                segments.add( segment );
+                continue;
+            }
+
+            segment = map( catalog_segment );
+            if( segment != null ) segments.add( segment );
+        }
+
+        m_segments = segments;
+        m_catalog_version = version;
+    }
+
+    /*
+     * Maps the segment up to the size in the catalog. Returns a segment without a buffer if it does not have the
+     * reader's columns or is compressed, and null if it has gone.
+     */
+    private Segment map( History_catalog.Segment catalog_segment )
+            throws IOException
+    {
+        if( catalog_segment.compressed )
+        {
+            try( Compressed_history_segment.Decoder decoder = new Compressed_history_segment.Decoder(
+                    Files.newInputStream( catalog_segment.path ) ) )
+            {
+                boolean matches = Arrays.equals( decoder.get_columns(),
+                                                 m_columns );
+                return new Segment( catalog_segment.sequence,
+                                    catalog_segment.path,
+                                    matches,
+                                    null,
+                                    catalog_segment.size,
+                                    0,
+                                    matches ? catalog_segment.last_time : History_store.NO_TIME );
+            }
+            catch( NoSuchFileException exception )
+            {
+                return null;
+            }
+        }
+
+        try( FileChannel channel = FileChannel.open( catalog_segment.path,
+                                                     StandardOpenOption.READ ) )
+        {
+            History_store.Column[] columns = History_store.read_header( channel );
+            if( ( columns == null ) || !Arrays.equals( columns,
+                                                       m_columns ) )
+            {
+                return new Segment( catalog_segment.sequence,
+                                    catalog_segment.path,
+                                    false,
+                                    null,
+                                    catalog_segment.size,
+                                    0,
+                                    History_store.NO_TIME );
+            }
+
+            long size = Math.min( catalog_segment.size,
+                                  channel.size() );
+            MappedByteBuffer buffer = channel.map( FileChannel.MapMode.READ_ONLY,
+                                                   0,
+                                                   size );
+            buffer.order( ByteOrder.LITTLE_ENDIAN );
+            return new Segment( catalog_segment.sequence,
+                                catalog_segment.path,
+                                false,
+                                buffer,
+                                size,
+                                (int)Math.max( 0,
+                                               ( size - m_header_size ) / m_record_size ),
+                                catalog_segment.last_time );
+        }
+        catch( NoSuchFileException exception )
+        {
+            return null;
+        }
+    }
+
+    /*
+     * Decodes the records of the compressed segment in the range. Returns 0 if it has gone, expired since the
+     * catalog was read.
+     */
+    private int query_compressed( Segment segment,
+                                  long from_ms,
+                                  long until_ms,
+                                  Listener listener )
+            throws IOException
+    {
+        try( Compressed_history_segment.Decoder decoder = new Compressed_history_segment.Decoder(
+                new BufferedInputStream( Files.newInputStream( segment.path ),
+                                         64 * 1024 ) ) )
+        {
+            return decoder.query( from_ms,
+                                  until_ms,
+                                  listener );
+        }
+        catch( NoSuchFileException exception )
+        {
+            return 0;
+        }
+    }
+
+    /*
+     * The index of the first record with a time at or after the given one, or the count if there is none. Records
+     * without a time take the time of the next record that has one.
+     */
+    private int first_at_or_after( Segment segment,
+                                   long time_ms )
+    {
+        int low = 0;
+        int high = segment.count;
+        while( low < high )
+        {
+            int middle = ( low + high ) >>> 1;
+            long middle_time = time_at_or_after( segment,
+                                                 middle );
+            if( ( middle_time != History_store.NO_TIME ) && ( middle_time < time_ms ) )
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /*
+     * The time of the first record at or after the index that has one, or NO_TIME if there is none.
+     */
+    private long time_at_or_after( Segment segment,
+                                   int index )
+    {
+        for( ; index < segment.count; index++ )
+        {
+            long time_ms = time_of( segment,
+                                    index );
+            if( time_ms != History_store.NO_TIME ) return time_ms;
+        }
+
+        return History_store.NO_TIME;
+    }
+
+    /*
+     * Leaves the buffer's position at the record's first value.
+     */
+    private long time_of( Segment segment,
+                          int index )
+    {
+        segment.buffer.position( m_header_size + ( index * m_record_size ) );
+        return segment.buffer.getLong();
+    }
+}
@@ -0,0 +1,471 @@
+/*
+ * Copyright (c) 2024 RKDAW Enterprises and Ralph Williamson.
+ *       email: rkdawenterprises@gmail.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ddns.rkdawenterprises.rkdawe_api_common;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalField;
+import java.util.Arrays;
+
+/**
+ * Keeps the minimum, maximum and average of each column of the history record per minute, hour and day, updated as
+ * each sample arrives, so charts do not scan the raw samples. Each resolution is kept in its own {@link History_store}
+ * next to the raw history, weather_history_minute_N.bin and so on, and is read back with a {@link History_reader}.
+ * <p>
+ * Each rollup record is the start of its bucket, the number of samples, then the minimum, maximum and average of each
+ * column, named column_min, column_max and column_avg. Values with no data, {@link Double#MAX_VALUE} or the
+ * {@link Integer#MAX_VALUE} of an INT column, are left out, and a column with no values in the bucket has
+ * {@link Double#MAX_VALUE}. The buckets are those of {@link Utilities#round} rounding down in UTC.
+ * <p>
+ * A bucket is written when the first sample of a later bucket arrives. Samples older than the open bucket are
+ * ignored. The open buckets are only kept in memory. When the rollups are opened they are rebuilt from the raw
+ * history, the store with the same directory and prefix, along with any buckets missed after a crash. So each sample
+ * added must also be appended to the raw history, as {@link History_writer} does.
+ * <p>
+ * Thread safe.
+ */
+@SuppressWarnings("unused")
+public class History_rollups implements Closeable
+{
+    public enum Resolution
+    {
+        MINUTE( "minute",
+                ChronoField.MINUTE_OF_HOUR,
+                1,
+                60 * 1000L ),
+        HOUR( "hour",
+              ChronoField.MINUTE_OF_HOUR,
+              60,
+              60 * 60 * 1000L ),
+        DAY( "day",
+             ChronoField.HOUR_OF_DAY,
+             24,
+             24 * 60 * 60 * 1000L );
+
+        public final String name;
+        public final long length_ms;
+
+        private final TemporalField m_round_to_field;
+        private final int m_rounding_increment;
+
+        Resolution( String name,
+                    TemporalField round_to_field,
+                    int rounding_increment,
+                    long length_ms )
+        {
+            this.name = name;
+            this.length_ms = length_ms;
+            m_round_to_field = round_to_field;
+            m_rounding_increment = rounding_increment;
+        }
+
+        /**
+         * @return The start of the bucket holding the time.
+         */
+        public long get_bucket_start( long time_ms )
+        {
+            return Utilities.round( ZonedDateTime.ofInstant( Instant.ofEpochMilli( time_ms ),
+                                                             ZoneOffset.UTC ),
+                                    m_round_to_field,
+                                    m_rounding_increment,
+                                    Utilities.ROUNDING_TYPE.DOWN )
+                            .toInstant()
+                            .toEpochMilli();
+        }
+    }
+
+    /**
+     * The most buckets a query picks a resolution for by default, a day of minutes.
+     */
+    public static final int DEFAULT_MAX_POINTS = 24 * 60;
+
+    /*
+     * The open bucket of a resolution.
+     */
+    private static final class Bucket
+    {
+        final Resolution resolution;
+        final History_store store;
+        final History_reader reader;
+
+        long start = History_store.NO_TIME;
+        long end = History_store.NO_TIME;
+        int samples = 0;
+        final double[] minimums;
+        final double[] maximums;
+        final double[] sums;
+        final int[] counts;
+
+        Bucket( Resolution resolution,
+                History_store store,
+                History_reader reader,
+                int columns )
+        {
+            this.resolution = resolution;
+            this.store = store;
+            this.reader = reader;
+            minimums = new double[columns];
+            maximums = new double[columns];
+            sums = new double[columns];
+            counts = new int[columns];
+        }
+    }
+
+    private final History_store.Column[] m_source_columns;
+    private final History_store.Column[] m_columns;
+    private final boolean m_history_record;
+    private final Bucket[] m_buckets;
+    private final double[] m_sample;
+    private final double[] m_record;
+
+    /**
+     * Opens the rollups of {@link Weather_data#get_history_record_columns()} in
+     * {@link Directory_listing#WEATHER_HISTORY_DIRECTORY}, with the default limits.
+     */
+    public static History_rollups open_weather_history()
+            throws IOException
+    {
+        return new History_rollups( Path.of( Directory_listing.WEATHER_HISTORY_DIRECTORY ),
+                                    History_store.HISTORY_PREFIX,
+                                    History_store.get_history_columns(),
+                                    Directory_listing.MAX_HISTORY_FILE_SIZE_KiB * 1024L,
+                                    Directory_listing.MAX_HISTORY_FILES );
+    }
+
+    /**
+     * @param directory        The directory of the rollup segments.
+     * @param prefix           The start of the segment file names of the raw history, and of the rollups followed by
+     *                         the resolution's name.
+     * @param columns          The columns of the samples.
+     * @param max_segment_size The size in bytes at which a new segment is started.
+     * @param max_segments     The number of full segments whose size each resolution is kept within.
+     *
+     * @throws IllegalArgumentException If there are too many columns for a rollup record.
+     * @throws IOException              If the stores cannot be opened, or the raw history read.
+     */
+    public History_rollups( Path directory,
+                            String prefix,
+                            History_store.Column[] columns,
+                            long max_segment_size,
+                            int max_segments )
+            throws IllegalArgumentException, IOException
+    {
+        m_source_columns = columns.clone();
+        m_columns = make_columns( m_source_columns );
+        m_history_record = Arrays.equals( m_source_columns,
+                                          History_store.get_history_columns() );
+        m_sample = new double[m_source_columns.length];
+        m_record = new double[m_columns.length];
+
+        Resolution[] resolutions = Resolution.values();
+        m_buckets = new Bucket[resolutions.length];
+        for( int i = 0; i < resolutions.length; i++ )
+        {
+            History_catalog catalog = new History_catalog( directory,
+                                                           prefix + "_" + resolutions[i].name );
+            m_buckets[i] = new Bucket( resolutions[i],
+                                       new History_store( catalog,
+                                                          m_columns,
+                                                          max_segment_size,
+                                                          max_segments ),
+                                       new History_reader( catalog,
+                                                           m_columns ),
+                                       m_source_columns.length );
+        }
+
+        rebuild( directory,
+                 prefix );
+    }
+
+    /**
+     * @return A copy of the columns of the rollup records, after the bucket start.
+     */
+    public History_store.Column[] get_columns()
+    {
+        return m_columns.clone();
+    }
+
+    /**
+     * Adds the history record of the weather data. The columns must be those of
+     * {@link History_store#get_history_columns()}. A sample without a time is ignored.
+     *
+     * @throws IllegalStateException If the rollups have other columns.
+     */
+    public synchronized void add( Weather_data data )
+            throws IOException, IllegalStateException
+    {
+        if( !m_history_record )
+        {
+            throw new IllegalStateException( "Not rollups of the history record" );
+        }
+
+        add( History_store.get_history_record( data,
+                                               m_sample ),
+             m_sample );
+    }
+
+    /**
+     * Adds a sample. A sample without a time is ignored.
+     *
+     * @param time_ms The time of the sample, in milliseconds since the epoch, or {@link History_store#NO_TIME}.
+     * @param values  A value for each column, {@link Double#MAX_VALUE} for no data. {@link Integer#MAX_VALUE} is
+     *                also no data in an INT or SCALED column, as the weather data has it.
+     *
+     * @throws IllegalArgumentException If the number of values does not match the columns.
+     */
+    public synchronized void add( long time_ms,
+                                  double[] values )
+            throws IOException, IllegalArgumentException
+    {
+        if( values.length != m_source_columns.length )
+        {
+            throw new IllegalArgumentException( "Expected " + m_source_columns.length + " values" );
+        }
+
+        if( time_ms == History_store.NO_TIME ) return;
+
+        for( Bucket bucket : m_buckets )
+        {
+            if( time_ms >= bucket.end )
+            {
+                // Only rounds at a bucket boundary, otherwise the sample is in the open bucket.
+                write( bucket );
+                bucket.start = bucket.resolution.get_bucket_start( time_ms );
+                bucket.end = bucket.start + bucket.resolution.length_ms;
+            }
+            else if( time_ms < bucket.start )
+            {
+                continue;
+            }
+
+            bucket.samples++;
+            for( int i = 0; i < values.length; i++ )
+            {
+                double value = values[i];
+                if( History_store.is_no_data( m_source_columns[i],
+                                              value ) ) continue;
+
+                if( bucket.counts[i]++ == 0 )
+                {
+                    bucket.minimums[i] = value;
+                    bucket.maximums[i] = value;
+                    bucket.sums[i] = value;
+                    continue;
+                }
+
+                if( value < bucket.minimums[i] ) bucket.minimums[i] = value;
+                if( value > bucket.maximums[i] ) bucket.maximums[i] = value;
+                bucket.sums[i] += value;
+            }
+        }
+    }
+
+    /**
+     * @return The finest resolution with no more than the given number of buckets in the range, or the coarsest.
+     */
+    public static Resolution get_resolution( long from_ms,
+                                             long until_ms,
+                                             int max_points )
+    {
+        Resolution[] resolutions = Resolution.values();
+        for( Resolution resolution : resolutions )
+        {
+            if( ( ( until_ms - from_ms ) / resolution.length_ms ) <= max_points ) return resolution;
+        }
+
+        return resolutions[resolutions.length - 1];
+    }
+
+    /**
+     * Calls the listener with each bucket starting in the range, oldest first, at the resolution picked by
+     * {@link #get_resolution(long, long, int)} with {@link #DEFAULT_MAX_POINTS}.
+     *
+     * @return The number of buckets read.
+     */
+    public int query( long from_ms,
+                      long until_ms,
+                      History_reader.Listener listener )
+            throws IOException
+    {
+        return query( get_resolution( from_ms,
+                                      until_ms,
+                                      DEFAULT_MAX_POINTS ),
+                      from_ms,
+                      until_ms,
+                      listener );
+    }
+
+    /**
+     * Calls the listener with each bucket of the resolution starting in the range, oldest first, including the open
+     * bucket. The values are in the order of {@link #get_columns()}.
+     *
+     * @param resolution The resolution to read.
+     * @param from_ms    The start of the range, inclusive, in milliseconds since the epoch.
+     * @param until_ms   The end of the range, exclusive.
+     * @param listener   Called with each bucket.
+     *
+     * @return The number of buckets read.
+     */
+    public synchronized int query( Resolution resolution,
+                                   long from_ms,
+                                   long until_ms,
+                                   History_reader.Listener listener )
+            throws IOException
+    {
+        Bucket bucket = m_buckets[resolution.ordinal()];
+        boolean[] stopped = { false };
+        int read = bucket.reader.query( from_ms,
+                                        until_ms,
+                                        ( time_ms, values ) ->
+                                        {
+                                            stopped[0] = !listener.record_read( time_ms,
+                                                                                values );
+                                            return !stopped[0];
+                                        } );
+
+        if( !stopped[0] && ( bucket.samples > 0 ) && ( bucket.start >= from_ms ) && ( bucket.start < until_ms ) )
+        {
+            fill_record( bucket );
+            listener.record_read( bucket.start,
+                                  m_record );
+            read++;
+        }
+
+        return read;
+    }
+
+    /**
+     * Closes the stores. The open buckets are not written, they are rebuilt from the raw history when reopened.
+     */
+    @Override
+    public synchronized void close()
+            throws IOException
+    {
+        for( Bucket bucket : m_buckets )
+        {
+            bucket.store.close();
+            bucket.reader.close();
+        }
+    }
+
+    /*
+     * Starts each resolution after its last written bucket and adds the raw samples since, which writes the buckets
+     * missed and leaves the open ones as they were before closing.
+     */
+    private void rebuild( Path directory,
+                          String prefix )
+            throws IOException
+    {
+        long from_ms = Long.MAX_VALUE;
+        for( Bucket bucket : m_buckets )
+        {
+            long last_ms = bucket.reader.get_last_time();
+            if( last_ms != History_store.NO_TIME )
+            {
+                bucket.start = last_ms + bucket.resolution.length_ms;
+                bucket.end = bucket.start;
+            }
+
+            from_ms = Math.min( from_ms,
+                                bucket.start );
+        }
+
+        IOException[] failure = { null };
+        try( History_reader raw = new History_reader( directory,
+                                                      prefix,
+                                                      m_source_columns ) )
+        {
+            raw.query( from_ms,
+                       Long.MAX_VALUE,
+                       ( time_ms, values ) ->
+                       {
+                           try
+                           {
+                               add( time_ms,
+                                    values );
+                               return true;
+                           }
+                           catch( IOException exception )
+                           {
+                               failure[0] = exception;
+                               return false;
+                           }
+                       } );
+        }
+
+        if( failure[0] != null ) throw failure[0];
+    }
+
+    private void write( Bucket bucket )
+            throws IOException
+    {
+        if( bucket.samples == 0 ) return;
+
+        fill_record( bucket );
+        bucket.store.append( bucket.start,
+                             m_record );
+
+        bucket.samples = 0;
+        for( int i = 0; i < bucket.counts.length; i++ )
+        {
+            bucket.counts[i] = 0;
+        }
+    }
+
+    private void fill_record( Bucket bucket )
+    {
+        m_record[0] = bucket.samples;
+        for( int i = 0; i < bucket.counts.length; i++ )
+        {
+            boolean empty = bucket.counts[i] == 0;
+            m_record[1 + ( i * 3 )] = empty ? Double.MAX_VALUE : bucket.minimums[i];
+            m_record[2 + ( i * 3 )] = empty ? Double.MAX_VALUE : bucket.maximums[i];
+            m_record[3 + ( i * 3 )] = empty ? Double.MAX_VALUE : ( bucket.sums[i] / bucket.counts[i] );
+        }
+    }
+
+    /*
+     * The sample count, then the minimum and maximum with the precision of the column and the average as a double.
+     */
+    private static History_store.Column[] make_columns( History_store.Column[] source_columns )
+    {
+        History_store.Column[] columns = new History_store.Column[1 + ( source_columns.length * 3 )];
+        columns[0] = new History_store.Column( "count",
+                                               History_store.Column.Type.INT,
+                                               0 );
+        for( int i = 0; i < source_columns.length; i++ )
+        {
+            History_store.Column column = source_columns[i];
+            columns[1 + ( i * 3 )] = new History_store.Column( column.name + "_min",
+                                                               column.type,
+                                                               column.decimals );
+            columns[2 + ( i * 3 )] = new History_store.Column( column.name + "_max",
+                                                               column.type,
+                                                               column.decimals );
+            columns[3 + ( i * 3 )] = new History_store.Column( column.name + "_avg",
+                                                               History_store.Column.Type.DOUBLE,
+                                                               0 );
+        }
+
+        return columns;
+    }
+}
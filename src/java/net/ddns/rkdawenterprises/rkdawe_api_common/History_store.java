@@ -0,0 +1,979 @@
+/*
+ * Copyright (c) 2024 RKDAW Enterprises and Ralph Williamson.
+ *       email: rkdawenterprises@gmail.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ddns.rkdawenterprises.rkdawe_api_common;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An append-only store of history records in binary segment files, replacing the weather_history_N.csv files. Each
+ * record is an epoch millisecond timestamp followed by a fixed-width value for each column, so records can be found
+ * by index without parsing anything.
+ * <p>
+ * The segments are named prefix_N.bin, N increasing with each new segment. A new segment is started when the current
+ * one reaches {@link Directory_listing#MAX_HISTORY_FILE_SIZE_KiB}, and the oldest are deleted to keep the total size
+ * within {@link Directory_listing#MAX_HISTORY_FILES} full segments. Each segment starts with a header naming its columns, so a store can
+ * be reopened, and a segment with different columns is never appended to. The segments are tracked in a
+ * {@link History_catalog}, so rotating and expiring them does not list the directory.
+ * <p>
+ * A store can compress each segment when it is full, see {@link #set_compress_full_segments(boolean)}. The segment
+ * is replaced by a {@link Compressed_history_segment} named prefix_N.whz, which takes about a fifteenth of the
+ * space and is still read by {@link History_reader} and {@link #export_CSV(Appendable)}. Since the segments are
+ * expired by size, compressing them keeps that much more of the history.
+ * <p>
+ * Segment layout, little-endian:
+ * <pre>
+ *     'W' 'H' version column_count
+ *     for each column: type decimals name_length name (ASCII)
+ *     records: timestamp (8 bytes) then each column's value
+ * </pre>
+ * {@link Column.Type#INT} values take 4 bytes. {@link Column.Type#SCALED} values take 4 bytes, the value times
+ * 10^decimals, so they are kept to the precision the station gives. Both keep {@link Integer#MAX_VALUE} for no data,
+ * which is read back as {@link Double#MAX_VALUE}. {@link Column.Type#DOUBLE} values take the 8 bytes of the double.
+ * <p>
+ * Thread safe.
+ */
+@SuppressWarnings("unused")
+public class History_store implements Closeable
+{
+    /**
+     * The description of a column of the store.
+     */
+    public static final class Column
+    {
+        public enum Type
+        {
+            INT( 4 ),
+            SCALED( 4 ),
+            DOUBLE( 8 );
+
+            public final int size;
+
+            Type( int size )
+            {
+                this.size = size;
+            }
+        }
+
+        public final String name;
+        public final Type type;
+        public final int decimals;
+
+        /**
+         * @param name     The name, ASCII, at most 255 characters.
+         * @param type     How the values are kept.
+         * @param decimals The number of decimals kept for {@link Type#SCALED}, 0 to 3, otherwise ignored.
+         *
+         * @throws IllegalArgumentException If the name or decimals are not valid.
+         */
+        public Column( String name,
+                       Type type,
+                       int decimals )
+                throws IllegalArgumentException
+        {
+            if( ( name.length() == 0 ) || ( name.length() > 255 )
+                    || !StandardCharsets.US_ASCII.newEncoder()
+                                                 .canEncode( name ) )
+            {
+                throw new IllegalArgumentException( "Bad column name: " + name );
+            }
+
+            if( ( type == Type.SCALED ) && ( ( decimals < 0 ) || ( decimals >= SCALES.length ) ) )
+            {
+                throw new IllegalArgumentException( "Bad number of decimals: " + decimals );
+            }
+
+            this.name = name;
+            this.type = type;
+            this.decimals = ( type == Type.SCALED ) ? decimals : 0;
+        }
+
+        /**
+         * @return The column for the number field, named by its JSON name.
+         *
+         * @throws IllegalArgumentException If the field is a string.
+         */
+        public static Column of( Weather_data.Field field )
+                throws IllegalArgumentException
+        {
+            switch( field.kind )
+            {
+                case INT:
+                    return new Column( field.json_name,
+                                       Type.INT,
+                                       0 );
+                case DOUBLE:
+                    return ( field.decimals >= 0 ) ? new Column( field.json_name,
+                                                                 Type.SCALED,
+                                                                 field.decimals )
+                                                   : new Column( field.json_name,
+                                                                 Type.DOUBLE,
+                                                                 0 );
+                default:
+                    throw new IllegalArgumentException( field.json_name + " is not a number" );
+            }
+        }
+
+        @Override
+        public boolean equals( Object other )
+        {
+            if( this == other ) return true;
+            if( !( other instanceof Column ) ) return false;
+
+            Column column = (Column)other;
+            return name.equals( column.name ) && ( type == column.type ) && ( decimals == column.decimals );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return ( ( name.hashCode() * 31 ) + type.hashCode() ) * 31 + decimals;
+        }
+    }
+
+    public static final String HISTORY_PREFIX = Directory_listing.WEATHER_HISTORY_SEGMENT_PREFIX;
+    public static final String SEGMENT_SUFFIX = Directory_listing.WEATHER_HISTORY_SEGMENT_SUFFIX;
+    public static final String COMPRESSED_SEGMENT_SUFFIX = Directory_listing.COMPRESSED_WEATHER_HISTORY_SUFFIX;
+    public static final int FORMAT_VERSION = 1;
+
+    /**
+     * The timestamp of a record whose time was not known.
+     */
+    public static final long NO_TIME = Long.MIN_VALUE;
+
+    private static final byte MAGIC_0 = 'W';
+    private static final byte MAGIC_1 = 'H';
+    private static final double[] SCALES = { 1, 10, 100, 1000 };
+    private static final int NO_DATA_INT = Integer.MAX_VALUE;
+
+    /*
+     * The columns of the history record, after its time, which is the timestamp.
+     */
+    private static final Weather_data.Field[] HISTORY_FIELDS = Weather_data.get_history_fields();
+
+    private final History_catalog m_catalog;
+    private final Column[] m_columns;
+    private final byte[] m_header;
+    private final int m_record_size;
+    private final long m_max_segment_size;
+    private final long m_max_total_size;
+    private final ByteBuffer m_record;
+
+    /*
+     * The segment being appended to, null until the first append.
+     */
+    private FileChannel m_channel = null;
+    private long m_segment_size = 0;
+
+    private boolean m_compress_full_segments = false;
+
+    /**
+     * Opens the store of {@link Weather_data#get_history_record_columns()} in
+     * {@link Directory_listing#WEATHER_HISTORY_DIRECTORY}, with the default limits, compressing full segments.
+     */
+    public static History_store open_weather_history()
+            throws IOException
+    {
+        History_store store = new History_store( Path.of( Directory_listing.WEATHER_HISTORY_DIRECTORY ),
+                                                 HISTORY_PREFIX,
+                                                 get_history_columns(),
+                                                 Directory_listing.MAX_HISTORY_FILE_SIZE_KiB * 1024L,
+                                                 Directory_listing.MAX_HISTORY_FILES );
+        store.set_compress_full_segments( true );
+        return store;
+    }
+
+    /**
+     * A store with its own catalog of the segments.
+     *
+     * @param directory        The directory of the segments, which is created if needed.
+     * @param prefix           The start of the segment file names.
+     * @param columns          The columns of each record, after the timestamp.
+     * @param max_segment_size The size in bytes at which a new segment is started.
+     * @param max_segments     The number of full segments whose size the store is kept within, the oldest segments
+     *                         are deleted.
+     *
+     * @throws IllegalArgumentException If there are no columns, too many, or the limits are too small.
+     * @throws IOException              If the directory cannot be read or created.
+     */
+    public History_store( Path directory,
+                          String prefix,
+                          Column[] columns,
+                          long max_segment_size,
+                          int max_segments )
+            throws IllegalArgumentException, IOException
+    {
+        this( new History_catalog( directory,
+                                   prefix ),
+              columns,
+              max_segment_size,
+              max_segments );
+    }
+
+    /**
+     * @param catalog          The catalog of the segments, which the store keeps up to date and readers can share.
+     * @param columns          The columns of each record, after the timestamp.
+     * @param max_segment_size The size in bytes at which a new segment is started.
+     * @param max_segments     The number of full segments whose size the store is kept within, the oldest segments
+     *                         are deleted.
+     *
+     * @throws IllegalArgumentException If there are no columns, too many, or the limits are too small.
+     */
+    public History_store( History_catalog catalog,
+                          Column[] columns,
+                          long max_segment_size,
+                          int max_segments )
+            throws IllegalArgumentException
+    {
+        if( ( columns.length == 0 ) || ( columns.length > 255 ) )
+        {
+            throw new IllegalArgumentException( "Bad number of columns: " + columns.length );
+        }
+
+        if( max_segments < 1 ) throw new IllegalArgumentException( "At least one segment is needed" );
+
+        m_catalog = catalog;
+        m_columns = columns.clone();
+        m_header = make_header( m_columns );
+        m_record_size = get_record_size( m_columns );
+        m_max_total_size = ( max_segment_size > ( Long.MAX_VALUE / max_segments ) ) ? Long.MAX_VALUE
+                : ( max_segment_size * max_segments );
+
+        if( max_segment_size < ( m_header.length + m_record_size ) )
+        {
+            throw new IllegalArgumentException( "Segments must hold at least one record" );
+        }
+
+        m_max_segment_size = max_segment_size;
+        m_record = ByteBuffer.allocate( m_record_size )
+                             .order( ByteOrder.LITTLE_ENDIAN );
+    }
+
+    /**
+     * @return The columns of {@link Weather_data#get_history_record_columns()} after time.
+     */
+    public static Column[] get_history_columns()
+    {
+        Column[] columns = new Column[HISTORY_FIELDS.length - 1];
+        for( int i = 1; i < HISTORY_FIELDS.length; i++ )
+        {
+            columns[i - 1] = Column.of( HISTORY_FIELDS[i] );
+        }
+
+        return columns;
+    }
+
+    /**
+     * @return A copy of the columns, after the timestamp.
+     */
+    public Column[] get_columns()
+    {
+        return m_columns.clone();
+    }
+
+    /**
+     * @return The size of each record in bytes.
+     */
+    public int get_record_size()
+    {
+        return m_record_size;
+    }
+
+    public Path get_directory()
+    {
+        return m_catalog.get_directory();
+    }
+
+    public History_catalog get_catalog()
+    {
+        return m_catalog;
+    }
+
+    /**
+     * @return The segments of the store, oldest first, from its catalog.
+     */
+    public List< Path > get_segments()
+    {
+        List< Path > segments = new ArrayList< Path >();
+        for( History_catalog.Segment segment : m_catalog.get_segments() )
+        {
+            segments.add( segment.path );
+        }
+
+        return segments;
+    }
+
+    /**
+     * When on, a segment is compressed as soon as it is full and the next one started, by the append that starts
+     * it, which takes a few tens of milliseconds for a full segment. If compressing fails the append throws, and the
+     * full segment is left as it is, and is still read. Off by default.
+     *
+     * @param compress True to compress full segments.
+     */
+    public synchronized void set_compress_full_segments( boolean compress )
+    {
+        m_compress_full_segments = compress;
+    }
+
+    public synchronized boolean get_compress_full_segments()
+    {
+        return m_compress_full_segments;
+    }
+
+    /**
+     * Appends the history record of the weather data. The columns must be those of
+     * {@link #get_history_columns()}. Makes no garbage.
+     *
+     * @throws IllegalStateException If the store has other columns.
+     */
+    public synchronized void append( Weather_data data )
+            throws IOException, IllegalStateException
+    {
+        if( m_columns.length != ( HISTORY_FIELDS.length - 1 ) )
+        {
+            throw new IllegalStateException( "Not a store of the history record" );
+        }
+
+        m_record.clear();
+        m_record.putLong( Compact_weather_data.parse_time( HISTORY_FIELDS[0].get_string( data ) ) );
+        for( int i = 0; i < m_columns.length; i++ )
+        {
+            put_value( m_columns[i],
+                       HISTORY_FIELDS[i + 1].get_number( data ) );
+        }
+
+        write_record();
+    }
+
+    /**
+     * Appends a record. Makes no garbage.
+     *
+     * @param time_ms The timestamp, in milliseconds since the epoch, or {@link #NO_TIME}.
+     * @param values  A value for each column.
+     *
+     * @throws IllegalArgumentException If the number of values does not match the columns.
+     */
+    public synchronized void append( long time_ms,
+                                     double[] values )
+            throws IOException, IllegalArgumentException
+    {
+        if( values.length != m_columns.length )
+        {
+            throw new IllegalArgumentException( "Expected " + m_columns.length + " values" );
+        }
+
+        m_record.clear();
+        m_record.putLong( time_ms );
+        for( int i = 0; i < m_columns.length; i++ )
+        {
+            put_value( m_columns[i],
+                       values[i] );
+        }
+
+        write_record();
+    }
+
+    /**
+     * Forces the appended records to the storage device.
+     */
+    public synchronized void flush()
+            throws IOException
+    {
+        if( m_channel != null ) m_channel.force( false );
+    }
+
+    @Override
+    public synchronized void close()
+            throws IOException
+    {
+        if( m_channel != null )
+        {
+            m_channel.close();
+            m_channel = null;
+        }
+    }
+
+    /**
+     * Writes every record, oldest first, as CSV in the format of {@link Weather_data#get_history_record()}, starting
+     * with the header line. A record without a time has "N/A" for it.
+     */
+    public void export_CSV( Appendable output )
+            throws IOException
+    {
+        History_catalog.Segment[] segments;
+        synchronized( this )
+        {
+            flush();
+            segments = m_catalog.get_segments();
+        }
+
+        output.append( "time" );
+        for( Column column : m_columns )
+        {
+            output.append( ',' )
+                  .append( column.name );
+        }
+
+        output.append( '\n' );
+
+        byte[] number = new byte[Number_formatter.MAX_LENGTH];
+        double[] values = new double[m_columns.length];
+        ByteBuffer buffer = ByteBuffer.allocate( m_record_size * 256 )
+                                      .order( ByteOrder.LITTLE_ENDIAN );
+        for( History_catalog.Segment segment : segments )
+        {
+            if( segment.compressed )
+            {
+                export_compressed_CSV( segment.path,
+                                       output,
+                                       number );
+                continue;
+            }
+
+            try( FileChannel channel = FileChannel.open( segment.path,
+                                                         StandardOpenOption.READ ) )
+            {
+                if( !has_header( channel,
+                                 m_header ) ) continue;
+
+                long position = m_header.length;
+                long end = channel.size() - ( ( channel.size() - m_header.length ) % m_record_size );
+                while( position < end )
+                {
+                    buffer.clear();
+                    buffer.limit( (int)Math.min( buffer.capacity(),
+                                                 end - position ) );
+                    while( buffer.hasRemaining() )
+                    {
+                        if( channel.read( buffer,
+                                          position + buffer.position() ) < 0 ) break;
+                    }
+
+                    buffer.flip();
+                    position += buffer.limit();
+                    while( buffer.remaining() >= m_record_size )
+                    {
+                        long time_ms = buffer.getLong();
+                        for( int i = 0; i < m_columns.length; i++ )
+                        {
+                            values[i] = get_value( m_columns[i],
+                                                   buffer );
+                        }
+
+                        append_CSV_record( time_ms,
+                                           values,
+                                           output,
+                                           number );
+                    }
+                }
+            }
+            catch( NoSuchFileException exception )
+            {
+                // Compressed, or expired, since the segments were listed.
+                export_compressed_CSV( m_catalog.get_compressed_path( segment.sequence ),
+                                       output,
+                                       number );
+            }
+        }
+    }
+
+    /**
+     * Gets the values of the columns of {@link #get_history_columns()} from the weather data.
+     *
+     * @param data   The weather data.
+     * @param values Where to put the values, at least one per column.
+     *
+     * @return The time of the data, or {@link #NO_TIME} if it is not known.
+     */
+    static long get_history_record( Weather_data data,
+                                    double[] values )
+    {
+        for( int i = 1; i < HISTORY_FIELDS.length; i++ )
+        {
+            values[i - 1] = HISTORY_FIELDS[i].get_number( data );
+        }
+
+        return Compact_weather_data.parse_time( HISTORY_FIELDS[0].get_string( data ) );
+    }
+
+    /**
+     * @return The size of the header of a segment with the columns.
+     */
+    static int get_header_size( Column[] columns )
+    {
+        int size = 4;
+        for( Column column : columns )
+        {
+            size += 3 + column.name.length();
+        }
+
+        return size;
+    }
+
+    /**
+     * @return The size of a record with the columns.
+     */
+    static int get_record_size( Column[] columns )
+    {
+        int size = 8;
+        for( Column column : columns )
+        {
+            size += column.type.size;
+        }
+
+        return size;
+    }
+
+    /**
+     * Reads the columns from a segment's header.
+     *
+     * @return The columns, or null if the header is not valid.
+     */
+    static Column[] read_header( FileChannel channel )
+            throws IOException
+    {
+        ByteBuffer start = ByteBuffer.allocate( 4 );
+        if( ( channel.read( start,
+                            0 ) < 4 ) || ( start.get( 0 ) != MAGIC_0 ) || ( start.get( 1 ) != MAGIC_1 )
+                || ( start.get( 2 ) != FORMAT_VERSION ) )
+        {
+            return null;
+        }
+
+        int count = start.get( 3 ) & 0xFF;
+        if( count == 0 ) return null;
+
+        ByteBuffer header = ByteBuffer.allocate( 4 + ( count * 258 ) );
+        channel.read( header,
+                      0 );
+        header.flip();
+        header.position( 4 );
+
+        Column[] columns = new Column[count];
+        Column.Type[] types = Column.Type.values();
+        try
+        {
+            for( int i = 0; i < count; i++ )
+            {
+                int type = header.get() & 0xFF;
+                int decimals = header.get() & 0xFF;
+                byte[] name = new byte[header.get() & 0xFF];
+                header.get( name );
+                if( type >= types.length ) return null;
+
+                columns[i] = new Column( new String( name,
+                                                     StandardCharsets.US_ASCII ),
+                                         types[type],
+                                         decimals );
+            }
+        }
+        catch( RuntimeException exception )
+        {
+            return null;
+        }
+
+        return columns;
+    }
+
+    /**
+     * @return The segments with the prefix in the directory, oldest first.
+     */
+    static List< Path > list_segments( Path directory,
+                                       String prefix )
+            throws IOException
+    {
+        Pattern pattern = segment_pattern( prefix );
+        List< Path > segments = new ArrayList< Path >();
+        if( !Files.isDirectory( directory ) ) return segments;
+
+        try( DirectoryStream< Path > stream = Files.newDirectoryStream( directory ) )
+        {
+            for( Path path : stream )
+            {
+                if( pattern.matcher( path.getFileName()
+                                         .toString() )
+                           .matches() )
+                {
+                    segments.add( path );
+                }
+            }
+        }
+
+        segments.sort( ( a, b ) -> Long.compare( get_sequence( a,
+                                                               pattern ),
+                                                 get_sequence( b,
+                                                               pattern ) ) );
+        return segments;
+    }
+
+    /**
+     * @return The pattern of the names of the segments with the prefix, compressed or not, with the sequence number
+     *         as its first group.
+     */
+    static Pattern segment_pattern( String prefix )
+    {
+        return Pattern.compile( "^" + Pattern.quote( prefix ) + "_(\\d+)(" + Pattern.quote( SEGMENT_SUFFIX ) + "|"
+                + Pattern.quote( COMPRESSED_SEGMENT_SUFFIX ) + ")$" );
+    }
+
+    /**
+     * @return True if the segment's name is that of a compressed segment.
+     */
+    static boolean is_compressed( Path segment )
+    {
+        return segment.getFileName()
+                      .toString()
+                      .endsWith( COMPRESSED_SEGMENT_SUFFIX );
+    }
+
+    static long get_sequence( Path segment,
+                              Pattern pattern )
+    {
+        Matcher matcher = pattern.matcher( segment.getFileName()
+                                                  .toString() );
+        if( !matcher.matches() ) return -1;
+
+        try
+        {
+            return Long.parseLong( matcher.group( 1 ) );
+        }
+        catch( NumberFormatException exception )
+        {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * @return The value of the column at the buffer's position, which is advanced past it.
+     */
+    static double get_value( Column column,
+                             ByteBuffer buffer )
+    {
+        return from_bits( column,
+                          ( column.type.size == 4 ) ? buffer.getInt() : buffer.getLong() );
+    }
+
+    /**
+     * @return The bits kept for the value in the column, sign extended from 32 bits for the 4 byte types.
+     */
+    static long to_bits( Column column,
+                         double value )
+    {
+        switch( column.type )
+        {
+            case INT:
+                return ( Double.isNaN( value ) || ( value >= NO_DATA_INT ) ) ? NO_DATA_INT : (int)value;
+            case SCALED:
+                double scaled = Math.rint( value * SCALES[column.decimals] );
+                return ( ( value == Double.MAX_VALUE ) || Double.isNaN( scaled ) || ( scaled >= NO_DATA_INT )
+                        || ( scaled < Integer.MIN_VALUE ) ) ? NO_DATA_INT : (int)scaled;
+            default:
+                return Double.doubleToRawLongBits( value );
+        }
+    }
+
+    /**
+     * @return The value of the bits kept in the column, {@link Double#MAX_VALUE} for no data.
+     */
+    static double from_bits( Column column,
+                             long bits )
+    {
+        switch( column.type )
+        {
+            case INT:
+                return ( (int)bits == NO_DATA_INT ) ? Double.MAX_VALUE : (int)bits;
+            case SCALED:
+                return ( (int)bits == NO_DATA_INT ) ? Double.MAX_VALUE : ( (int)bits / SCALES[column.decimals] );
+            default:
+                return Double.longBitsToDouble( bits );
+        }
+    }
+
+    /**
+     * @return True if the value would be kept as no data in the column, such as {@link Double#MAX_VALUE}, or the
+     *         {@link Integer#MAX_VALUE} of an INT field without data.
+     */
+    static boolean is_no_data( Column column,
+                               double value )
+    {
+        if( ( value == Double.MAX_VALUE ) || Double.isNaN( value ) ) return true;
+
+        return ( column.type != Column.Type.DOUBLE ) && ( (int)to_bits( column,
+                                                                        value ) == NO_DATA_INT );
+    }
+
+    private void put_value( Column column,
+                            double value )
+    {
+        long bits = to_bits( column,
+                             value );
+        if( column.type.size == 4 )
+        {
+            m_record.putInt( (int)bits );
+        }
+        else
+        {
+            m_record.putLong( bits );
+        }
+    }
+
+    private void write_record()
+            throws IOException
+    {
+        if( ( m_channel == null ) || ( ( m_segment_size + m_record_size ) > m_max_segment_size ) )
+        {
+            open_segment();
+        }
+
+        m_record.flip();
+        while( m_record.hasRemaining() )
+        {
+            m_segment_size += m_channel.write( m_record,
+                                               m_segment_size );
+        }
+
+        m_catalog.segment_written( m_segment_size,
+                                   m_record.getLong( 0 ) );
+    }
+
+    /*
+     * Continues the newest segment if it has these columns and room, otherwise starts a new one, compressing the
+     * newest if set to and it is full, whether it filled now or before the store was opened. A record cut short by a
+     * crash is dropped.
+     */
+    private void open_segment()
+            throws IOException
+    {
+        boolean continuing = m_channel == null;
+        boolean full = !continuing;
+        close();
+
+        History_catalog.Segment newest = m_catalog.get_newest();
+        if( continuing && ( newest != null ) && !newest.compressed )
+        {
+            FileChannel channel = FileChannel.open( newest.path,
+                                                    StandardOpenOption.READ,
+                                                    StandardOpenOption.WRITE );
+            long size = channel.size();
+            long whole = size - ( ( size - m_header.length ) % m_record_size );
+            boolean ours = ( size >= m_header.length ) && has_header( channel,
+                                                                      m_header );
+            full = ours && ( ( whole + m_record_size ) > m_max_segment_size );
+            if( ours && !full )
+            {
+                if( whole != size )
+                {
+                    channel.truncate( whole );
+                    m_catalog.segment_written( whole,
+                                               NO_TIME );
+                }
+
+                m_channel = channel;
+                m_segment_size = whole;
+                return;
+            }
+
+            channel.close();
+        }
+
+        m_channel = FileChannel.open( m_catalog.get_next_path(),
+                                      StandardOpenOption.CREATE_NEW,
+                                      StandardOpenOption.READ,
+                                      StandardOpenOption.WRITE );
+        ByteBuffer header = ByteBuffer.wrap( m_header );
+        while( header.hasRemaining() )
+        {
+            m_channel.write( header,
+                             header.position() );
+        }
+
+        m_segment_size = m_header.length;
+        m_catalog.segment_created( m_segment_size );
+
+        if( full && m_compress_full_segments && ( newest != null ) && !newest.compressed )
+        {
+            compress_segment( newest );
+        }
+
+        // Leaves room for the new segment to fill.
+        m_catalog.expire( m_max_total_size - ( m_max_segment_size - m_segment_size ) );
+    }
+
+    /*
+     * Writes the compressed segment beside the full one under a temporary name, forces it and renames it, so a
+     * crash leaves one or the other whole, then tells the catalog and deletes the full one.
+     */
+    private void compress_segment( History_catalog.Segment segment )
+            throws IOException
+    {
+        Path compressed = m_catalog.get_compressed_path( segment.sequence );
+        Path temporary = compressed.resolveSibling( compressed.getFileName() + ".tmp" );
+        try( FileChannel channel = FileChannel.open( temporary,
+                                                     StandardOpenOption.CREATE,
+                                                     StandardOpenOption.TRUNCATE_EXISTING,
+                                                     StandardOpenOption.WRITE ) )
+        {
+            OutputStream output = new BufferedOutputStream( Channels.newOutputStream( channel ),
+                                                            64 * 1024 );
+            Compressed_history_segment.compress( segment.path,
+                                                 output );
+            channel.force( true );
+        }
+        catch( IOException exception )
+        {
+            Files.deleteIfExists( temporary );
+            throw exception;
+        }
+
+        Files.move( temporary,
+                    compressed,
+                    StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING );
+        m_catalog.segment_compressed( segment.sequence,
+                                      compressed,
+                                      Files.size( compressed ) );
+        Files.deleteIfExists( segment.path );
+    }
+
+    private void export_compressed_CSV( Path segment,
+                                        Appendable output,
+                                        byte[] number )
+            throws IOException
+    {
+        IOException[] failure = { null };
+        try( Compressed_history_segment.Decoder decoder = new Compressed_history_segment.Decoder(
+                new BufferedInputStream( Files.newInputStream( segment ),
+                                         64 * 1024 ) ) )
+        {
+            if( !Arrays.equals( decoder.get_columns(),
+                                m_columns ) ) return;
+
+            decoder.read( ( time_ms, values ) ->
+                          {
+                              try
+                              {
+                                  append_CSV_record( time_ms,
+                                                     values,
+                                                     output,
+                                                     number );
+                                  return true;
+                              }
+                              catch( IOException exception )
+                              {
+                                  failure[0] = exception;
+                                  return false;
+                              }
+                          } );
+        }
+        catch( NoSuchFileException exception )
+        {
+            // Expired since the segments were listed.
+        }
+
+        if( failure[0] != null ) throw failure[0];
+    }
+
+    private void append_CSV_record( long time_ms,
+                                    double[] values,
+                                    Appendable output,
+                                    byte[] number )
+            throws IOException
+    {
+        output.append( ( time_ms == NO_TIME ) ? "N/A"
+                                              : Time_of_day_table.UTC_FORMATTER.format( Instant.ofEpochMilli( time_ms ) ) );
+
+        for( int index = 0; index < m_columns.length; index++ )
+        {
+            output.append( ',' );
+
+            Column column = m_columns[index];
+            double value = values[index];
+            int length = ( column.type == Column.Type.INT ) ? Number_formatter.format_long( (int)value,
+                                                                                              number,
+                                                                                              0 )
+                                                            : Number_formatter.format_double( value,
+                                                                                              ( column.type
+                                                                                                      == Column.Type.SCALED )
+                                                                                                      ? column.decimals
+                                                                                                      : -1,
+                                                                                              number,
+                                                                                              0 );
+            for( int i = 0; i < length; i++ )
+            {
+                output.append( (char)number[i] );
+            }
+        }
+
+        output.append( '\n' );
+    }
+
+    private static boolean has_header( FileChannel channel,
+                                       byte[] header )
+            throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate( header.length );
+        while( buffer.hasRemaining() )
+        {
+            if( channel.read( buffer,
+                              buffer.position() ) < 0 ) return false;
+        }
+
+        return Arrays.equals( buffer.array(),
+                              header );
+    }
+
+    /**
+     * @return The header of a segment with the columns.
+     */
+    static byte[] make_header( Column[] columns )
+    {
+        ByteBuffer header = ByteBuffer.allocate( get_header_size( columns ) );
+        header.put( MAGIC_0 )
+              .put( MAGIC_1 )
+              .put( (byte)FORMAT_VERSION )
+              .put( (byte)columns.length );
+        for( Column column : columns )
+        {
+            header.put( (byte)column.type.ordinal() )
+                  .put( (byte)column.decimals )
+                  .put( (byte)column.name.length() )
+                  .put( column.name.getBytes( StandardCharsets.US_ASCII ) );
+        }
+
+        return header.array();
+    }
+}
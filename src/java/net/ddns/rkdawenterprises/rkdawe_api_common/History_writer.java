@@ -0,0 +1,534 @@
+/*
+ * Copyright (c) 2024 RKDAW Enterprises and Ralph Williamson.
+ *       email: rkdawenterprises@gmail.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ddns.rkdawenterprises.rkdawe_api_common;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Appends records to a {@link History_store} from its own thread, so taking a sample never waits on the disk. Records
+ * are queued in a bounded ring and written together in a group commit every flush interval, or sooner when the queue
+ * is half full, with at most one force of the store per commit. When the queue is full new records are dropped and
+ * counted rather than blocking the sampler.
+ * <p>
+ * Closing commits and forces everything queued before it, whatever the durability.
+ * <p>
+ * The first commit that fails is remembered, and {@link #flush()} and {@link #close()} throw its exception from then
+ * on. Records are still taken and written after a failure, in case it passes. If the writer's thread dies, that is
+ * remembered as the failure too, and records are dropped from then on.
+ * <p>
+ * Thread safe. The queue is preallocated, so queueing a record only copies its values.
+ */
+@SuppressWarnings("unused")
+public class History_writer implements Closeable
+{
+    public enum Durability
+    {
+        /**
+         * Each commit is written to the operating system, which writes it to the device in its own time. A crash of
+         * the process loses nothing written, losing power can lose the last few seconds.
+         */
+        WRITE,
+
+        /**
+         * Each commit is forced to the device before it counts as committed.
+         */
+        FORCE
+    }
+
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final long DEFAULT_FLUSH_INTERVAL_MS = 10 * 1000;
+
+    private final History_store m_store;
+    private final int m_capacity;
+    private final long m_flush_interval_ns;
+    private final Durability m_durability;
+    private final boolean m_history_record;
+    private final Thread m_thread;
+
+    private final ReentrantLock m_lock = new ReentrantLock();
+    private final Condition m_work = m_lock.newCondition();
+    private final Condition m_committed_condition = m_lock.newCondition();
+
+    /*
+     * The ring, guarded by the lock.
+     */
+    private final long[] m_times;
+    private final double[][] m_values;
+    private int m_head = 0;
+    private int m_count = 0;
+    private long m_queued = 0;
+    private long m_committed = 0;
+    private long m_forced = 0;
+    private long m_flush_target = 0;
+    private boolean m_closed = false;
+    private IOException m_failure = null;
+
+    /*
+     * The writer thread's copy of a commit, so the lock is not held while writing.
+     */
+    private final long[] m_batch_times;
+    private final double[][] m_batch_values;
+
+    private volatile long m_dropped = 0;
+    private volatile long m_failed = 0;
+    private volatile long m_commits = 0;
+    private volatile long m_last_commit_latency_ns = 0;
+    private volatile long m_max_commit_latency_ns = 0;
+    private volatile long m_max_queue_depth = 0;
+
+    /**
+     * A writer with the default capacity and flush interval, forcing each commit.
+     */
+    public History_writer( History_store store )
+    {
+        this( store,
+              DEFAULT_CAPACITY,
+              DEFAULT_FLUSH_INTERVAL_MS,
+              Durability.FORCE );
+    }
+
+    /**
+     * Starts the writer's thread.
+     *
+     * @param store             The store to append to, which is not closed with the writer.
+     * @param capacity          The most records queued.
+     * @param flush_interval_ms The longest a record waits to be committed.
+     * @param durability        What a commit waits for.
+     *
+     * @throws IllegalArgumentException If the capacity or interval are not positive.
+     */
+    public History_writer( History_store store,
+                           int capacity,
+                           long flush_interval_ms,
+                           Durability durability )
+            throws IllegalArgumentException
+    {
+        if( capacity < 1 ) throw new IllegalArgumentException( "Bad capacity: " + capacity );
+        if( flush_interval_ms < 1 ) throw new IllegalArgumentException( "Bad flush interval: " + flush_interval_ms );
+
+        m_store = store;
+        m_capacity = capacity;
+        m_flush_interval_ns = TimeUnit.MILLISECONDS.toNanos( flush_interval_ms );
+        m_durability = durability;
+
+        History_store.Column[] columns = store.get_columns();
+        m_history_record = Arrays.equals( columns,
+                                          History_store.get_history_columns() );
+        m_times = new long[capacity];
+        m_values = new double[capacity][columns.length];
+        m_batch_times = new long[capacity];
+        m_batch_values = new double[capacity][columns.length];
+
+        m_thread = new Thread( this::run,
+                               "History_writer" );
+        m_thread.setDaemon( true );
+        m_thread.start();
+    }
+
+    /**
+     * Queues the history record of the weather data. The store's columns must be those of
+     * {@link History_store#get_history_columns()}.
+     *
+     * @return False if the queue is full or the writer closed, and the record was dropped.
+     *
+     * @throws IllegalStateException If the store has other columns.
+     */
+    public boolean offer( Weather_data data )
+            throws IllegalStateException
+    {
+        if( !m_history_record ) throw new IllegalStateException( "Not a store of the history record" );
+
+        m_lock.lock();
+        try
+        {
+            if( !has_room() ) return false;
+
+            int tail = ( m_head + m_count ) % m_capacity;
+            m_times[tail] = History_store.get_history_record( data,
+                                                              m_values[tail] );
+            queued();
+            return true;
+        }
+        finally
+        {
+            m_lock.unlock();
+        }
+    }
+
+    /**
+     * Queues a record.
+     *
+     * @param time_ms The timestamp, in milliseconds since the epoch, or {@link History_store#NO_TIME}.
+     * @param values  A value for each column of the store, copied.
+     *
+     * @return False if the queue is full or the writer closed, and the record was dropped.
+     *
+     * @throws IllegalArgumentException If the number of values does not match the store's columns.
+     */
+    public boolean offer( long time_ms,
+                          double[] values )
+            throws IllegalArgumentException
+    {
+        if( values.length != m_values[0].length )
+        {
+            throw new IllegalArgumentException( "Expected " + m_values[0].length + " values" );
+        }
+
+        m_lock.lock();
+        try
+        {
+            if( !has_room() ) return false;
+
+            int tail = ( m_head + m_count ) % m_capacity;
+            m_times[tail] = time_ms;
+            System.arraycopy( values,
+                              0,
+                              m_values[tail],
+                              0,
+                              values.length );
+            queued();
+            return true;
+        }
+        finally
+        {
+            m_lock.unlock();
+        }
+    }
+
+    /**
+     * Commits and forces the records queued before the call, waiting for it.
+     *
+     * @throws IOException          If a commit has failed, now or before.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public void flush()
+            throws IOException, InterruptedException
+    {
+        m_lock.lock();
+        try
+        {
+            long target = m_queued;
+            if( target > m_flush_target ) m_flush_target = target;
+            m_work.signal();
+            while( true )
+            {
+                if( m_failure != null ) throw m_failure;
+                if( m_forced >= target ) return;
+                if( !m_thread.isAlive() ) throw new IOException( "History writer stopped" );
+
+                m_committed_condition.await( 100,
+                                             TimeUnit.MILLISECONDS );
+            }
+        }
+        finally
+        {
+            m_lock.unlock();
+        }
+    }
+
+    /**
+     * Stops taking records, then commits and forces everything queued and stops the thread.
+     *
+     * @throws IOException If a commit has failed, now or before.
+     */
+    @Override
+    public void close()
+            throws IOException
+    {
+        m_lock.lock();
+        try
+        {
+            m_closed = true;
+            m_work.signal();
+        }
+        finally
+        {
+            m_lock.unlock();
+        }
+
+        boolean interrupted = false;
+        while( m_thread.isAlive() )
+        {
+            try
+            {
+                m_thread.join();
+            }
+            catch( InterruptedException exception )
+            {
+                interrupted = true;
+            }
+        }
+
+        if( interrupted ) Thread.currentThread()
+                                .interrupt();
+
+        m_lock.lock();
+        try
+        {
+            if( m_failure != null ) throw m_failure;
+        }
+        finally
+        {
+            m_lock.unlock();
+        }
+    }
+
+    /**
+     * @return The number of records waiting to be committed.
+     */
+    public int get_queue_depth()
+    {
+        m_lock.lock();
+        try
+        {
+            return m_count;
+        }
+        finally
+        {
+            m_lock.unlock();
+        }
+    }
+
+    /**
+     * @return The most records that have been waiting at once.
+     */
+    public long get_max_queue_depth()
+    {
+        return m_max_queue_depth;
+    }
+
+    /**
+     * @return The number of records dropped because the queue was full or the writer closed.
+     */
+    public long get_dropped()
+    {
+        return m_dropped;
+    }
+
+    /**
+     * @return The number of records lost because writing them failed.
+     */
+    public long get_failed()
+    {
+        return m_failed;
+    }
+
+    /**
+     * @return The number of group commits.
+     */
+    public long get_commits()
+    {
+        return m_commits;
+    }
+
+    /**
+     * @return How long the last commit took to write, and force if it does, in nanoseconds.
+     */
+    public long get_last_commit_latency_ns()
+    {
+        return m_last_commit_latency_ns;
+    }
+
+    /**
+     * @return The longest a commit has taken, in nanoseconds.
+     */
+    public long get_max_commit_latency_ns()
+    {
+        return m_max_commit_latency_ns;
+    }
+
+    /*
+     * Called with the lock held, counting a dropped record.
+     */
+    private boolean has_room()
+    {
+        if( m_closed || ( m_count == m_capacity ) )
+        {
+            m_dropped++;
+            return false;
+        }
+
+        return true;
+    }
+
+    /*
+     * Called with the lock held once the record is in the ring.
+     */
+    private void queued()
+    {
+        m_count++;
+        m_queued++;
+        if( m_count > m_max_queue_depth ) m_max_queue_depth = m_count;
+
+        // Early commit so a burst does not fill the queue.
+        if( m_count == ( ( m_capacity + 1 ) / 2 ) ) m_work.signal();
+    }
+
+    private void run()
+    {
+        try
+        {
+            commit_until_closed();
+        }
+        catch( RuntimeException | Error exception )
+        {
+            m_lock.lock();
+            try
+            {
+                if( m_failure == null ) m_failure = new IOException( "History writer stopped",
+                                                                     exception );
+                m_closed = true;
+                m_committed_condition.signalAll();
+            }
+            finally
+            {
+                m_lock.unlock();
+            }
+
+            throw exception;
+        }
+    }
+
+    private void commit_until_closed()
+    {
+        long next_commit = System.nanoTime() + m_flush_interval_ns;
+        while( true )
+        {
+            int count;
+            boolean force;
+            boolean closing;
+            m_lock.lock();
+            try
+            {
+                while( !m_closed && ( m_flush_target <= m_forced ) && ( m_count < ( ( m_capacity + 1 ) / 2 ) ) )
+                {
+                    long wait = next_commit - System.nanoTime();
+                    if( wait <= 0 ) break;
+
+                    m_work.awaitNanos( wait );
+                }
+
+                count = m_count;
+                for( int i = 0; i < count; i++ )
+                {
+                    int index = ( m_head + i ) % m_capacity;
+                    m_batch_times[i] = m_times[index];
+                    System.arraycopy( m_values[index],
+                                      0,
+                                      m_batch_values[i],
+                                      0,
+                                      m_values[index].length );
+                }
+
+                m_head = ( m_head + count ) % m_capacity;
+                m_count = 0;
+                closing = m_closed;
+
+                // An idle writer forces nothing unless a flush or the close is waiting on it.
+                force = ( ( count > 0 ) && ( m_durability == Durability.FORCE ) ) || ( m_flush_target > m_forced )
+                        || closing;
+            }
+            catch( InterruptedException exception )
+            {
+                // Nothing interrupts the writer but something else shutting down, finish as if closed.
+                m_closed = true;
+                continue;
+            }
+            finally
+            {
+                m_lock.unlock();
+            }
+
+            IOException failure = commit( count,
+                                          force );
+            next_commit = System.nanoTime() + m_flush_interval_ns;
+
+            m_lock.lock();
+            try
+            {
+                m_committed += count;
+                if( failure == null )
+                {
+                    if( force ) m_forced = m_committed;
+                }
+                else
+                {
+                    if( m_failure == null ) m_failure = failure;
+
+                    // The waiting flushes throw, so their target is dropped rather than retried at once.
+                    m_flush_target = m_forced;
+                }
+
+                m_committed_condition.signalAll();
+            }
+            finally
+            {
+                m_lock.unlock();
+            }
+
+            if( closing ) return;
+        }
+    }
+
+    /*
+     * Returns the exception if the commit failed, or null.
+     */
+    private IOException commit( int count,
+                                boolean force )
+    {
+        if( ( count == 0 ) && !force ) return null;
+
+        long start = System.nanoTime();
+        int written = 0;
+        IOException failure = null;
+        try
+        {
+            for( ; written < count; written++ )
+            {
+                m_store.append( m_batch_times[written],
+                                m_batch_values[written] );
+            }
+
+            if( force ) m_store.flush();
+        }
+        catch( IOException exception )
+        {
+            m_failed += count - written;
+            failure = exception;
+            System.out.println( "History commit failed: " + exception );
+        }
+        catch( RuntimeException exception )
+        {
+            m_failed += count - written;
+            failure = new IOException( "History commit failed",
+                                       exception );
+            System.out.println( "History commit failed: " + exception );
+        }
+
+        long latency = System.nanoTime() - start;
+        m_last_commit_latency_ns = latency;
+        if( latency > m_max_commit_latency_ns ) m_max_commit_latency_ns = latency;
+        m_commits++;
+
+        return failure;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2024 RKDAW Enterprises and Ralph Williamson.
+ *       email: rkdawenterprises@gmail.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ddns.rkdawenterprises.rkdawe_api_common;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+/**
+ * Reads the JSON of the API's objects straight from a stream with the type adapter of their Gson, without first
+ * reading it all into a String. Accepts what {@link Gson#fromJson(String, Class)} does. Bad data is reported by its
+ * position in the JSON, the data itself is never copied or printed.
+ */
+final class JSON_deserializer
+{
+    private JSON_deserializer()
+    {
+    }
+
+    /**
+     * @param gson  The Gson of the type, for its adapter.
+     * @param type  The type to read.
+     * @param input The JSON, read up to the end of the document, which is not closed.
+     *
+     * @return The object, or null if the JSON is empty or is not a valid object of the type.
+     *
+     * @throws IOException If reading the input fails.
+     */
+    static < T > T read( Gson gson,
+                         Class< T > type,
+                         Reader input )
+            throws IOException
+    {
+        JsonReader reader = gson.newJsonReader( input );
+        try
+        {
+            // Goes through the type's adapter, and is as lenient as Gson is for strings.
+            T object = gson.fromJson( reader,
+                                      type );
+            if( ( object != null ) && ( reader.peek() != JsonToken.END_DOCUMENT ) )
+            {
+                throw new MalformedJsonException( "JSON document was not fully consumed at " + reader.getPath() );
+            }
+
+            return object;
+        }
+        catch( JsonSyntaxException exception )
+        {
+            // Gson reports a failed read as bad syntax too.
+            Throwable cause = exception.getCause();
+            if( ( cause instanceof IOException ) && !( cause instanceof EOFException )
+                    && !( cause instanceof MalformedJsonException ) )
+            {
+                throw (IOException)cause;
+            }
+
+            report( type,
+                    exception.toString() );
+            return null;
+        }
+        catch( EOFException | MalformedJsonException | JsonParseException exception )
+        {
+            report( type,
+                    exception.toString() );
+            return null;
+        }
+        catch( NumberFormatException exception )
+        {
+            // Its message holds the text, which is not to be reported.
+            report( type,
+                    "Bad number at " + reader.getPath() );
+            return null;
+        }
+    }
+
+    /**
+     * @return The object, or null if the JSON is null, empty or is not a valid object of the type.
+     */
+    static < T > T read( Gson gson,
+                         Class< T > type,
+                         String JSON )
+    {
+        if( JSON == null ) return null;
+
+        try
+        {
+            return read( gson,
+                         type,
+                         new StringReader( JSON ) );
+        }
+        catch( IOException exception )
+        {
+            throw new UncheckedIOException( exception );
+        }
+    }
+
+    private static void report( Class< ? > type,
+                                String error )
+    {
+        System.out.println( "Bad data format for " + type.getSimpleName() + ": " + error );
+    }
+}
@@ -0,0 +1,613 @@
+/*
+ * Copyright (c) 2024 RKDAW Enterprises and Ralph Williamson.
+ *       email: rkdawenterprises@gmail.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ddns.rkdawenterprises.rkdawe_api_common;
+
+import java.io.IOException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * The explicit Gson type adapters of the API's objects, registered on their shared Gson instances so they are
+ * serialized without reflection. The JSON is the same as Gson's reflective adapters give: fields in declaration
+ * order, null fields left out, unknown fields skipped when reading, and missing fields left at their defaults.
+ * <p>
+ * {@link Weather_data} is read and written through {@link Weather_data.Field}, so a field added there needs no
+ * change here. The other objects are small and listed field by field, so a field added to one of them must be added
+ * to its adapter too. Server only objects have their adapters with them, so the client does not need their classes.
+ */
+final class JSON_type_adapters
+{
+    private static final Weather_data.Field[] FIELDS = Weather_data.Field.get_values();
+
+    private JSON_type_adapters()
+    {
+    }
+
+    /**
+     * Registers every adapter.
+     *
+     * @return The builder.
+     */
+    static GsonBuilder register( GsonBuilder builder )
+    {
+        Weather_data_adapter weather_data = new Weather_data_adapter();
+        Zoned_date_time_adapter zoned_date_time = new Zoned_date_time_adapter();
+        File_info_adapter file_info = new File_info_adapter( zoned_date_time );
+
+        return builder.registerTypeAdapter( Weather_data.class,
+                                            weather_data )
+                      .registerTypeAdapter( Get_weather_station_data_GET_response.class,
+                                            new Response_adapter( weather_data ) )
+                      .registerTypeAdapter( ZonedDateTime.class,
+                                            zoned_date_time )
+                      .registerTypeAdapter( Directory_listing.File_info.class,
+                                            file_info )
+                      .registerTypeAdapter( Directory_listing.class,
+                                            new Directory_listing_adapter( file_info ) );
+    }
+
+    static final class Weather_data_adapter extends TypeAdapter< Weather_data >
+    {
+        @Override
+        public void write( JsonWriter out,
+                           Weather_data data )
+                throws IOException
+        {
+            if( data == null )
+            {
+                out.nullValue();
+                return;
+            }
+
+            out.beginObject();
+            for( Weather_data.Field field : FIELDS )
+            {
+                if( field.is_string() )
+                {
+                    String value = field.get_string( data );
+                    if( value != null )
+                    {
+                        out.name( field.json_name )
+                           .value( value );
+                    }
+                }
+                else if( field.kind == Weather_data.Field.Kind.INT )
+                {
+                    out.name( field.json_name )
+                       .value( (int)field.get_number( data ) );
+                }
+                else
+                {
+                    out.name( field.json_name );
+                    write_double( out,
+                                  field.get_number( data ) );
+                }
+            }
+
+            out.endObject();
+        }
+
+        @Override
+        public Weather_data read( JsonReader in )
+                throws IOException
+        {
+            if( in.peek() == JsonToken.NULL )
+            {
+                in.nextNull();
+                return null;
+            }
+
+            Weather_data data = new Weather_data();
+            in.beginObject();
+            while( in.hasNext() )
+            {
+                Weather_data.Field field = Weather_data.Field.for_json_name( in.nextName() );
+                if( field == null )
+                {
+                    in.skipValue();
+                }
+                else if( field.is_string() )
+                {
+                    field.set_string( data,
+                                      read_string( in ) );
+                }
+                else if( in.peek() == JsonToken.NULL )
+                {
+                    // Left at its default, as Gson does for primitives.
+                    in.nextNull();
+                }
+                else if( field.kind == Weather_data.Field.Kind.INT )
+                {
+                    field.set_number( data,
+                                      read_int( in ) );
+                }
+                else
+                {
+                    field.set_number( data,
+                                      in.nextDouble() );
+                }
+            }
+
+            in.endObject();
+            return data;
+        }
+    }
+
+    static final class Response_adapter extends TypeAdapter< Get_weather_station_data_GET_response >
+    {
+        private final Weather_data_adapter m_weather_data;
+
+        Response_adapter( Weather_data_adapter weather_data )
+        {
+            m_weather_data = weather_data;
+        }
+
+        @Override
+        public void write( JsonWriter out,
+                           Get_weather_station_data_GET_response response )
+                throws IOException
+        {
+            if( response == null )
+            {
+                out.nullValue();
+                return;
+            }
+
+            out.beginObject();
+            if( response.weather_data != null )
+            {
+                out.name( "weather_data" );
+                m_weather_data.write( out,
+                                      response.weather_data );
+            }
+
+            if( response.success != null ) out.name( "success" )
+                                              .value( response.success );
+            if( response.epoch != null ) out.name( "epoch" )
+                                            .value( response.epoch );
+            if( response.version != null ) out.name( "version" )
+                                              .value( response.version );
+            if( response.base_version != null ) out.name( "base_version" )
+                                                   .value( response.base_version );
+            if( response.delta != null )
+            {
+                out.name( "delta" );
+                write_element( out,
+                               response.delta );
+            }
+
+            out.endObject();
+        }
+
+        @Override
+        public Get_weather_station_data_GET_response read( JsonReader in )
+                throws IOException
+        {
+            if( in.peek() == JsonToken.NULL )
+            {
+                in.nextNull();
+                return null;
+            }
+
+            Get_weather_station_data_GET_response response = new Get_weather_station_data_GET_response();
+            in.beginObject();
+            while( in.hasNext() )
+            {
+                switch( in.nextName() )
+                {
+                    case "weather_data":
+                        response.weather_data = m_weather_data.read( in );
+                        break;
+                    case "success":
+                        response.success = read_string( in );
+                        break;
+                    case "epoch":
+                        response.epoch = read_string( in );
+                        break;
+                    case "version":
+                        response.version = read_long( in );
+                        break;
+                    case "base_version":
+                        response.base_version = read_long( in );
+                        break;
+                    case "delta":
+                        response.delta = read_object( in );
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+
+            in.endObject();
+            return response;
+        }
+    }
+
+    /**
+     * Writes the time as {@link ZonedDateTime#toString()}.
+     */
+    static final class Zoned_date_time_adapter extends TypeAdapter< ZonedDateTime >
+    {
+        @Override
+        public void write( JsonWriter out,
+                           ZonedDateTime value )
+                throws IOException
+        {
+            if( value == null )
+            {
+                out.nullValue();
+                return;
+            }
+
+            out.value( value.toString() );
+        }
+
+        @Override
+        public ZonedDateTime read( JsonReader in )
+                throws IOException
+        {
+            if( in.peek() == JsonToken.NULL )
+            {
+                in.nextNull();
+                return null;
+            }
+
+            String path = in.getPath();
+            try
+            {
+                return ZonedDateTime.parse( in.nextString() );
+            }
+            catch( DateTimeParseException exception )
+            {
+                // Its message holds the text, which is not to be reported.
+                throw new JsonSyntaxException( "Bad time at " + path );
+            }
+        }
+    }
+
+    static final class File_info_adapter extends TypeAdapter< Directory_listing.File_info >
+    {
+        private final Zoned_date_time_adapter m_time;
+
+        File_info_adapter( Zoned_date_time_adapter time )
+        {
+            m_time = time;
+        }
+
+        @Override
+        public void write( JsonWriter out,
+                           Directory_listing.File_info info )
+                throws IOException
+        {
+            if( info == null )
+            {
+                out.nullValue();
+                return;
+            }
+
+            out.beginObject();
+            if( info.m_name != null ) out.name( "m_name" )
+                                         .value( info.m_name );
+            out.name( "m_size" )
+               .value( info.m_size );
+            write_time( out,
+                        "m_last_modified_time",
+                        info.m_last_modified_time );
+            write_time( out,
+                        "m_creation_time",
+                        info.m_creation_time );
+            write_time( out,
+                        "m_last_access_time",
+                        info.m_last_access_time );
+            out.endObject();
+        }
+
+        @Override
+        public Directory_listing.File_info read( JsonReader in )
+                throws IOException
+        {
+            if( in.peek() == JsonToken.NULL )
+            {
+                in.nextNull();
+                return null;
+            }
+
+            Directory_listing.File_info info = new Directory_listing.File_info();
+            in.beginObject();
+            while( in.hasNext() )
+            {
+                switch( in.nextName() )
+                {
+                    case "m_name":
+                        info.m_name = read_string( in );
+                        break;
+                    case "m_size":
+                        if( in.peek() == JsonToken.NULL )
+                        {
+                            in.nextNull();
+                        }
+                        else
+                        {
+                            info.m_size = read_long( in );
+                        }
+                        break;
+                    case "m_last_modified_time":
+                        info.m_last_modified_time = m_time.read( in );
+                        break;
+                    case "m_creation_time":
+                        info.m_creation_time = m_time.read( in );
+                        break;
+                    case "m_last_access_time":
+                        info.m_last_access_time = m_time.read( in );
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+
+            in.endObject();
+            return info;
+        }
+
+        private void write_time( JsonWriter out,
+                                 String name,
+                                 ZonedDateTime time )
+                throws IOException
+        {
+            if( time == null ) return;
+
+            out.name( name );
+            m_time.write( out,
+                          time );
+        }
+    }
+
+    static final class Directory_listing_adapter extends TypeAdapter< Directory_listing >
+    {
+        private final File_info_adapter m_file_info;
+
+        Directory_listing_adapter( File_info_adapter file_info )
+        {
+            m_file_info = file_info;
+        }
+
+        @Override
+        public void write( JsonWriter out,
+                           Directory_listing listing )
+                throws IOException
+        {
+            if( listing == null )
+            {
+                out.nullValue();
+                return;
+            }
+
+            out.beginObject();
+            if( listing.m_file_list != null )
+            {
+                out.name( "m_file_list" )
+                   .beginArray();
+                for( Directory_listing.File_info info : listing.m_file_list )
+                {
+                    m_file_info.write( out,
+                                       info );
+                }
+
+                out.endArray();
+            }
+
+            out.endObject();
+        }
+
+        @Override
+        public Directory_listing read( JsonReader in )
+                throws IOException
+        {
+            if( in.peek() == JsonToken.NULL )
+            {
+                in.nextNull();
+                return null;
+            }
+
+            Directory_listing listing = new Directory_listing();
+            in.beginObject();
+            while( in.hasNext() )
+            {
+                if( !in.nextName()
+                       .equals( "m_file_list" ) )
+                {
+                    in.skipValue();
+                    continue;
+                }
+
+                if( in.peek() == JsonToken.NULL )
+                {
+                    in.nextNull();
+                    listing.m_file_list = null;
+                    continue;
+                }
+
+                List< Directory_listing.File_info > file_list = new ArrayList< Directory_listing.File_info >();
+                in.beginArray();
+                while( in.hasNext() )
+                {
+                    file_list.add( m_file_info.read( in ) );
+                }
+
+                in.endArray();
+                listing.m_file_list = file_list;
+            }
+
+            in.endObject();
+            return listing;
+        }
+    }
+
+    /*
+     * Gson lets its writer take NaN and infinity, then rejects them itself.
+     */
+    private static void write_double( JsonWriter out,
+                                      double value )
+            throws IOException
+    {
+        if( Double.isNaN( value ) || Double.isInfinite( value ) )
+        {
+            throw new IllegalArgumentException( value + " is not a valid double value as per JSON specification. To "
+                                                        + "override this behavior, use "
+                                                        + "GsonBuilder.serializeSpecialFloatingPointValues() "
+                                                        + "method." );
+        }
+
+        out.value( value );
+    }
+
+    /*
+     * As Gson reads strings, taking booleans as their text.
+     */
+    static String read_string( JsonReader in )
+            throws IOException
+    {
+        JsonToken token = in.peek();
+        if( token == JsonToken.NULL )
+        {
+            in.nextNull();
+            return null;
+        }
+
+        if( token == JsonToken.BOOLEAN ) return Boolean.toString( in.nextBoolean() );
+
+        return in.nextString();
+    }
+
+    private static int read_int( JsonReader in )
+            throws IOException
+    {
+        try
+        {
+            return in.nextInt();
+        }
+        catch( NumberFormatException exception )
+        {
+            // Its message holds the text, which is not to be reported.
+            throw new JsonSyntaxException( "Bad number at " + in.getPath() );
+        }
+    }
+
+    private static Long read_long( JsonReader in )
+            throws IOException
+    {
+        if( in.peek() == JsonToken.NULL )
+        {
+            in.nextNull();
+            return null;
+        }
+
+        try
+        {
+            return in.nextLong();
+        }
+        catch( NumberFormatException exception )
+        {
+            // Its message holds the text, which is not to be reported.
+            throw new JsonSyntaxException( "Bad number at " + in.getPath() );
+        }
+    }
+
+    private static JsonObject read_object( JsonReader in )
+            throws IOException
+    {
+        if( in.peek() == JsonToken.NULL )
+        {
+            in.nextNull();
+            return null;
+        }
+
+        JsonElement element = JsonParser.parseReader( in );
+        if( !element.isJsonObject() ) throw new JsonSyntaxException( "Expected an object at " + in.getPath() );
+
+        return element.getAsJsonObject();
+    }
+
+    /*
+     * Writes as Gson's JsonElement adapter does.
+     */
+    private static void write_element( JsonWriter out,
+                                       JsonElement element )
+            throws IOException
+    {
+        if( ( element == null ) || element.isJsonNull() )
+        {
+            out.nullValue();
+        }
+        else if( element.isJsonPrimitive() )
+        {
+            JsonPrimitive primitive = element.getAsJsonPrimitive();
+            if( primitive.isNumber() )
+            {
+                out.value( primitive.getAsNumber() );
+            }
+            else if( primitive.isBoolean() )
+            {
+                out.value( primitive.getAsBoolean() );
+            }
+            else
+            {
+                out.value( primitive.getAsString() );
+            }
+        }
+        else if( element.isJsonArray() )
+        {
+            out.beginArray();
+            for( JsonElement value : element.getAsJsonArray() )
+            {
+                write_element( out,
+                               value );
+            }
+
+            out.endArray();
+        }
+        else
+        {
+            out.beginObject();
+            for( Map.Entry< String, JsonElement > entry : element.getAsJsonObject()
+                                                                 .entrySet() )
+            {
+                out.name( entry.getKey() );
+                write_element( out,
+                               entry.getValue() );
+            }
+
+            out.endObject();
+        }
+    }
+}
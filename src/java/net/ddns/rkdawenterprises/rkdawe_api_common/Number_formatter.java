@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2024 RKDAW Enterprises and Ralph Williamson.
+ *       email: rkdawenterprises@gmail.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ddns.rkdawenterprises.rkdawe_api_common;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Formats numbers as ASCII into a byte array, giving the same text as {@link Long#toString(long)} and
+ * {@link Double#toString(double)}. Station values with a fixed number of decimals are formatted directly from their
+ * scaled value, without allocating, anything else goes through {@link Double#toString(double)}.
+ */
+@SuppressWarnings("unused")
+final class Number_formatter
+{
+    /**
+     * The most bytes any number can take.
+     */
+    static final int MAX_LENGTH = 32;
+
+    private static final double[] SCALES = { 1, 10, 100, 1000 };
+    private static final long[] POWERS = { 1, 10, 100, 1000 };
+    private static final byte[] NO_DATA_DOUBLE = Double.toString( Double.MAX_VALUE )
+                                                       .getBytes( StandardCharsets.US_ASCII );
+    private static final byte[] MIN_LONG = Long.toString( Long.MIN_VALUE )
+                                               .getBytes( StandardCharsets.US_ASCII );
+
+    /*
+     * Larger values are left to Double.toString, which changes to exponent notation at 10^7.
+     */
+    private static final long MAX_FAST_SCALED_VALUE = 1_000_000;
+
+    private Number_formatter()
+    {
+    }
+
+    /**
+     * @param value    The value to format.
+     * @param decimals The number of decimals the value has, or -1 if it is not a station value.
+     * @param buffer   The buffer to format into, with at least {@link #MAX_LENGTH} bytes after the offset.
+     * @param offset   Where in the buffer to start.
+     *
+     * @return The offset after the number.
+     */
+    static int format_double( double value,
+                              int decimals,
+                              byte[] buffer,
+                              int offset )
+    {
+        if( value == Double.MAX_VALUE )
+        {
+            return copy( NO_DATA_DOUBLE,
+                         buffer,
+                         offset );
+        }
+
+        if( decimals > 0 )
+        {
+            double scaled = Math.rint( value * SCALES[decimals] );
+            if( ( Math.abs( scaled ) < MAX_FAST_SCALED_VALUE ) && ( ( scaled / SCALES[decimals] ) == value )
+                    && ( Double.doubleToRawLongBits( value ) != Double.doubleToRawLongBits( -0.0 ) ) )
+            {
+                return format_fixed( (long)scaled,
+                                     decimals,
+                                     buffer,
+                                     offset );
+            }
+        }
+
+        String string = Double.toString( value );
+        for( int i = 0; i < string.length(); i++ )
+        {
+            buffer[offset++] = (byte)string.charAt( i );
+        }
+
+        return offset;
+    }
+
+    /**
+     * @param value  The value to format.
+     * @param buffer The buffer to format into, with at least {@link #MAX_LENGTH} bytes after the offset.
+     * @param offset Where in the buffer to start.
+     *
+     * @return The offset after the number.
+     */
+    static int format_long( long value,
+                            byte[] buffer,
+                            int offset )
+    {
+        if( value == Long.MIN_VALUE )
+        {
+            return copy( MIN_LONG,
+                         buffer,
+                         offset );
+        }
+
+        if( value < 0 )
+        {
+            buffer[offset++] = '-';
+            value = -value;
+        }
+
+        if( value <= Integer.MAX_VALUE )
+        {
+            return format_int( (int)value,
+                               buffer,
+                               offset );
+        }
+
+        int digits = 1;
+        for( long rest = value / 10; rest != 0; rest /= 10 )
+        {
+            digits++;
+        }
+
+        for( int i = offset + digits - 1; i >= offset; i-- )
+        {
+            buffer[i] = (byte)( '0' + ( value % 10 ) );
+            value /= 10;
+        }
+
+        return offset + digits;
+    }
+
+    /*
+     * Station values fit in an int, whose division is cheaper.
+     */
+    private static int format_int( int value,
+                                   byte[] buffer,
+                                   int offset )
+    {
+        int digits = 1;
+        for( int rest = value / 10; rest != 0; rest /= 10 )
+        {
+            digits++;
+        }
+
+        for( int i = offset + digits - 1; i >= offset; i-- )
+        {
+            int rest = value / 10;
+            buffer[i] = (byte)( '0' + ( value - ( rest * 10 ) ) );
+            value = rest;
+        }
+
+        return offset + digits;
+    }
+
+    /*
+     * Formats as Double.toString does, trailing zeros removed but at least one decimal.
+     */
+    private static int format_fixed( long scaled,
+                                     int decimals,
+                                     byte[] buffer,
+                                     int offset )
+    {
+        if( scaled < 0 )
+        {
+            buffer[offset++] = '-';
+            scaled = -scaled;
+        }
+
+        long power = POWERS[decimals];
+        offset = format_long( scaled / power,
+                              buffer,
+                              offset );
+        buffer[offset++] = '.';
+
+        int fraction = (int)( scaled % power );
+        if( fraction == 0 )
+        {
+            buffer[offset++] = '0';
+            return offset;
+        }
+
+        while( ( fraction % 10 ) == 0 )
+        {
+            fraction /= 10;
+            decimals--;
+        }
+
+        for( int i = offset + decimals - 1; i >= offset; i-- )
+        {
+            buffer[i] = (byte)( '0' + ( fraction % 10 ) );
+            fraction /= 10;
+        }
+
+        return offset + decimals;
+    }
+
+    private static int copy( byte[] bytes,
+                             byte[] buffer,
+                             int offset )
+    {
+        System.arraycopy( bytes,
+                          0,
+                          buffer,
+                          offset,
+                          bytes.length );
+        return offset + bytes.length;
+    }
+}
@@ -0,0 +1,360 @@
+/*
+ * Copyright (c) 2024 RKDAW Enterprises and Ralph Williamson.
+ *       email: rkdawenterprises@gmail.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ddns.rkdawenterprises.rkdawe_api_common;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Assembles LOOP/LOOP2 packets, and requested HILOWS blocks, out of the raw byte stream from the weather station.
+ * The stream can be given in chunks of any size and alignment. Every byte is examined once by the header search,
+ * and the position of each possible header seen is remembered, so when a frame is rejected the search picks up at
+ * the next possible header without rescanning. An ACK between packets, as sent in answer to the LPS command, is
+ * skipped rather than counted as a resynchronization.
+ * <p>
+ * The HILOWS block is checked with an incremental CRC as each chunk arrives.
+ * <p>
+ * Not thread safe, meant to be fed by the single thread reading the serial port.
+ */
+@SuppressWarnings("unused")
+public class Packet_framer
+{
+    public interface Listener
+    {
+        /**
+         * Called for each complete packet that checks. The buffer is a view of the framer's internal buffer with
+         * the packet between its position and limit, it is only valid for the duration of the call.
+         *
+         * @param type   The type of the packet.
+         * @param packet The packet data.
+         */
+        void packet_received( Weather_data.Type type,
+                              ByteBuffer packet );
+    }
+
+    public static final int LOOP_PACKET_SIZE = 99;
+    public static final int HILOWS_PACKET_SIZE = 438;
+
+    private static final byte[] HEADER = { 'L', 'O', 'O' };
+    private static final byte ACK = 0x06;
+
+    private final Listener m_listener;
+
+    private final byte[] m_buffer = new byte[2 * LOOP_PACKET_SIZE];
+    private final ByteBuffer m_view = ByteBuffer.wrap( m_buffer );
+    private int m_start = 0;
+    private int m_count = 0;
+    private int m_matched = 0;
+
+    /*
+     * Positions in the buffer of the headers seen but not yet framed. There can be at most one every header length
+     * within a frame.
+     */
+    private final int[] m_candidates = new int[LOOP_PACKET_SIZE / HEADER.length + 1];
+    private int m_candidates_head = 0;
+    private int m_candidates_count = 0;
+
+    private boolean m_expecting_HILOWS = false;
+    private final byte[] m_HILOWS_buffer = new byte[HILOWS_PACKET_SIZE];
+    private final ByteBuffer m_HILOWS_view = ByteBuffer.wrap( m_HILOWS_buffer );
+    private int m_HILOWS_count = 0;
+    private final Check_CRC.CRC_16 m_HILOWS_CRC = new Check_CRC.CRC_16();
+
+    private long m_bytes_discarded = 0;
+    private int m_number_of_resynchronizations = 0;
+    private int m_number_of_CRC_errors_detected = 0;
+
+    public Packet_framer( Listener listener )
+    {
+        m_listener = listener;
+    }
+
+    /**
+     * Adds a chunk of the station byte stream.
+     *
+     * @param chunk  The stream data.
+     * @param offset The index of the first byte of the data within the chunk.
+     * @param length The number of bytes of data.
+     */
+    public void append( byte[] chunk,
+                        int offset,
+                        int length )
+    {
+        int i = offset;
+        int end = offset + length;
+        while( i < end )
+        {
+            if( m_expecting_HILOWS )
+            {
+                i += append_HILOWS( chunk,
+                                    i,
+                                    end - i );
+            }
+            else
+            {
+                append( chunk[i++] );
+            }
+        }
+    }
+
+    /**
+     * Adds the data between the position and limit of the given buffer to the stream. The buffer's position is
+     * advanced to its limit.
+     *
+     * @param chunk The stream data.
+     */
+    public void append( ByteBuffer chunk )
+    {
+        if( chunk.hasArray() )
+        {
+            append( chunk.array(),
+                    chunk.arrayOffset() + chunk.position(),
+                    chunk.remaining() );
+            chunk.position( chunk.limit() );
+            return;
+        }
+
+        while( chunk.hasRemaining() )
+        {
+            if( m_expecting_HILOWS )
+            {
+                if( ( m_HILOWS_count == 0 ) && ( chunk.get( chunk.position() ) == ACK ) )
+                {
+                    chunk.get();
+                    continue;
+                }
+
+                int length = Math.min( chunk.remaining(),
+                                       HILOWS_PACKET_SIZE - m_HILOWS_count );
+                chunk.get( m_HILOWS_buffer,
+                           m_HILOWS_count,
+                           length );
+                update_HILOWS( length );
+            }
+            else
+            {
+                append( chunk.get() );
+            }
+        }
+    }
+
+    /**
+     * The HILOWS block has no header to synchronize on, so the framer must be told when one has been requested.
+     * The next {@link #HILOWS_PACKET_SIZE} bytes, after the optional ACK, are framed as the HILOWS block. Any
+     * partial LOOP/LOOP2 data is dropped.
+     */
+    public void expect_HILOWS()
+    {
+        reset_LOOP_framing();
+        m_expecting_HILOWS = true;
+        m_HILOWS_count = 0;
+        m_HILOWS_CRC.reset();
+    }
+
+    /**
+     * Drops all partial data, the statistics are kept.
+     */
+    public void reset()
+    {
+        reset_LOOP_framing();
+        m_expecting_HILOWS = false;
+        m_HILOWS_count = 0;
+        m_HILOWS_CRC.reset();
+        m_bytes_discarded = 0;
+    }
+
+    public int get_number_of_resynchronizations()
+    {
+        return m_number_of_resynchronizations;
+    }
+
+    public int get_number_of_CRC_errors_detected()
+    {
+        return m_number_of_CRC_errors_detected;
+    }
+
+    /**
+     * Stores the framing statistics in the given weather data.
+     *
+     * @param weather_data The weather data to update.
+     */
+    public void update_statistics( Weather_data weather_data )
+    {
+        weather_data.number_of_resynchronizations = m_number_of_resynchronizations;
+        weather_data.number_of_CRC_errors_detected = m_number_of_CRC_errors_detected;
+    }
+
+    private void append( byte data )
+    {
+        // The ACK the console sends before the LOOP data is not a lost byte.
+        if( ( data == ACK ) && ( m_count == m_start ) ) return;
+
+        if( m_count == m_buffer.length ) compact();
+
+        m_buffer[m_count++] = data;
+
+        if( data == HEADER[m_matched] )
+        {
+            m_matched++;
+        }
+        else
+        {
+            m_matched = ( data == HEADER[0] ) ? 1 : 0;
+        }
+
+        if( m_matched == HEADER.length )
+        {
+            add_candidate( m_count - HEADER.length );
+            m_matched = 0;
+        }
+
+        if( m_candidates_count == 0 )
+        {
+            discard_to( m_count - m_matched );
+            return;
+        }
+
+        int start = m_candidates[m_candidates_head];
+        if( ( m_count - start ) == LOOP_PACKET_SIZE )
+        {
+            frame( start );
+        }
+    }
+
+    private void frame( int start )
+    {
+        byte type_code = m_buffer[start + 4];
+        if( ( ( type_code == 0x00 ) || ( type_code == 0x01 ) ) && ( m_buffer[start + 95] == 0x0A )
+                && ( m_buffer[start + 96] == 0x0D ) )
+        {
+            if( Check_CRC.calculate_CRC_16( m_buffer,
+                                            start,
+                                            LOOP_PACKET_SIZE ) == 0 )
+            {
+                discard_to( start );
+                if( m_bytes_discarded > 0 )
+                {
+                    m_number_of_resynchronizations++;
+                    m_bytes_discarded = 0;
+                }
+
+                m_view.clear();
+                m_view.position( start )
+                      .limit( start + LOOP_PACKET_SIZE );
+
+                m_start = start + LOOP_PACKET_SIZE;
+                m_candidates_count = 0;
+                m_matched = 0;
+
+                m_listener.packet_received( ( type_code == 0x00 ) ? Weather_data.Type.LOOP : Weather_data.Type.LOOP2,
+                                            m_view );
+                return;
+            }
+
+            m_number_of_CRC_errors_detected++;
+        }
+
+        m_candidates_head = ( m_candidates_head + 1 ) % m_candidates.length;
+        m_candidates_count--;
+
+        discard_to( ( m_candidates_count > 0 ) ? m_candidates[m_candidates_head] : ( m_count - m_matched ) );
+    }
+
+    /*
+     * Returns the number of bytes used from the chunk.
+     */
+    private int append_HILOWS( byte[] chunk,
+                               int offset,
+                               int length )
+    {
+        if( ( m_HILOWS_count == 0 ) && ( chunk[offset] == ACK ) ) return 1;
+
+        int used = Math.min( length,
+                             HILOWS_PACKET_SIZE - m_HILOWS_count );
+        System.arraycopy( chunk,
+                          offset,
+                          m_HILOWS_buffer,
+                          m_HILOWS_count,
+                          used );
+        update_HILOWS( used );
+        return used;
+    }
+
+    private void update_HILOWS( int length )
+    {
+        m_HILOWS_CRC.update( m_HILOWS_buffer,
+                             m_HILOWS_count,
+                             length );
+        m_HILOWS_count += length;
+        if( m_HILOWS_count < HILOWS_PACKET_SIZE ) return;
+
+        boolean valid = m_HILOWS_CRC.is_valid();
+        m_expecting_HILOWS = false;
+        m_HILOWS_count = 0;
+        m_HILOWS_CRC.reset();
+
+        if( !valid )
+        {
+            m_number_of_CRC_errors_detected++;
+            return;
+        }
+
+        m_HILOWS_view.clear();
+        m_listener.packet_received( Weather_data.Type.HILOWS,
+                                    m_HILOWS_view );
+    }
+
+    private void add_candidate( int position )
+    {
+        m_candidates[( m_candidates_head + m_candidates_count ) % m_candidates.length] = position;
+        m_candidates_count++;
+    }
+
+    private void discard_to( int position )
+    {
+        if( position > m_start )
+        {
+            m_bytes_discarded += position - m_start;
+            m_start = position;
+        }
+    }
+
+    private void compact()
+    {
+        int shift = m_start;
+        System.arraycopy( m_buffer,
+                          m_start,
+                          m_buffer,
+                          0,
+                          m_count - m_start );
+        m_count -= shift;
+        m_start = 0;
+
+        for( int i = 0; i < m_candidates_count; i++ )
+        {
+            m_candidates[( m_candidates_head + i ) % m_candidates.length] -= shift;
+        }
+    }
+
+    private void reset_LOOP_framing()
+    {
+        m_start = 0;
+        m_count = 0;
+        m_matched = 0;
+        m_candidates_head = 0;
+        m_candidates_count = 0;
+    }
+}
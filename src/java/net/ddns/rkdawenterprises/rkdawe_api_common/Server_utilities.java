@@ -30,6 +30,10 @@ import org.apache.commons.io.FileUtils;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
 import net.ddns.rkdawenterprises.rkdawe_webapp.User;
 
@@ -53,32 +57,112 @@ public class Server_utilities
             this.AUTHENTICATION_DATABASE_PASS = authentication_database_pass;
         }
 
-        public static String serialize_to_JSON( Database_info object )
+        /*
+         * Written out rather than reflective, as are the other objects of the API.
+         */
+        private static final class JSON_adapter extends TypeAdapter< Database_info >
         {
-            Gson gson = new GsonBuilder().disableHtmlEscaping()
-                                         .setPrettyPrinting()
-                                         .create();
-            return gson.toJson( object );
-        }
+            @Override
+            public void write( JsonWriter out,
+                               Database_info info )
+                    throws IOException
+            {
+                if( info == null )
+                {
+                    out.nullValue();
+                    return;
+                }
 
-        public static Database_info deserialize_from_JSON( String string_JSON )
-        {
-            Database_info object = null;
-            try
+                out.beginObject();
+                write_string( out,
+                              "AUTHENTICATION_DATABASE_HOST",
+                              info.AUTHENTICATION_DATABASE_HOST );
+                write_string( out,
+                              "AUTHENTICATION_DATABASE_NAME",
+                              info.AUTHENTICATION_DATABASE_NAME );
+                write_string( out,
+                              "AUTHENTICATION_DATABASE_USER",
+                              info.AUTHENTICATION_DATABASE_USER );
+                write_string( out,
+                              "AUTHENTICATION_DATABASE_PASS",
+                              info.AUTHENTICATION_DATABASE_PASS );
+                out.endObject();
+            }
+
+            @Override
+            public Database_info read( JsonReader in )
+                    throws IOException
             {
-                Gson gson = new GsonBuilder().disableHtmlEscaping()
-                                             .setPrettyPrinting()
-                                             .create();
-                object = gson.fromJson( string_JSON,
-                                        Database_info.class );
+                if( in.peek() == JsonToken.NULL )
+                {
+                    in.nextNull();
+                    return null;
+                }
+
+                String host = null;
+                String name = null;
+                String user = null;
+                String pass = null;
+
+                in.beginObject();
+                while( in.hasNext() )
+                {
+                    switch( in.nextName() )
+                    {
+                        case "AUTHENTICATION_DATABASE_HOST":
+                            host = JSON_type_adapters.read_string( in );
+                            break;
+                        case "AUTHENTICATION_DATABASE_NAME":
+                            name = JSON_type_adapters.read_string( in );
+                            break;
+                        case "AUTHENTICATION_DATABASE_USER":
+                            user = JSON_type_adapters.read_string( in );
+                            break;
+                        case "AUTHENTICATION_DATABASE_PASS":
+                            pass = JSON_type_adapters.read_string( in );
+                            break;
+                        default:
+                            in.skipValue();
+                            break;
+                    }
+                }
+
+                in.endObject();
+                return new Database_info( host,
+                                          name,
+                                          user,
+                                          pass );
             }
-            catch( com.google.gson.JsonSyntaxException exception )
+
+            private static void write_string( JsonWriter out,
+                                              String name,
+                                              String value )
+                    throws IOException
             {
-                System.out.println( "Bad data format for Database_info: " + exception );
-                System.out.println( ">>>" + string_JSON + "<<<" );
+                if( value != null ) out.name( name )
+                                       .value( value );
             }
+        }
+
+        private static final Gson s_GSON = new GsonBuilder().registerTypeAdapter( Database_info.class,
+                                                                                  new JSON_adapter() )
+                                                            .disableHtmlEscaping()
+                                                            .setPrettyPrinting()
+                                                            .create();
 
-            return object;
+        public static String serialize_to_JSON( Database_info object )
+        {
+            return s_GSON.toJson( object );
+        }
+
+        /**
+         * @return The info, or null if the JSON is not valid. The JSON holds the password, so it is never printed.
+         */
+        public static Database_info deserialize_from_JSON( String string_JSON )
+        {
+            return JSON_deserializer.read( s_GSON,
+                                           Database_info.class,
+                                           string_JSON );
         }
 
         public String serialize_to_JSON()
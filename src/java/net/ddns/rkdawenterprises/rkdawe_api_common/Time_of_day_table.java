@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2024 RKDAW Enterprises and Ralph Williamson.
+ *       email: rkdawenterprises@gmail.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ddns.rkdawenterprises.rkdawe_api_common;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.TimeZone;
+
+/**
+ * Maps the 1440 minutes of the current local day to their UTC time strings, formatted as
+ * "yyyy-MM-dd'T'HH:mm:ss'Z'". Each string is formatted once, the first time it is asked for, and then shared until
+ * the local day rolls over or the default time zone changes. A lookup is then just a clock read and an array read.
+ * <p>
+ * The time zone is only checked once a minute, since getting the default time zone makes a copy of it.
+ */
+final class Time_of_day_table
+{
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final long ZONE_CHECK_INTERVAL_MS = 60 * 1000;
+
+    static final DateTimeFormatter UTC_FORMATTER = DateTimeFormatter.ofPattern( "yyyy-MM-dd'T'HH:mm:ss'Z'" )
+                                                                    .withZone( ZoneOffset.UTC );
+
+    private static final class Table
+    {
+        final LocalDate m_date;
+        final ZoneId m_zone;
+        final long m_next_check_ms;
+
+        /*
+         * Filled lazily. Two threads may format the same entry, which is harmless since they format the same string.
+         */
+        final String[] m_times;
+
+        Table( LocalDate date,
+               ZoneId zone,
+               long now_ms,
+               String[] times )
+        {
+            m_date = date;
+            m_zone = zone;
+            m_times = times;
+
+            long next_day_ms = date.plusDays( 1 )
+                                   .atStartOfDay( zone )
+                                   .toInstant()
+                                   .toEpochMilli();
+            m_next_check_ms = Math.min( next_day_ms,
+                                        now_ms + ZONE_CHECK_INTERVAL_MS );
+        }
+    }
+
+    private static volatile Table s_table = null;
+
+    private Time_of_day_table()
+    {
+    }
+
+    /**
+     * @param hours   The hour of the current local day, 0-23.
+     * @param minutes The minute of the hour, 0-59.
+     *
+     * @return The UTC time string for the time of the current local day.
+     */
+    static String get( int hours,
+                       int minutes )
+    {
+        Table table = get_table( System.currentTimeMillis() );
+
+        int index = ( hours * 60 ) + minutes;
+        String time = table.m_times[index];
+        if( time == null )
+        {
+            time = UTC_FORMATTER.format( LocalDateTime.of( table.m_date.getYear(),
+                                                           table.m_date.getMonth(),
+                                                           table.m_date.getDayOfMonth(),
+                                                           hours,
+                                                           minutes )
+                                                      .atZone( table.m_zone ) );
+            table.m_times[index] = time;
+        }
+
+        return time;
+    }
+
+    private static Table get_table( long now_ms )
+    {
+        Table table = s_table;
+        if( ( table != null ) && ( now_ms < table.m_next_check_ms ) ) return table;
+
+        ZoneId zone = TimeZone.getDefault()
+                              .toZoneId();
+        LocalDate date = LocalDate.now( zone );
+
+        boolean same_day = ( table != null ) && table.m_date.equals( date ) && table.m_zone.equals( zone );
+        table = new Table( date,
+                           zone,
+                           now_ms,
+                           same_day ? table.m_times : new String[MINUTES_PER_DAY] );
+        s_table = table;
+        return table;
+    }
+}
@@ -19,15 +19,29 @@ package net.ddns.rkdawenterprises.rkdawe_api_common;
 
 import androidx.annotation.NonNull;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.TimeZone;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ToDoubleFunction;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.JsonSyntaxException;
 
 import org.jetbrains.annotations.Nullable;
 
@@ -45,14 +59,923 @@ public class Weather_data
         HILOWS,
     }
 
-    public static final Gson s_GSON = new GsonBuilder().disableHtmlEscaping()
-                                                       .setPrettyPrinting()
-                                                       .create();
+    /**
+     * Describes each serialized field, in declaration order, which is also the order Gson writes them. Lets code that
+     * needs to walk all the fields, such as encoders and change tracking, do so without reflection.
+     * <p>
+     * Numbers are read and written as doubles, INT fields hold whole numbers. DOUBLE fields that come from the station
+     * have a fixed number of decimals, those that are calculated have a decimals of -1.
+     * <p>
+     * Each field has a tag, the first argument, which identifies it in the binary forms. A field keeps its tag
+     * wherever it is declared, new fields take the next unused tag, and the tag of a removed field is not used again.
+     */
+    public enum Field
+    {
+        SYSTEM_NAME( 1,
+                     "system_name",
+                     Kind.STRING,
+                     data -> data.system_name,
+                     ( data, value ) -> data.system_name = value ),
+        TIME( 2,
+              "time",
+              Kind.TIME,
+              data -> data.time,
+              ( data, value ) -> data.time = value ),
+        HEAT_INDEX_DERIVED( 3,
+                            "heat_index_derived",
+                            Kind.DOUBLE,
+                            -1,
+                            data -> data.heat_index_derived,
+                            ( data, value ) -> data.heat_index_derived = value ),
+        WIND_CHILL_DERIVED( 4,
+                            "wind_chill_derived",
+                            Kind.DOUBLE,
+                            -1,
+                            data -> data.wind_chill_derived,
+                            ( data, value ) -> data.wind_chill_derived = value ),
+        WRD( 5,
+             "wrd",
+             Kind.INT,
+             0,
+             data -> data.wrd,
+             ( data, value ) -> data.wrd = (int)value ),
+        TOTAL_PACKETS_RECEIVED( 6,
+                                "total_packets_received",
+                                Kind.INT,
+                                0,
+                                data -> data.total_packets_received,
+                                ( data, value ) -> data.total_packets_received = (int)value ),
+        TOTAL_PACKETS_MISSED( 7,
+                              "total_packets_missed",
+                              Kind.INT,
+                              0,
+                              data -> data.total_packets_missed,
+                              ( data, value ) -> data.total_packets_missed = (int)value ),
+        NUMBER_OF_RESYNCHRONIZATIONS( 8,
+                                      "number_of_resynchronizations",
+                                      Kind.INT,
+                                      0,
+                                      data -> data.number_of_resynchronizations,
+                                      ( data, value ) -> data.number_of_resynchronizations = (int)value ),
+        LARGEST_NUMBER_PACKETS_RECEIVED_IN_A_ROW( 9,
+                                                  "largest_number_packets_received_in_a_row",
+                                                  Kind.INT,
+                                                  0,
+                                                  data -> data.largest_number_packets_received_in_a_row,
+                                                  ( data, value ) -> data.largest_number_packets_received_in_a_row = (int)value ),
+        NUMBER_OF_CRC_ERRORS_DETECTED( 10,
+                                       "number_of_CRC_errors_detected",
+                                       Kind.INT,
+                                       0,
+                                       data -> data.number_of_CRC_errors_detected,
+                                       ( data, value ) -> data.number_of_CRC_errors_detected = (int)value ),
+        FIRMWARE_DATE_CODE( 11,
+                            "firmware_date_code",
+                            Kind.STRING,
+                            data -> data.firmware_date_code,
+                            ( data, value ) -> data.firmware_date_code = value ),
+        FIRMWARE_VERSION( 12,
+                          "firmware_version",
+                          Kind.STRING,
+                          data -> data.firmware_version,
+                          ( data, value ) -> data.firmware_version = value ),
+        DID( 13,
+             "DID",
+             Kind.STRING,
+             data -> data.DID,
+             ( data, value ) -> data.DID = value ),
+        BAROMETER_UNITS( 14,
+                         "barometer_units",
+                         Kind.STRING,
+                         data -> data.barometer_units,
+                         ( data, value ) -> data.barometer_units = value ),
+        TEMPERATURE_UNITS( 15,
+                           "temperature_units",
+                           Kind.STRING,
+                           data -> data.temperature_units,
+                           ( data, value ) -> data.temperature_units = value ),
+        HUMIDITY_UNITS( 16,
+                        "humidity_units",
+                        Kind.STRING,
+                        data -> data.humidity_units,
+                        ( data, value ) -> data.humidity_units = value ),
+        WIND_SPEED_UNITS( 17,
+                          "wind_speed_units",
+                          Kind.STRING,
+                          data -> data.wind_speed_units,
+                          ( data, value ) -> data.wind_speed_units = value ),
+        WIND_DIRECTION_UNITS( 18,
+                              "wind_direction_units",
+                              Kind.STRING,
+                              data -> data.wind_direction_units,
+                              ( data, value ) -> data.wind_direction_units = value ),
+        RAIN_UNITS( 19,
+                    "rain_units",
+                    Kind.STRING,
+                    data -> data.rain_units,
+                    ( data, value ) -> data.rain_units = value ),
+        RAIN_RATE_UNITS( 20,
+                         "rain_rate_units",
+                         Kind.STRING,
+                         data -> data.rain_rate_units,
+                         ( data, value ) -> data.rain_rate_units = value ),
+        BAR_TREND( 21,
+                   "bar_trend",
+                   Kind.STRING,
+                   data -> data.bar_trend,
+                   ( data, value ) -> data.bar_trend = value ),
+        CONSOLE_BATTERY_VOLTAGE_UNITS( 22,
+                                       "console_battery_voltage_units",
+                                       Kind.STRING,
+                                       data -> data.console_battery_voltage_units,
+                                       ( data, value ) -> data.console_battery_voltage_units = value ),
+        BAROMETER( 23,
+                   "barometer",
+                   Kind.DOUBLE,
+                   3,
+                   data -> data.barometer,
+                   ( data, value ) -> data.barometer = value ),
+        INSIDE_TEMPERATURE( 24,
+                            "inside_temperature",
+                            Kind.DOUBLE,
+                            1,
+                            data -> data.inside_temperature,
+                            ( data, value ) -> data.inside_temperature = value ),
+        INSIDE_HUMIDITY( 25,
+                         "inside_humidity",
+                         Kind.INT,
+                         0,
+                         data -> data.inside_humidity,
+                         ( data, value ) -> data.inside_humidity = (int)value ),
+        OUTSIDE_TEMPERATURE( 26,
+                             "outside_temperature",
+                             Kind.DOUBLE,
+                             1,
+                             data -> data.outside_temperature,
+                             ( data, value ) -> data.outside_temperature = value ),
+        WIND_SPEED( 27,
+                    "wind_speed",
+                    Kind.INT,
+                    0,
+                    data -> data.wind_speed,
+                    ( data, value ) -> data.wind_speed = (int)value ),
+        OUTSIDE_HUMIDITY( 28,
+                          "outside_humidity",
+                          Kind.INT,
+                          0,
+                          data -> data.outside_humidity,
+                          ( data, value ) -> data.outside_humidity = (int)value ),
+        WIND_DIRECTION( 29,
+                        "wind_direction",
+                        Kind.INT,
+                        0,
+                        data -> data.wind_direction,
+                        ( data, value ) -> data.wind_direction = (int)value ),
+        TEN_MIN_AVG_WIND_SPEED( 30,
+                                "ten_min_avg_wind_speed",
+                                Kind.DOUBLE,
+                                1,
+                                data -> data.ten_min_avg_wind_speed,
+                                ( data, value ) -> data.ten_min_avg_wind_speed = value ),
+        TWO_MIN_AVG_WIND_SPEED( 31,
+                                "two_min_avg_wind_speed",
+                                Kind.DOUBLE,
+                                1,
+                                data -> data.two_min_avg_wind_speed,
+                                ( data, value ) -> data.two_min_avg_wind_speed = value ),
+        TEN_MIN_WIND_GUST( 32,
+                           "ten_min_wind_gust",
+                           Kind.DOUBLE,
+                           1,
+                           data -> data.ten_min_wind_gust,
+                           ( data, value ) -> data.ten_min_wind_gust = value ),
+        WIND_DIRECTION_OF_TEN_MIN_WIND_GUST( 33,
+                                             "wind_direction_of_ten_min_wind_gust",
+                                             Kind.INT,
+                                             0,
+                                             data -> data.wind_direction_of_ten_min_wind_gust,
+                                             ( data, value ) -> data.wind_direction_of_ten_min_wind_gust = (int)value ),
+        DEW_POINT( 34,
+                   "dew_point",
+                   Kind.INT,
+                   0,
+                   data -> data.dew_point,
+                   ( data, value ) -> data.dew_point = (int)value ),
+        HEAT_INDEX( 35,
+                    "heat_index",
+                    Kind.INT,
+                    0,
+                    data -> data.heat_index,
+                    ( data, value ) -> data.heat_index = (int)value ),
+        WIND_CHILL( 36,
+                    "wind_chill",
+                    Kind.INT,
+                    0,
+                    data -> data.wind_chill,
+                    ( data, value ) -> data.wind_chill = (int)value ),
+        RAIN_RATE( 37,
+                   "rain_rate",
+                   Kind.DOUBLE,
+                   2,
+                   data -> data.rain_rate,
+                   ( data, value ) -> data.rain_rate = value ),
+        STORM_RAIN( 38,
+                    "storm_rain",
+                    Kind.DOUBLE,
+                    2,
+                    data -> data.storm_rain,
+                    ( data, value ) -> data.storm_rain = value ),
+        START_DATE_OF_CURRENT_STORM( 39,
+                                     "start_date_of_current_storm",
+                                     Kind.STRING,
+                                     data -> data.start_date_of_current_storm,
+                                     ( data, value ) -> data.start_date_of_current_storm = value ),
+        DAILY_RAIN( 40,
+                    "daily_rain",
+                    Kind.DOUBLE,
+                    2,
+                    data -> data.daily_rain,
+                    ( data, value ) -> data.daily_rain = value ),
+        LAST_FIFTEEN_MIN_RAIN( 41,
+                               "last_fifteen_min_rain",
+                               Kind.DOUBLE,
+                               2,
+                               data -> data.last_fifteen_min_rain,
+                               ( data, value ) -> data.last_fifteen_min_rain = value ),
+        LAST_HOUR_RAIN( 42,
+                        "last_hour_rain",
+                        Kind.DOUBLE,
+                        2,
+                        data -> data.last_hour_rain,
+                        ( data, value ) -> data.last_hour_rain = value ),
+        DAILY_ET( 43,
+                  "daily_et",
+                  Kind.DOUBLE,
+                  3,
+                  data -> data.daily_et,
+                  ( data, value ) -> data.daily_et = value ),
+        LAST_TWENTY_FOUR_HOUR_RAIN( 44,
+                                    "last_twenty_four_hour_rain",
+                                    Kind.DOUBLE,
+                                    2,
+                                    data -> data.last_twenty_four_hour_rain,
+                                    ( data, value ) -> data.last_twenty_four_hour_rain = value ),
+        MONTH_RAIN( 45,
+                    "month_rain",
+                    Kind.DOUBLE,
+                    2,
+                    data -> data.month_rain,
+                    ( data, value ) -> data.month_rain = value ),
+        YEAR_RAIN( 46,
+                   "year_rain",
+                   Kind.DOUBLE,
+                   2,
+                   data -> data.year_rain,
+                   ( data, value ) -> data.year_rain = value ),
+        TRANSMITTER_BATTERY_STATUS( 47,
+                                    "transmitter_battery_status",
+                                    Kind.STRING,
+                                    data -> data.transmitter_battery_status,
+                                    ( data, value ) -> data.transmitter_battery_status = value ),
+        CONSOLE_BATTERY_VOLTAGE( 48,
+                                 "console_battery_voltage",
+                                 Kind.DOUBLE,
+                                 -1,
+                                 data -> data.console_battery_voltage,
+                                 ( data, value ) -> data.console_battery_voltage = value ),
+        DAILY_LOW_BAROMETER( 49,
+                             "daily_low_barometer",
+                             Kind.DOUBLE,
+                             3,
+                             data -> data.daily_low_barometer,
+                             ( data, value ) -> data.daily_low_barometer = value ),
+        DAILY_HIGH_BAROMETER( 50,
+                              "daily_high_barometer",
+                              Kind.DOUBLE,
+                              3,
+                              data -> data.daily_high_barometer,
+                              ( data, value ) -> data.daily_high_barometer = value ),
+        MONTH_LOW_BAR( 51,
+                       "month_low_bar",
+                       Kind.DOUBLE,
+                       3,
+                       data -> data.month_low_bar,
+                       ( data, value ) -> data.month_low_bar = value ),
+        MONTH_HIGH_BAR( 52,
+                        "month_high_bar",
+                        Kind.DOUBLE,
+                        3,
+                        data -> data.month_high_bar,
+                        ( data, value ) -> data.month_high_bar = value ),
+        YEAR_LOW_BAROMETER( 53,
+                            "year_low_barometer",
+                            Kind.DOUBLE,
+                            3,
+                            data -> data.year_low_barometer,
+                            ( data, value ) -> data.year_low_barometer = value ),
+        YEAR_HIGH_BAROMETER( 54,
+                             "year_high_barometer",
+                             Kind.DOUBLE,
+                             3,
+                             data -> data.year_high_barometer,
+                             ( data, value ) -> data.year_high_barometer = value ),
+        TIME_OF_DAY_LOW_BAR( 55,
+                             "time_of_day_low_bar",
+                             Kind.TIME,
+                             data -> data.time_of_day_low_bar,
+                             ( data, value ) -> data.time_of_day_low_bar = value ),
+        TIME_OF_DAY_HIGH_BAR( 56,
+                              "time_of_day_high_bar",
+                              Kind.TIME,
+                              data -> data.time_of_day_high_bar,
+                              ( data, value ) -> data.time_of_day_high_bar = value ),
+        DAILY_HI_WIND_SPEED( 57,
+                             "daily_hi_wind_speed",
+                             Kind.INT,
+                             0,
+                             data -> data.daily_hi_wind_speed,
+                             ( data, value ) -> data.daily_hi_wind_speed = (int)value ),
+        TIME_OF_HI_SPEED( 58,
+                          "time_of_hi_speed",
+                          Kind.TIME,
+                          data -> data.time_of_hi_speed,
+                          ( data, value ) -> data.time_of_hi_speed = value ),
+        MONTH_HI_WIND_SPEED( 59,
+                             "month_hi_wind_speed",
+                             Kind.INT,
+                             0,
+                             data -> data.month_hi_wind_speed,
+                             ( data, value ) -> data.month_hi_wind_speed = (int)value ),
+        YEAR_HI_WIND_SPEED( 60,
+                            "year_hi_wind_speed",
+                            Kind.INT,
+                            0,
+                            data -> data.year_hi_wind_speed,
+                            ( data, value ) -> data.year_hi_wind_speed = (int)value ),
+        DAY_HI_INSIDE_TEMP( 61,
+                            "day_hi_inside_temp",
+                            Kind.DOUBLE,
+                            1,
+                            data -> data.day_hi_inside_temp,
+                            ( data, value ) -> data.day_hi_inside_temp = value ),
+        DAY_LOW_INSIDE_TEMP( 62,
+                             "day_low_inside_temp",
+                             Kind.DOUBLE,
+                             1,
+                             data -> data.day_low_inside_temp,
+                             ( data, value ) -> data.day_low_inside_temp = value ),
+        TIME_DAY_HI_IN_TEMP( 63,
+                             "time_day_hi_in_temp",
+                             Kind.TIME,
+                             data -> data.time_day_hi_in_temp,
+                             ( data, value ) -> data.time_day_hi_in_temp = value ),
+        TIME_DAY_LOW_IN_TEMP( 64,
+                              "time_day_low_in_temp",
+                              Kind.TIME,
+                              data -> data.time_day_low_in_temp,
+                              ( data, value ) -> data.time_day_low_in_temp = value ),
+        MONTH_LOW_IN_TEMP( 65,
+                           "month_low_in_temp",
+                           Kind.DOUBLE,
+                           1,
+                           data -> data.month_low_in_temp,
+                           ( data, value ) -> data.month_low_in_temp = value ),
+        MONTH_HI_IN_TEMP( 66,
+                          "month_hi_in_temp",
+                          Kind.DOUBLE,
+                          1,
+                          data -> data.month_hi_in_temp,
+                          ( data, value ) -> data.month_hi_in_temp = value ),
+        YEAR_LOW_IN_TEMP( 67,
+                          "year_low_in_temp",
+                          Kind.DOUBLE,
+                          1,
+                          data -> data.year_low_in_temp,
+                          ( data, value ) -> data.year_low_in_temp = value ),
+        YEAR_HI_IN_TEMP( 68,
+                         "year_hi_in_temp",
+                         Kind.DOUBLE,
+                         1,
+                         data -> data.year_hi_in_temp,
+                         ( data, value ) -> data.year_hi_in_temp = value ),
+        DAY_HI_IN_HUM( 69,
+                       "day_hi_in_hum",
+                       Kind.INT,
+                       0,
+                       data -> data.day_hi_in_hum,
+                       ( data, value ) -> data.day_hi_in_hum = (int)value ),
+        DAY_LOW_IN_HUM( 70,
+                        "day_low_in_hum",
+                        Kind.INT,
+                        0,
+                        data -> data.day_low_in_hum,
+                        ( data, value ) -> data.day_low_in_hum = (int)value ),
+        TIME_DAY_HI_IN_HUM( 71,
+                            "time_day_hi_in_hum",
+                            Kind.TIME,
+                            data -> data.time_day_hi_in_hum,
+                            ( data, value ) -> data.time_day_hi_in_hum = value ),
+        TIME_DAY_LOW_IN_HUM( 72,
+                             "time_day_low_in_hum",
+                             Kind.TIME,
+                             data -> data.time_day_low_in_hum,
+                             ( data, value ) -> data.time_day_low_in_hum = value ),
+        MONTH_HI_IN_HUM( 73,
+                         "month_hi_in_hum",
+                         Kind.INT,
+                         0,
+                         data -> data.month_hi_in_hum,
+                         ( data, value ) -> data.month_hi_in_hum = (int)value ),
+        MONTH_LOW_IN_HUM( 74,
+                          "month_low_in_hum",
+                          Kind.INT,
+                          0,
+                          data -> data.month_low_in_hum,
+                          ( data, value ) -> data.month_low_in_hum = (int)value ),
+        YEAR_HI_IN_HUM( 75,
+                        "year_hi_in_hum",
+                        Kind.INT,
+                        0,
+                        data -> data.year_hi_in_hum,
+                        ( data, value ) -> data.year_hi_in_hum = (int)value ),
+        YEAR_LOW_IN_HUM( 76,
+                         "year_low_in_hum",
+                         Kind.INT,
+                         0,
+                         data -> data.year_low_in_hum,
+                         ( data, value ) -> data.year_low_in_hum = (int)value ),
+        DAY_LOW_OUT_TEMP( 77,
+                          "day_low_out_temp",
+                          Kind.DOUBLE,
+                          1,
+                          data -> data.day_low_out_temp,
+                          ( data, value ) -> data.day_low_out_temp = value ),
+        DAY_HI_OUT_TEMP( 78,
+                         "day_hi_out_temp",
+                         Kind.DOUBLE,
+                         1,
+                         data -> data.day_hi_out_temp,
+                         ( data, value ) -> data.day_hi_out_temp = value ),
+        TIME_DAY_LOW_OUT_TEMP( 79,
+                               "time_day_low_out_temp",
+                               Kind.TIME,
+                               data -> data.time_day_low_out_temp,
+                               ( data, value ) -> data.time_day_low_out_temp = value ),
+        TIME_DAY_HI_OUT_TEMP( 80,
+                              "time_day_hi_out_temp",
+                              Kind.TIME,
+                              data -> data.time_day_hi_out_temp,
+                              ( data, value ) -> data.time_day_hi_out_temp = value ),
+        MONTH_HI_OUT_TEMP( 81,
+                           "month_hi_out_temp",
+                           Kind.DOUBLE,
+                           1,
+                           data -> data.month_hi_out_temp,
+                           ( data, value ) -> data.month_hi_out_temp = value ),
+        MONTH_LOW_OUT_TEMP( 82,
+                            "month_low_out_temp",
+                            Kind.DOUBLE,
+                            1,
+                            data -> data.month_low_out_temp,
+                            ( data, value ) -> data.month_low_out_temp = value ),
+        YEAR_HI_OUT_TEMP( 83,
+                          "year_hi_out_temp",
+                          Kind.DOUBLE,
+                          1,
+                          data -> data.year_hi_out_temp,
+                          ( data, value ) -> data.year_hi_out_temp = value ),
+        YEAR_LOW_OUT_TEMP( 84,
+                           "year_low_out_temp",
+                           Kind.DOUBLE,
+                           1,
+                           data -> data.year_low_out_temp,
+                           ( data, value ) -> data.year_low_out_temp = value ),
+        DAY_LOW_DEW_POINT( 85,
+                           "day_low_dew_point",
+                           Kind.INT,
+                           0,
+                           data -> data.day_low_dew_point,
+                           ( data, value ) -> data.day_low_dew_point = (int)value ),
+        DAY_HI_DEW_POINT( 86,
+                          "day_hi_dew_point",
+                          Kind.INT,
+                          0,
+                          data -> data.day_hi_dew_point,
+                          ( data, value ) -> data.day_hi_dew_point = (int)value ),
+        TIME_DAY_LOW_DEW_POINT( 87,
+                                "time_day_low_dew_point",
+                                Kind.TIME,
+                                data -> data.time_day_low_dew_point,
+                                ( data, value ) -> data.time_day_low_dew_point = value ),
+        TIME_DAY_HI_DEW_POINT( 88,
+                               "time_day_hi_dew_point",
+                               Kind.TIME,
+                               data -> data.time_day_hi_dew_point,
+                               ( data, value ) -> data.time_day_hi_dew_point = value ),
+        MONTH_HI_DEW_POINT( 89,
+                            "month_hi_dew_point",
+                            Kind.INT,
+                            0,
+                            data -> data.month_hi_dew_point,
+                            ( data, value ) -> data.month_hi_dew_point = (int)value ),
+        MONTH_LOW_DEW_POINT( 90,
+                             "month_low_dew_point",
+                             Kind.INT,
+                             0,
+                             data -> data.month_low_dew_point,
+                             ( data, value ) -> data.month_low_dew_point = (int)value ),
+        YEAR_HI_DEW_POINT( 91,
+                           "year_hi_dew_point",
+                           Kind.INT,
+                           0,
+                           data -> data.year_hi_dew_point,
+                           ( data, value ) -> data.year_hi_dew_point = (int)value ),
+        YEAR_LOW_DEW_POINT( 92,
+                            "year_low_dew_point",
+                            Kind.INT,
+                            0,
+                            data -> data.year_low_dew_point,
+                            ( data, value ) -> data.year_low_dew_point = (int)value ),
+        DAY_LOW_WIND_CHILL( 93,
+                            "day_low_wind_chill",
+                            Kind.INT,
+                            0,
+                            data -> data.day_low_wind_chill,
+                            ( data, value ) -> data.day_low_wind_chill = (int)value ),
+        TIME_DAY_LOW_CHILL( 94,
+                            "time_day_low_chill",
+                            Kind.TIME,
+                            data -> data.time_day_low_chill,
+                            ( data, value ) -> data.time_day_low_chill = value ),
+        MONTH_LOW_WIND_CHILL( 95,
+                              "month_low_wind_chill",
+                              Kind.INT,
+                              0,
+                              data -> data.month_low_wind_chill,
+                              ( data, value ) -> data.month_low_wind_chill = (int)value ),
+        YEAR_LOW_WIND_CHILL( 96,
+                             "year_low_wind_chill",
+                             Kind.INT,
+                             0,
+                             data -> data.year_low_wind_chill,
+                             ( data, value ) -> data.year_low_wind_chill = (int)value ),
+        DAY_HIGH_HEAT( 97,
+                       "day_high_heat",
+                       Kind.INT,
+                       0,
+                       data -> data.day_high_heat,
+                       ( data, value ) -> data.day_high_heat = (int)value ),
+        TIME_OF_DAY_HIGH_HEAT( 98,
+                               "time_of_day_high_heat",
+                               Kind.TIME,
+                               data -> data.time_of_day_high_heat,
+                               ( data, value ) -> data.time_of_day_high_heat = value ),
+        MONTH_HIGH_HEAT( 99,
+                         "month_high_heat",
+                         Kind.INT,
+                         0,
+                         data -> data.month_high_heat,
+                         ( data, value ) -> data.month_high_heat = (int)value ),
+        YEAR_HIGH_HEAT( 100,
+                        "year_high_heat",
+                        Kind.INT,
+                        0,
+                        data -> data.year_high_heat,
+                        ( data, value ) -> data.year_high_heat = (int)value ),
+        DAY_HIGH_RAIN_RATE( 101,
+                            "day_high_rain_rate",
+                            Kind.DOUBLE,
+                            2,
+                            data -> data.day_high_rain_rate,
+                            ( data, value ) -> data.day_high_rain_rate = value ),
+        TIME_OF_DAY_HIGH_RAIN_RATE( 102,
+                                    "time_of_day_high_rain_rate",
+                                    Kind.TIME,
+                                    data -> data.time_of_day_high_rain_rate,
+                                    ( data, value ) -> data.time_of_day_high_rain_rate = value ),
+        HOUR_HIGH_RAIN_RATE( 103,
+                             "hour_high_rain_rate",
+                             Kind.DOUBLE,
+                             2,
+                             data -> data.hour_high_rain_rate,
+                             ( data, value ) -> data.hour_high_rain_rate = value ),
+        MONTH_HIGH_RAIN_RATE( 104,
+                              "month_high_rain_rate",
+                              Kind.DOUBLE,
+                              2,
+                              data -> data.month_high_rain_rate,
+                              ( data, value ) -> data.month_high_rain_rate = value ),
+        YEAR_HIGH_RAIN_RATE( 105,
+                             "year_high_rain_rate",
+                             Kind.DOUBLE,
+                             2,
+                             data -> data.year_high_rain_rate,
+                             ( data, value ) -> data.year_high_rain_rate = value ),
+        DAY_LOW_HUMIDITY( 106,
+                          "day_low_humidity",
+                          Kind.INT,
+                          0,
+                          data -> data.day_low_humidity,
+                          ( data, value ) -> data.day_low_humidity = (int)value ),
+        DAY_HI_HUMIDITY( 107,
+                         "day_hi_humidity",
+                         Kind.INT,
+                         0,
+                         data -> data.day_hi_humidity,
+                         ( data, value ) -> data.day_hi_humidity = (int)value ),
+        TIME_DAY_LOW_HUMIDITY( 108,
+                               "time_day_low_humidity",
+                               Kind.TIME,
+                               data -> data.time_day_low_humidity,
+                               ( data, value ) -> data.time_day_low_humidity = value ),
+        TIME_DAY_HI_HUMIDITY( 109,
+                              "time_day_hi_humidity",
+                              Kind.TIME,
+                              data -> data.time_day_hi_humidity,
+                              ( data, value ) -> data.time_day_hi_humidity = value ),
+        MONTH_HI_HUMIDITY( 110,
+                           "month_hi_humidity",
+                           Kind.INT,
+                           0,
+                           data -> data.month_hi_humidity,
+                           ( data, value ) -> data.month_hi_humidity = (int)value ),
+        MONTH_LOW_HUMIDITY( 111,
+                            "month_low_humidity",
+                            Kind.INT,
+                            0,
+                            data -> data.month_low_humidity,
+                            ( data, value ) -> data.month_low_humidity = (int)value ),
+        YEAR_HI_HUMIDITY( 112,
+                          "year_hi_humidity",
+                          Kind.INT,
+                          0,
+                          data -> data.year_hi_humidity,
+                          ( data, value ) -> data.year_hi_humidity = (int)value ),
+        YEAR_LOW_HUMIDITY( 113,
+                           "year_low_humidity",
+                           Kind.INT,
+                           0,
+                           data -> data.year_low_humidity,
+                           ( data, value ) -> data.year_low_humidity = (int)value ),
+        FORECAST_LOCATION_COORDINATES( 114,
+                                       "forecast_location_coordinates",
+                                       Kind.STRING,
+                                       data -> data.forecast_location_coordinates,
+                                       ( data, value ) -> data.forecast_location_coordinates = value ),
+        FORECAST_LOCATION_CITY( 115,
+                                "forecast_location_city",
+                                Kind.STRING,
+                                data -> data.forecast_location_city,
+                                ( data, value ) -> data.forecast_location_city = value ),
+        FORECAST_LOCATION_STATE( 116,
+                                 "forecast_location_state",
+                                 Kind.STRING,
+                                 data -> data.forecast_location_state,
+                                 ( data, value ) -> data.forecast_location_state = value ),
+        PERIOD_1_FORECAST_ICON( 117,
+                                "period_1_forecast_icon",
+                                Kind.STRING,
+                                data -> data.period_1_forecast_icon,
+                                ( data, value ) -> data.period_1_forecast_icon = value ),
+        PERIOD_1_SHORT_FORECAST( 118,
+                                 "period_1_short_forecast",
+                                 Kind.STRING,
+                                 data -> data.period_1_short_forecast,
+                                 ( data, value ) -> data.period_1_short_forecast = value );
+
+        public enum Kind
+        {
+            STRING,
+            TIME,
+            INT,
+            DOUBLE,
+        }
+
+        private static final Field[] s_values = values();
+        private static final Map< String, Field > s_by_json_name = new HashMap< String, Field >();
+        private static final Field[] s_by_tag;
+
+        static
+        {
+            int max_tag = 0;
+            for( Field field : s_values )
+            {
+                s_by_json_name.put( field.json_name,
+                                    field );
+                max_tag = Math.max( max_tag,
+                                    field.tag );
+            }
+
+            s_by_tag = new Field[max_tag + 1];
+            for( Field field : s_values )
+            {
+                if( ( field.tag < 1 ) || ( s_by_tag[field.tag] != null ) )
+                {
+                    throw new IllegalStateException( "Bad or duplicate tag for " + field );
+                }
+
+                s_by_tag[field.tag] = field;
+            }
+        }
+
+        /**
+         * The field's number in the binary forms, which never changes.
+         */
+        public final int tag;
+        public final String json_name;
+        public final Kind kind;
+        public final int decimals;
+
+        private final Function< Weather_data, String > m_string_getter;
+        private final BiConsumer< Weather_data, String > m_string_setter;
+        private final ToDoubleFunction< Weather_data > m_number_getter;
+        private final ObjDoubleConsumer< Weather_data > m_number_setter;
+
+        Field( int tag,
+               String json_name,
+               Kind kind,
+               Function< Weather_data, String > getter,
+               BiConsumer< Weather_data, String > setter )
+        {
+            this.tag = tag;
+            this.json_name = json_name;
+            this.kind = kind;
+            this.decimals = 0;
+            m_string_getter = getter;
+            m_string_setter = setter;
+            m_number_getter = null;
+            m_number_setter = null;
+        }
+
+        Field( int tag,
+               String json_name,
+               Kind kind,
+               int decimals,
+               ToDoubleFunction< Weather_data > getter,
+               ObjDoubleConsumer< Weather_data > setter )
+        {
+            this.tag = tag;
+            this.json_name = json_name;
+            this.kind = kind;
+            this.decimals = decimals;
+            m_string_getter = null;
+            m_string_setter = null;
+            m_number_getter = getter;
+            m_number_setter = setter;
+        }
+
+        /**
+         * @return All the fields, shared, so must not be modified.
+         */
+        static Field[] get_values()
+        {
+            return s_values;
+        }
+
+        /**
+         * @return The field with the given JSON name, or null if there is none.
+         */
+        public static Field for_json_name( String json_name )
+        {
+            return s_by_json_name.get( json_name );
+        }
+
+        /**
+         * @return The field with the given tag, or null if there is none.
+         */
+        public static Field for_tag( long tag )
+        {
+            return ( ( tag < 1 ) || ( tag >= s_by_tag.length ) ) ? null : s_by_tag[(int)tag];
+        }
+
+        /**
+         * @return The largest tag of any field.
+         */
+        static int get_max_tag()
+        {
+            return s_by_tag.length - 1;
+        }
+
+        public boolean is_string()
+        {
+            return( ( kind == Kind.STRING ) || ( kind == Kind.TIME ) );
+        }
+
+        /**
+         * @throws UnsupportedOperationException If the field is not a STRING or TIME.
+         */
+        public String get_string( Weather_data data )
+        {
+            if( m_string_getter == null ) throw new UnsupportedOperationException( json_name + " is not a string" );
+
+            return m_string_getter.apply( data );
+        }
+
+        /**
+         * @throws UnsupportedOperationException If the field is not a STRING or TIME.
+         */
+        public void set_string( Weather_data data,
+                                String value )
+        {
+            if( m_string_setter == null ) throw new UnsupportedOperationException( json_name + " is not a string" );
+
+            m_string_setter.accept( data,
+                                    value );
+        }
+
+        /**
+         * @throws UnsupportedOperationException If the field is not an INT or DOUBLE.
+         */
+        public double get_number( Weather_data data )
+        {
+            if( m_number_getter == null ) throw new UnsupportedOperationException( json_name + " is not a number" );
+
+            return m_number_getter.applyAsDouble( data );
+        }
+
+        /**
+         * @throws UnsupportedOperationException If the field is not an INT or DOUBLE.
+         */
+        public void set_number( Weather_data data,
+                                double value )
+        {
+            if( m_number_setter == null ) throw new UnsupportedOperationException( json_name + " is not a number" );
+
+            m_number_setter.accept( data,
+                                    value );
+        }
+
+        /**
+         * @return False if the field holds the "no data" value, "N/A" or MAX_VALUE, or null.
+         */
+        public boolean has_data( Weather_data data )
+        {
+            switch( kind )
+            {
+                case INT:
+                    return( m_number_getter.applyAsDouble( data ) != Integer.MAX_VALUE );
+                case DOUBLE:
+                    return( m_number_getter.applyAsDouble( data ) != Double.MAX_VALUE );
+                default:
+                    String value = m_string_getter.apply( data );
+                    return( ( value != null ) && !value.equals( "N/A" ) );
+            }
+        }
+
+        /**
+         * Sets the field to its "no data" value.
+         */
+        public void clear( Weather_data data )
+        {
+            switch( kind )
+            {
+                case INT:
+                    m_number_setter.accept( data,
+                                            Integer.MAX_VALUE );
+                    break;
+                case DOUBLE:
+                    m_number_setter.accept( data,
+                                            Double.MAX_VALUE );
+                    break;
+                default:
+                    m_string_setter.accept( data,
+                                            "N/A" );
+                    break;
+            }
+        }
+    }
+
+    public static final Gson s_GSON = JSON_type_adapters.register( new GsonBuilder() )
+                                                        .disableHtmlEscaping()
+                                                        .setPrettyPrinting()
+                                                        .create();
 
     public Weather_data()
     {
     }
 
+    /**
+     * Copies every serialized field of the given weather data into this object.
+     *
+     * @param other The weather data to copy.
+     */
+    public void copy_from( Weather_data other )
+    {
+        for( Field field : Field.get_values() )
+        {
+            if( field.is_string() )
+            {
+                field.set_string( this,
+                                  field.get_string( other ) );
+            }
+            else
+            {
+                field.set_number( this,
+                                  field.get_number( other ) );
+            }
+        }
+    }
+
     /**
      * Parses the serial data packets from the weather station and stores it in this object.
      * 
@@ -68,96 +991,94 @@ public class Weather_data
                               int length )
             throws IllegalArgumentException, ArithmeticException
     {
-        if( type == Type.LOOP2 )
-        {
-            if( length != 99 ) throw new IllegalArgumentException( "Incorrect packet size" );
+        if( ( length < 0 ) || ( length > packet.length ) ) throw new IllegalArgumentException( "Incorrect packet size" );
 
-            if( ( packet[0] != 'L' ) || ( packet[1] != 'O' ) || ( packet[2] != 'O' ) || ( packet[4] != 0x01 )
-                    || ( packet[95] != 0x0A ) || ( packet[96] != 0x0D ) )
-            {
-                throw new IllegalArgumentException( "Invalid packet data" );
-            }
+        parse_packet( type,
+                      ByteBuffer.wrap( packet,
+                                       0,
+                                       length ) );
+    }
 
-            Check_CRC.check_CRC_16( packet,
-                                    0,
-                                    99 );
+    /**
+     * Parses the serial data packets from the weather station directly from the given buffer and stores it in this
+     * object. The packet is the data between the buffer's position and limit, and the buffer may be direct or heap
+     * backed. Only absolute reads are used, so the buffer's position, limit and byte order are left unchanged.
+     * <p>
+     * A {@code java.lang.foreign.MemorySegment} can be decoded without copying by passing
+     * {@code segment.asByteBuffer()}.
+     *
+     * @param type The type of the packet data being parsed.
+     * @param packet The given packet data to parse.
+     *
+     * @throws IllegalArgumentException
+     * @throws ArithmeticException
+     */
+    public void parse_packet( Type type,
+                              ByteBuffer packet )
+            throws IllegalArgumentException, ArithmeticException
+    {
+        check_packet( type,
+                      packet );
 
-            int bar_trend_code = packet[3];
-            switch( bar_trend_code )
-            {
-                case -60:
-                    bar_trend = "Falling Rapidly";
-                    break;
-                case -20:
-                    bar_trend = "Falling Slowly";
-                    break;
-                case 0:
-                    bar_trend = "Steady";
-                    break;
-                case 20:
-                    bar_trend = "Rising Slowly";
-                    break;
-                case 60:
-                    bar_trend = "Rising Rapidly";
-                    break;
-                default:
-                    bar_trend = "N/A";
-                    break;
-            }
+        int base = packet.position();
+
+        if( type == Type.LOOP2 )
+        {
+            bar_trend = bar_trend_to_string( packet.get( base + 3 ) );
 
             barometer = (double)bytes_to_short( packet,
-                                                7 )
+                                                base + 7 )
                     / 1000;
             inside_temperature = (double)bytes_to_short( packet,
-                                                         9 )
+                                                         base + 9 )
                     / 10;
-            inside_humidity = packet[11] & 0xFF;
+            inside_humidity = packet.get( base + 11 ) & 0xFF;
             outside_temperature = (double)bytes_to_short( packet,
-                                                          12 )
+                                                          base + 12 )
                     / 10;
-            wind_speed = packet[14] & 0xFF;
+            wind_speed = packet.get( base + 14 ) & 0xFF;
             wind_direction = bytes_to_short( packet,
-                                             16 );
+                                             base + 16 );
             ten_min_avg_wind_speed = (double)bytes_to_short( packet,
-                                                             18 )
+                                                             base + 18 )
                     / 10;
             two_min_avg_wind_speed = (double)bytes_to_short( packet,
-                                                             20 )
+                                                             base + 20 )
                     / 10;
             ten_min_wind_gust = (double)bytes_to_short( packet,
-                                                        22 )
+                                                        base + 22 )
                     / 10;
             wind_direction_of_ten_min_wind_gust = bytes_to_short( packet,
-                                                                  24 );
+                                                                  base + 24 );
             dew_point = bytes_to_short( packet,
-                                        30 );
-            outside_humidity = packet[33] & 0xFF;
+                                        base + 30 );
+            outside_humidity = packet.get( base + 33 ) & 0xFF;
             heat_index = bytes_to_short( packet,
-                                         35 );
+                                         base + 35 );
             wind_chill = bytes_to_short( packet,
-                                         37 );
+                                         base + 37 );
             rain_rate = (double)bytes_to_short( packet,
-                                                41 )
+                                                base + 41 )
                     / 100;
             storm_rain = (double)bytes_to_short( packet,
-                                                 46 )
+                                                 base + 46 )
                     / 100;
             start_date_of_current_storm = bytes_to_date( packet,
-                                                         48 );
+                                                         base + 48 );
             daily_rain = (double)bytes_to_short( packet,
-                                                 50 )
+                                                 base + 50 )
                     / 100;
             last_fifteen_min_rain = (double)bytes_to_short( packet,
-                                                            52 )
+                                                            base + 52 )
                     / 100;
             last_hour_rain = (double)bytes_to_short( packet,
-                                                     54 )
+                                                     base + 54 )
                     / 100;
             daily_et = (double)bytes_to_short( packet,
-                                               56 )
+                                               base + 56 )
                     / 1000;
             last_twenty_four_hour_rain = (double)bytes_to_short( packet,
-                                                                 58 )
+                                                                 base + 58 )
                     / 100;
 
             update_heat_index_and_wind_chill();
@@ -167,189 +1088,297 @@ public class Weather_data
 
         if( type == Type.LOOP )
         {
-            if( length != 99 ) throw new IllegalArgumentException( "Incorrect packet size" );
-
-            if( ( packet[0] != 'L' ) || ( packet[1] != 'O' ) || ( packet[2] != 'O' ) || ( packet[4] != 0x00 )
-                    || ( packet[95] != 0x0A ) || ( packet[96] != 0x0D ) )
-            {
-                throw new IllegalArgumentException( "Invalid packet data" );
-            }
-
-            Check_CRC.check_CRC_16( packet,
-                                    0,
-                                    99 );
-
             month_rain = ( (double)bytes_to_short( packet,
-                                                   52 )
+                                                   base + 52 )
                     / 100 );
             year_rain = ( (double)bytes_to_short( packet,
-                                                  54 )
+                                                  base + 54 )
                     / 100 );
 
-            int battery_status = packet[86] & 0xFF;
+            int battery_status = packet.get( base + 86 ) & 0xFF;
             transmitter_battery_status = ( ( battery_status & 0x01 ) == 0 ) ? "OK" : "LOW";
             console_battery_voltage = ( ( ( (double)( bytes_to_short( packet,
-                                                                      87 ) )
+                                                                      base + 87 ) )
                     * 300 ) / 512 ) / 100 );
         }
 
         if( type == Type.HILOWS )
         {
-            if( length != 438 )
-            {
-                throw new IllegalArgumentException( "Incorrect packet size" );
-            }
-
-            Check_CRC.check_CRC_16( packet,
-                                    0,
-                                    438 );
-
             daily_low_barometer = (double)bytes_to_short( packet,
-                                                          0 )
+                                                          base + 0 )
                     / 1000;
             daily_high_barometer = (double)bytes_to_short( packet,
-                                                           2 )
+                                                           base + 2 )
                     / 1000;
             month_low_bar = (double)bytes_to_short( packet,
-                                                    4 )
+                                                    base + 4 )
                     / 1000;
             month_high_bar = (double)bytes_to_short( packet,
-                                                     6 )
+                                                     base + 6 )
                     / 1000;
             year_low_barometer = (double)bytes_to_short( packet,
-                                                         8 )
+                                                         base + 8 )
                     / 1000;
             year_high_barometer = (double)bytes_to_short( packet,
-                                                          10 )
+                                                          base + 10 )
                     / 1000;
             time_of_day_low_bar = bytes_to_time( packet,
-                                                 12 );
+                                                 base + 12 );
             time_of_day_high_bar = bytes_to_time( packet,
-                                                  14 );
+                                                  base + 14 );
 
-            daily_hi_wind_speed = packet[16] & 0xFF;
+            daily_hi_wind_speed = packet.get( base + 16 ) & 0xFF;
             time_of_hi_speed = bytes_to_time( packet,
-                                              17 );
-            month_hi_wind_speed = packet[19] & 0xFF;
-            year_hi_wind_speed = packet[20] & 0xFF;
+                                              base + 17 );
+            month_hi_wind_speed = packet.get( base + 19 ) & 0xFF;
+            year_hi_wind_speed = packet.get( base + 20 ) & 0xFF;
 
             day_hi_inside_temp = (double)bytes_to_short( packet,
-                                                         21 )
+                                                         base + 21 )
                     / 10;
             day_low_inside_temp = (double)bytes_to_short( packet,
-                                                          23 )
+                                                          base + 23 )
                     / 10;
             time_day_hi_in_temp = bytes_to_time( packet,
-                                                 25 );
+                                                 base + 25 );
             time_day_low_in_temp = bytes_to_time( packet,
-                                                  27 );
+                                                  base + 27 );
             month_low_in_temp = (double)bytes_to_short( packet,
-                                                        29 )
+                                                        base + 29 )
                     / 10;
             month_hi_in_temp = (double)bytes_to_short( packet,
-                                                       31 )
+                                                       base + 31 )
                     / 10;
             year_low_in_temp = (double)bytes_to_short( packet,
-                                                       33 )
+                                                       base + 33 )
                     / 10;
             year_hi_in_temp = (double)bytes_to_short( packet,
-                                                      35 )
+                                                      base + 35 )
                     / 10;
 
-            day_hi_in_hum = packet[37] & 0xFF;
-            day_low_in_hum = packet[38] & 0xFF;
+            day_hi_in_hum = packet.get( base + 37 ) & 0xFF;
+            day_low_in_hum = packet.get( base + 38 ) & 0xFF;
             time_day_hi_in_hum = bytes_to_time( packet,
-                                                39 );
+                                                base + 39 );
             time_day_low_in_hum = bytes_to_time( packet,
-                                                 41 );
-            month_hi_in_hum = packet[43] & 0xFF;
-            month_low_in_hum = packet[44] & 0xFF;
-            year_hi_in_hum = packet[45] & 0xFF;
-            year_low_in_hum = packet[46] & 0xFF;
+                                                 base + 41 );
+            month_hi_in_hum = packet.get( base + 43 ) & 0xFF;
+            month_low_in_hum = packet.get( base + 44 ) & 0xFF;
+            year_hi_in_hum = packet.get( base + 45 ) & 0xFF;
+            year_low_in_hum = packet.get( base + 46 ) & 0xFF;
 
             day_low_out_temp = (double)bytes_to_short( packet,
-                                                       47 )
+                                                       base + 47 )
                     / 10;
             day_hi_out_temp = (double)bytes_to_short( packet,
-                                                      49 )
+                                                      base + 49 )
                     / 10;
             time_day_low_out_temp = bytes_to_time( packet,
-                                                   51 );
+                                                   base + 51 );
             time_day_hi_out_temp = bytes_to_time( packet,
-                                                  53 );
+                                                  base + 53 );
             month_hi_out_temp = (double)bytes_to_short( packet,
-                                                        55 )
+                                                        base + 55 )
                     / 10;
             month_low_out_temp = (double)bytes_to_short( packet,
-                                                         57 )
+                                                         base + 57 )
                     / 10;
             year_hi_out_temp = (double)bytes_to_short( packet,
-                                                       59 )
+                                                       base + 59 )
                     / 10;
             year_low_out_temp = (double)bytes_to_short( packet,
-                                                        61 )
+                                                        base + 61 )
                     / 10;
 
             day_low_dew_point = bytes_to_short( packet,
-                                                63 );
+                                                base + 63 );
             day_hi_dew_point = bytes_to_short( packet,
-                                               65 );
+                                               base + 65 );
             time_day_low_dew_point = bytes_to_time( packet,
-                                                    67 );
+                                                    base + 67 );
             time_day_hi_dew_point = bytes_to_time( packet,
-                                                   69 );
+                                                   base + 69 );
             month_hi_dew_point = bytes_to_short( packet,
-                                                 71 );
+                                                 base + 71 );
             month_low_dew_point = bytes_to_short( packet,
-                                                  73 );
+                                                  base + 73 );
             year_hi_dew_point = bytes_to_short( packet,
-                                                75 );
+                                                base + 75 );
             year_low_dew_point = bytes_to_short( packet,
-                                                 77 );
+                                                 base + 77 );
 
             day_low_wind_chill = bytes_to_short( packet,
-                                                 79 );
+                                                 base + 79 );
             time_day_low_chill = bytes_to_time( packet,
-                                                81 );
+                                                base + 81 );
             month_low_wind_chill = bytes_to_short( packet,
-                                                   83 );
+                                                   base + 83 );
             year_low_wind_chill = bytes_to_short( packet,
-                                                  85 );
+                                                  base + 85 );
 
             day_high_heat = bytes_to_short( packet,
-                                            87 );
+                                            base + 87 );
             time_of_day_high_heat = bytes_to_time( packet,
-                                                   89 );
+                                                   base + 89 );
             month_high_heat = bytes_to_short( packet,
-                                              91 );
+                                              base + 91 );
             year_high_heat = bytes_to_short( packet,
-                                             93 );
+                                             base + 93 );
 
             day_high_rain_rate = (double)bytes_to_short( packet,
-                                                         116 )
+                                                         base + 116 )
                     / 100;
             time_of_day_high_rain_rate = bytes_to_time( packet,
-                                                        118 );
+                                                        base + 118 );
             hour_high_rain_rate = (double)bytes_to_short( packet,
-                                                          120 )
+                                                          base + 120 )
                     / 100;
             month_high_rain_rate = (double)bytes_to_short( packet,
-                                                           122 )
+                                                           base + 122 )
                     / 100;
             year_high_rain_rate = (double)bytes_to_short( packet,
-                                                          124 )
+                                                          base + 124 )
                     / 100;
 
-            day_low_humidity = packet[276] & 0xFF;
-            day_hi_humidity = packet[284] & 0xFF;
+            day_low_humidity = packet.get( base + 276 ) & 0xFF;
+            day_hi_humidity = packet.get( base + 284 ) & 0xFF;
             time_day_low_humidity = bytes_to_time( packet,
-                                                   292 );
+                                                   base + 292 );
             time_day_hi_humidity = bytes_to_time( packet,
-                                                  308 );
-            month_hi_humidity = packet[324] & 0xFF;
-            month_low_humidity = packet[332] & 0xFF;
-            year_hi_humidity = packet[340] & 0xFF;
-            year_low_humidity = packet[348] & 0xFF;
+                                                  base + 308 );
+            month_hi_humidity = packet.get( base + 324 ) & 0xFF;
+            month_low_humidity = packet.get( base + 332 ) & 0xFF;
+            year_hi_humidity = packet.get( base + 340 ) & 0xFF;
+            year_low_humidity = packet.get( base + 348 ) & 0xFF;
+        }
+    }
+
+    private static final Field[] LOOP2_FIELDS = { Field.BAR_TREND,
+                                                  Field.BAROMETER,
+                                                  Field.INSIDE_TEMPERATURE,
+                                                  Field.INSIDE_HUMIDITY,
+                                                  Field.OUTSIDE_TEMPERATURE,
+                                                  Field.WIND_SPEED,
+                                                  Field.WIND_DIRECTION,
+                                                  Field.TEN_MIN_AVG_WIND_SPEED,
+                                                  Field.TWO_MIN_AVG_WIND_SPEED,
+                                                  Field.TEN_MIN_WIND_GUST,
+                                                  Field.WIND_DIRECTION_OF_TEN_MIN_WIND_GUST,
+                                                  Field.DEW_POINT,
+                                                  Field.OUTSIDE_HUMIDITY,
+                                                  Field.HEAT_INDEX,
+                                                  Field.WIND_CHILL,
+                                                  Field.RAIN_RATE,
+                                                  Field.STORM_RAIN,
+                                                  Field.START_DATE_OF_CURRENT_STORM,
+                                                  Field.DAILY_RAIN,
+                                                  Field.LAST_FIFTEEN_MIN_RAIN,
+                                                  Field.LAST_HOUR_RAIN,
+                                                  Field.DAILY_ET,
+                                                  Field.LAST_TWENTY_FOUR_HOUR_RAIN,
+                                                  Field.HEAT_INDEX_DERIVED,
+                                                  Field.WIND_CHILL_DERIVED };
+
+    private static final Field[] LOOP_FIELDS = { Field.MONTH_RAIN,
+                                                 Field.YEAR_RAIN,
+                                                 Field.TRANSMITTER_BATTERY_STATUS,
+                                                 Field.CONSOLE_BATTERY_VOLTAGE };
+
+    private static final Field[] HILOWS_FIELDS = Arrays.copyOfRange( Field.get_values(),
+                                                                     Field.DAILY_LOW_BAROMETER.ordinal(),
+                                                                     Field.YEAR_LOW_HUMIDITY.ordinal() + 1 );
+
+    /**
+     * @param type The type of packet.
+     *
+     * @return The fields the packet type sets, shared, so must not be modified.
+     */
+    static Field[] get_packet_fields( Type type )
+    {
+        switch( type )
+        {
+            case LOOP2:
+                return LOOP2_FIELDS;
+            case LOOP:
+                return LOOP_FIELDS;
+            default:
+                return HILOWS_FIELDS;
+        }
+    }
+
+    /**
+     * Checks and decodes many packets in parallel on the common fork-join pool, each into its own weather data. A
+     * packet that fails does not stop the others, see {@link Bulk_packet_decoder}.
+     *
+     * @param packets The typed packets to decode.
+     *
+     * @return The decoded weather data or error for each packet, in the same order as the packets.
+     */
+    public static List< Bulk_packet_decoder.Result > parse_packets( List< Bulk_packet_decoder.Packet > packets )
+    {
+        return Bulk_packet_decoder.decode( packets );
+    }
+
+    /**
+     * Checks the size, framing and CRC of the packet between the buffer's position and limit.
+     *
+     * @param type The type of the packet data being checked.
+     * @param packet The given packet data to check.
+     *
+     * @throws IllegalArgumentException
+     * @throws ArithmeticException
+     */
+    static void check_packet( Type type,
+                              ByteBuffer packet )
+            throws IllegalArgumentException, ArithmeticException
+    {
+        int base = packet.position();
+        int length = packet.remaining();
+
+        if( ( type == Type.LOOP2 ) || ( type == Type.LOOP ) )
+        {
+            if( length != 99 ) throw new IllegalArgumentException( "Incorrect packet size" );
+
+            if( ( packet.get( base ) != 'L' ) || ( packet.get( base + 1 ) != 'O' ) || ( packet.get( base + 2 ) != 'O' )
+                    || ( packet.get( base + 4 ) != ( ( type == Type.LOOP2 ) ? 0x01 : 0x00 ) )
+                    || ( packet.get( base + 95 ) != 0x0A ) || ( packet.get( base + 96 ) != 0x0D ) )
+            {
+                throw new IllegalArgumentException( "Invalid packet data" );
+            }
+
+            Check_CRC.check_CRC_16( packet,
+                                    base,
+                                    99 );
+        }
+        else if( type == Type.HILOWS )
+        {
+            if( length != 438 )
+            {
+                throw new IllegalArgumentException( "Incorrect packet size" );
+            }
+
+            Check_CRC.check_CRC_16( packet,
+                                    base,
+                                    438 );
+        }
+    }
+
+    static String bar_trend_to_string( int bar_trend_code )
+    {
+        switch( bar_trend_code )
+        {
+            case -60:
+                return "Falling Rapidly";
+            case -20:
+                return "Falling Slowly";
+            case 0:
+                return "Steady";
+            case 20:
+                return "Rising Slowly";
+            case 60:
+                return "Rising Rapidly";
+            default:
+                return "N/A";
         }
     }
 
@@ -364,603 +1393,14 @@ public class Weather_data
     }
 
     /**
-     * Serializes object to a "Tab Separated Values" string for easier table generation.
+     * Serializes object to a "Tab Separated Values" string for easier table generation. Use
+     * {@link Weather_data_TSV_renderer} to render a single section, or into an {@link Appendable}.
      * 
      * @return The serialized object as a TSV string.
      */
     public String to_display_TSV_string()
     {
-        return "system_name\t" +
-                system_name +
-                "\n" +
-
-                "time\t" +
-                time +
-                "\n" +
-
-                /*
-                 * Temperatures
-                 */
-                "Temperatures" +
-                "\n" +
-
-                "outside_temperature\t" +
-                outside_temperature +
-                " " +
-                temperature_units +
-                "\n" +
-
-                "day_low_out_temp\t" +
-                day_low_out_temp +
-                " " +
-                temperature_units +
-                "\n" +
-
-                "time_day_low_out_temp\t" +
-                time_day_low_out_temp +
-                "\n" +
-
-                "day_hi_out_temp\t" +
-                day_hi_out_temp +
-                " " +
-                temperature_units +
-                "\n" +
-
-                "time_day_hi_out_temp\t" +
-                time_day_hi_out_temp +
-                "\n" +
-
-                "month_hi_out_temp\t" +
-                month_hi_out_temp +
-                " " +
-                temperature_units +
-                "\n" +
-
-                "month_low_out_temp\t" +
-                month_low_out_temp +
-                " " +
-                temperature_units +
-                "\n" +
-
-                "year_hi_out_temp\t" +
-                year_hi_out_temp +
-                " " +
-                temperature_units +
-                "\n" +
-
-                "year_low_out_temp\t" +
-                year_low_out_temp +
-                " " +
-                temperature_units +
-                "\n" +
-
-                "inside_temperature\t" +
-                inside_temperature +
-                " " +
-                temperature_units +
-                "\n" +
-
-                "day_hi_inside_temp\t" +
-                day_hi_inside_temp +
-                " " +
-                temperature_units +
-                "\n" +
-
-                "time_day_hi_in_temp\t" +
-                time_day_hi_in_temp +
-                "\n" +
-
-                "day_low_inside_temp\t" +
-                day_low_inside_temp +
-                " " +
-                temperature_units +
-                "\n" +
-
-                "time_day_low_in_temp\t" +
-                time_day_low_in_temp +
-                "\n" +
-
-                "month_low_in_temp\t" +
-                month_low_in_temp +
-                " " +
-                temperature_units +
-                "\n" +
-
-                "month_hi_in_temp\t" +
-                month_hi_in_temp +
-                " " +
-                temperature_units +
-                "\n" +
-
-                "year_low_in_temp\t" +
-                year_low_in_temp +
-                " " +
-                temperature_units +
-                "\n" +
-
-                "year_hi_in_temp\t" +
-                year_hi_in_temp +
-                " " +
-                temperature_units +
-                "\n" +
-
-                /*
-                 * Humidity
-                 */
-
-                "Humidity" +
-                "\n" +
-
-                "outside_humidity\t" +
-                outside_humidity +
-                " " +
-                humidity_units +
-                "\n" +
-
-                "day_low_humidity\t" +
-                day_low_humidity +
-                " " +
-                humidity_units +
-                "\n" +
-
-                "time_day_low_humidity\t" +
-                time_day_low_humidity +
-                "\n" +
-
-                "day_hi_humidity\t" +
-                day_hi_humidity +
-                " " +
-                humidity_units +
-                "\n" +
-
-                "time_day_hi_humidity\t" +
-                time_day_hi_humidity +
-                "\n" +
-
-                "month_hi_humidity\t" +
-                month_hi_humidity +
-                " " +
-                humidity_units +
-                "\n" +
-
-                "month_low_humidity\t" +
-                month_low_humidity +
-                " " +
-                humidity_units +
-                "\n" +
-
-                "year_hi_humidity\t" +
-                year_hi_humidity +
-                " " +
-                humidity_units +
-                "\n" +
-
-                "year_low_humidity\t" +
-                year_low_humidity +
-                humidity_units +
-                "\n" +
-
-                "dew_point\t" +
-                dew_point +
-                " " +
-                temperature_units +
-                "\n" +
-
-                "heat_index\t" +
-                heat_index +
-                " " +
-                temperature_units +
-                "\n" +
-
-                "heat_index_derived\t" +
-                heat_index_derived +
-                "\n" +
-
-                "day_high_heat\t" +
-                day_high_heat +
-                " " +
-                temperature_units +
-                "\n" +
-
-                "time_of_day_high_heat\t" +
-                time_of_day_high_heat +
-                "\n" +
-
-                "month_high_heat\t" +
-                month_high_heat +
-                " " +
-                temperature_units +
-                "\n" +
-
-                "year_high_heat\t" +
-                year_high_heat +
-                " " +
-                temperature_units +
-                "\n" +
-
-                "day_low_dew_point\t" +
-                day_low_dew_point +
-                " " +
-                temperature_units +
-                "\n" +
-
-                "time_day_low_dew_point\t" +
-                time_day_low_dew_point +
-                "\n" +
-
-                "day_hi_dew_point\t" +
-                day_hi_dew_point +
-                " " +
-                temperature_units +
-                "\n" +
-
-                "time_day_hi_dew_point\t" +
-                time_day_hi_dew_point +
-                "\n" +
-
-                "month_hi_dew_point\t" +
-                month_hi_dew_point +
-                " " +
-                temperature_units +
-                "\n" +
-
-                "month_low_dew_point\t" +
-                month_low_dew_point +
-                " " +
-                temperature_units +
-                "\n" +
-
-                "year_hi_dew_point\t" +
-                year_hi_dew_point +
-                " " +
-                temperature_units +
-                "\n" +
-
-                "year_low_dew_point\t" +
-                year_low_dew_point +
-                " " +
-                temperature_units +
-                "\n" +
-
-                "inside_humidity\t" +
-                inside_humidity +
-                " " +
-                humidity_units +
-                "\n" +
-
-                "day_hi_in_hum\t" +
-                day_hi_in_hum +
-                " " +
-                humidity_units +
-                "\n" +
-
-                "time_day_hi_in_hum\t" +
-                time_day_hi_in_hum +
-                "\n" +
-
-                "day_low_in_hum\t" +
-                day_low_in_hum +
-                " " +
-                humidity_units +
-                "\n" +
-
-                "time_day_low_in_hum\t" +
-                time_day_low_in_hum +
-                "\n" +
-
-                "month_hi_in_hum\t" +
-                month_hi_in_hum +
-                " " +
-                humidity_units +
-                "\n" +
-
-                "month_low_in_hum\t" +
-                month_low_in_hum +
-                " " +
-                humidity_units +
-                "\n" +
-
-                "year_hi_in_hum\t" +
-                year_hi_in_hum +
-                " " +
-                humidity_units +
-                "\n" +
-
-                "year_low_in_hum\t" +
-                year_low_in_hum +
-                " " +
-                humidity_units +
-                "\n" +
-
-                /*
-                 * Wind
-                 */
-
-                "Wind" +
-                "\n" +
-
-                "wind_speed\t" +
-                wind_speed +
-                " " +
-                wind_speed_units +
-                "\n" +
-
-                "wind_direction\t" +
-                wind_direction +
-                " " +
-                wind_direction_units +
-                "\n" +
-
-                "ten_min_avg_wind_speed\t" +
-                ten_min_avg_wind_speed +
-                " " +
-                wind_speed_units +
-                "\n" +
-
-                "two_min_avg_wind_speed\t" +
-                two_min_avg_wind_speed +
-                " " +
-                wind_speed_units +
-                "\n" +
-
-                "ten_min_wind_gust\t" +
-                ten_min_wind_gust +
-                " " +
-                wind_speed_units +
-                "\n" +
-
-                "dir_ten_min_wind_gust\t" +
-                wind_direction_of_ten_min_wind_gust +
-                " " +
-                wind_direction_units +
-                "\n" +
-
-                "wind_chill\t" +
-                wind_chill +
-                " " +
-                temperature_units +
-                "\n" +
-
-                "wind_chill_derived\t" +
-                wind_chill_derived +
-                "\n" +
-
-                "daily_hi_wind_speed\t" +
-                daily_hi_wind_speed +
-                " " +
-                wind_speed_units +
-                "\n" +
-
-                "time_of_hi_speed\t" +
-                time_of_hi_speed +
-                "\n" +
-
-                "month_hi_wind_speed\t" +
-                month_hi_wind_speed +
-                " " +
-                wind_speed_units +
-                "\n" +
-
-                "year_hi_wind_speed\t" +
-                year_hi_wind_speed +
-                " " +
-                wind_speed_units +
-                "\n" +
-
-                "day_low_wind_chill\t" +
-                day_low_wind_chill +
-                " " +
-                temperature_units +
-                "\n" +
-
-                "time_day_low_chill\t" +
-                time_day_low_chill +
-                "\n" +
-
-                "month_low_wind_chill\t" +
-                month_low_wind_chill +
-                " " +
-                temperature_units +
-                "\n" +
-
-                "year_low_wind_chill\t" +
-                year_low_wind_chill +
-                " " +
-                temperature_units +
-                "\n" +
-
-                /*
-                 * Rain
-                 */
-
-                "Rain" +
-                "\n" +
-
-                "storm_rain\t" +
-                storm_rain +
-                " " +
-                rain_units +
-                "\n" +
-
-                "start_date_curr_storm\t" +
-                start_date_of_current_storm +
-                "\n" +
-
-                "rain_rate\t" +
-                rain_rate +
-                " " +
-                rain_rate_units +
-                "\n" +
-
-                "last_fifteen_min_rain\t" +
-                last_fifteen_min_rain +
-                " " +
-                rain_units +
-                "\n" +
-
-                "last_hour_rain\t" +
-                last_hour_rain +
-                " " +
-                rain_units +
-                "\n" +
-
-                "daily_rain\t" +
-                daily_rain +
-                " " +
-                rain_units +
-                "\n" +
-
-                "last_24_hour_rain\t" +
-                last_twenty_four_hour_rain +
-                " " +
-                rain_units +
-                "\n" +
-
-                "month_rain\t" +
-                month_rain +
-                " " +
-                rain_units +
-                "\n" +
-
-                "year_rain\t" +
-                year_rain +
-                " " +
-                rain_units +
-                "\n" +
-
-                "day_high_rain_rate\t" +
-                day_high_rain_rate +
-                " " +
-                rain_rate_units +
-                "\n" +
-
-                "time_day_hi_rain_rate\t" +
-                time_of_day_high_rain_rate +
-                "\n" +
-
-                "hour_high_rain_rate\t" +
-                hour_high_rain_rate +
-                " " +
-                rain_rate_units +
-                "\n" +
-
-                "month_high_rain_rate\t" +
-                month_high_rain_rate +
-                " " +
-                rain_rate_units +
-                "\n" +
-
-                "year_high_rain_rate\t" +
-                year_high_rain_rate +
-                " " +
-                rain_rate_units +
-                "\n" +
-
-                /*
-                 * Barometer
-                 */
-
-                "Barometer" +
-                "\n" +
-
-                "barometer\t" +
-                barometer +
-                " " +
-                barometer_units +
-                "\n" +
-
-                "bar_trend\t" +
-                bar_trend +
-                "\n" +
-
-                "daily_low_barometer\t" +
-                daily_low_barometer +
-                " " +
-                barometer_units +
-                "\n" +
-
-                "time_of_day_low_bar\t" +
-                time_of_day_low_bar +
-                "\n" +
-
-                "daily_high_barometer\t" +
-                daily_high_barometer +
-                " " +
-                barometer_units +
-                "\n" +
-
-                "time_of_day_high_bar\t" +
-                time_of_day_high_bar +
-                "\n" +
-
-                "month_low_bar\t" +
-                month_low_bar +
-                " " +
-                barometer_units +
-                "\n" +
-
-                "month_high_bar\t" +
-                month_high_bar +
-                " " +
-                barometer_units +
-                "\n" +
-
-                "year_low_barometer\t" +
-                year_low_barometer +
-                " " +
-                barometer_units +
-                "\n" +
-
-                "year_high_barometer\t" +
-                year_high_barometer +
-                " " +
-                barometer_units +
-                "\n" +
-
-                /*
-                 * System
-                 */
-
-                "System" +
-                "\n" +
-
-                "station_battery_status\t" +
-                transmitter_battery_status +
-                "\n" +
-
-                "console_battery_voltage\t" +
-                console_battery_voltage +
-                " " +
-                console_battery_voltage_units +
-                "\n" +
-
-                /*
-                 * Forecast
-                 */
-
-                "Forecast" +
-                "\n" +
- 
-                "forecast_location_coordinates\t" +
-                forecast_location_coordinates +
-                "\n" +
-
-                "forecast_location_city\t" +
-                forecast_location_city + 
-                "\n" +
-
-                "forecast_location_state\t" +
-                forecast_location_state +
-                "\n" +
-
-                "period_1_forecast_icon\t" +
-                period_1_forecast_icon +
-                "\n" +
- 
-                "period_1_short_forecast\t" +
-                period_1_short_forecast +
-
-                "\n";
+        return Weather_data_TSV_renderer.render_to_string( this );
     }
 
     /**
@@ -1196,9 +1636,32 @@ public class Weather_data
         return (short)( ( ( buffer[index + 1] & 0xFF ) << 8 ) | ( buffer[index] & 0xFF ) );
     }
 
+    /**
+     * Converts two little-endian bytes to a signed short value using an absolute read, so the buffer's position and
+     * byte order are left unchanged.
+     *
+     * @param buffer The byte buffer containing the two bytes.
+     * @param index  The absolute index within the buffer to convert.
+     *
+     * @return The converted value.
+     */
+    public static short bytes_to_short( ByteBuffer buffer,
+                                        int index )
+    {
+        short value = buffer.getShort( index );
+        return( buffer.order() == ByteOrder.LITTLE_ENDIAN ) ? value : Short.reverseBytes( value );
+    }
+
     @SuppressWarnings("SameParameterValue")
     String bytes_to_date(byte[] buffer,
                          int index )
+    {
+        return bytes_to_date( ByteBuffer.wrap( buffer ),
+                              index );
+    }
+
+    static String bytes_to_date( ByteBuffer buffer,
+                                 int index )
     {
         short bits = bytes_to_short( buffer,
                                      index );
@@ -1210,9 +1673,26 @@ public class Weather_data
 
     String bytes_to_time( byte[] buffer,
                           int index )
+    {
+        return bytes_to_time( ByteBuffer.wrap( buffer ),
+                              index );
+    }
+
+    /**
+     * Converts a station time of the current local day, stored as hours * 100 + minutes, to a UTC time string. Valid
+     * times come from the shared {@link Time_of_day_table}, anything else is converted the long way.
+     */
+    static String bytes_to_time( ByteBuffer buffer,
+                                 int index )
     {
         short bits = bytes_to_short( buffer,
                                      index );
+        if( ( bits >= 0 ) && ( bits < 2400 ) && ( ( bits % 100 ) < 60 ) )
+        {
+            return Time_of_day_table.get( bits / 100,
+                                          bits % 100 );
+        }
+
         double hours = Math.floor( bits / 100D );
         double minutes = bits % 100D;
 
@@ -1230,11 +1710,45 @@ public class Weather_data
                                  .format( time_at_zulu ) );
     }
 
+    /*
+     * The columns of the history record, in order.
+     */
+    private static final Field[] HISTORY_FIELDS = { Field.TIME,
+                                                    Field.BAROMETER,
+                                                    Field.INSIDE_TEMPERATURE,
+                                                    Field.INSIDE_HUMIDITY,
+                                                    Field.OUTSIDE_TEMPERATURE,
+                                                    Field.WIND_SPEED,
+                                                    Field.WIND_DIRECTION,
+                                                    Field.TWO_MIN_AVG_WIND_SPEED,
+                                                    Field.TEN_MIN_WIND_GUST,
+                                                    Field.WIND_DIRECTION_OF_TEN_MIN_WIND_GUST,
+                                                    Field.DEW_POINT,
+                                                    Field.OUTSIDE_HUMIDITY,
+                                                    Field.HEAT_INDEX,
+                                                    Field.WIND_CHILL,
+                                                    Field.RAIN_RATE,
+                                                    Field.STORM_RAIN,
+                                                    Field.LAST_FIFTEEN_MIN_RAIN,
+                                                    Field.LAST_HOUR_RAIN,
+                                                    Field.LAST_TWENTY_FOUR_HOUR_RAIN };
+
+    /**
+     * @return The fields of {@link #get_history_record()}, in column order, shared, so must not be modified.
+     */
+    static Field[] get_history_fields()
+    {
+        return HISTORY_FIELDS;
+    }
+
     public static String get_history_record_columns()
     {
         return( "time,barometer,inside_temperature,inside_humidity,outside_temperature,wind_speed,wind_direction,two_min_avg_wind_speed,ten_min_wind_gust,wind_direction_of_ten_min_wind_gust,dew_point,outside_humidity,heat_index,wind_chill,rain_rate,storm_rain,last_fifteen_min_rain,last_hour_rain,last_twenty_four_hour_rain\n" );
     }
 
+    /**
+     * @return The history record as CSV. {@link Weather_data_CSV_writer} writes the same record without garbage.
+     */
     public String get_history_record()
     {
         return time +
@@ -1285,19 +1799,40 @@ public class Weather_data
     @Nullable
     public static Weather_data deserialize_from_JSON( String string_JSON )
     {
-        Weather_data object = null;
-        try
-        {
-            object = s_GSON.fromJson( string_JSON,
-                                      Weather_data.class );
-        }
-        catch( JsonSyntaxException exception )
-        {
-            System.out.println( "Bad data format for Weather_data: " + exception );
-            System.out.println( ">>>" + string_JSON + "<<<" );
-        }
+        return JSON_deserializer.read( s_GSON,
+                                       Weather_data.class,
+                                       string_JSON );
+    }
+
+    /**
+     * Reads the JSON straight from the reader, up to the end of the document. The reader is not closed.
+     *
+     * @return The object, or null if the JSON is empty or bad, which is reported without the data.
+     *
+     * @throws IOException If reading fails.
+     */
+    @Nullable
+    public static Weather_data deserialize_from_JSON( Reader input )
+            throws IOException
+    {
+        return JSON_deserializer.read( s_GSON,
+                                       Weather_data.class,
+                                       input );
+    }
 
-        return object;
+    /**
+     * Reads the UTF-8 JSON straight from the stream, up to the end of the document. The stream is not closed.
+     *
+     * @return The object, or null if the JSON is empty or bad, which is reported without the data.
+     *
+     * @throws IOException If reading fails.
+     */
+    @Nullable
+    public static Weather_data deserialize_from_JSON( InputStream input )
+            throws IOException
+    {
+        return deserialize_from_JSON( new InputStreamReader( input,
+                                                             StandardCharsets.UTF_8 ) );
     }
 
     public String serialize_to_JSON()
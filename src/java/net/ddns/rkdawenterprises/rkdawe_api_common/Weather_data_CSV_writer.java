@@ -0,0 +1,291 @@
+/*
+ * Copyright (c) 2024 RKDAW Enterprises and Ralph Williamson.
+ *       email: rkdawenterprises@gmail.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ddns.rkdawenterprises.rkdawe_api_common;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Writes {@link Weather_data} history records as CSV straight into a caller's {@link StringBuilder} or
+ * {@link ByteBuffer}, without making any garbage per record. The default columns are those of
+ * {@link Weather_data#get_history_record_columns()}, and the records are the same as
+ * {@link Weather_data#get_history_record()}, so existing history files can be appended to.
+ * <p>
+ * Station values are formatted from their scaled value, barometer in thousandths, temperatures in tenths and rain in
+ * hundredths, giving the same text as {@link Double#toString(double)}. Missing values are written as they always
+ * have been, MAX_VALUE and "N/A". Strings holding a comma, quote or line break are quoted, which the default columns
+ * never need.
+ * <p>
+ * Not thread safe, a scratch buffer is reused between calls. Use one writer per thread.
+ */
+@SuppressWarnings("unused")
+public final class Weather_data_CSV_writer
+{
+    private final Weather_data.Field[] m_columns;
+    private final String m_header;
+    private final byte[] m_number = new byte[Number_formatter.MAX_LENGTH];
+
+    /**
+     * A writer of the columns of {@link Weather_data#get_history_record()}.
+     */
+    public Weather_data_CSV_writer()
+    {
+        this( Weather_data.get_history_fields() );
+    }
+
+    /**
+     * @param columns The fields to write, in order.
+     *
+     * @throws IllegalArgumentException If there are no columns.
+     */
+    public Weather_data_CSV_writer( Weather_data.Field... columns )
+            throws IllegalArgumentException
+    {
+        if( columns.length == 0 ) throw new IllegalArgumentException( "At least one column is needed" );
+
+        m_columns = columns.clone();
+
+        StringBuilder header = new StringBuilder();
+        for( int i = 0; i < m_columns.length; i++ )
+        {
+            if( i > 0 ) header.append( ',' );
+            header.append( m_columns[i].json_name );
+        }
+
+        m_header = header.append( '\n' )
+                         .toString();
+    }
+
+    /**
+     * @return A copy of the columns written.
+     */
+    public Weather_data.Field[] get_columns()
+    {
+        return m_columns.clone();
+    }
+
+    /**
+     * @return The header line, the names of the columns, ending with a newline.
+     */
+    public String get_header()
+    {
+        return m_header;
+    }
+
+    /**
+     * Appends the record, ending with a newline.
+     */
+    public void append_record( Weather_data data,
+                               StringBuilder output )
+    {
+        for( int i = 0; i < m_columns.length; i++ )
+        {
+            if( i > 0 ) output.append( ',' );
+
+            Weather_data.Field field = m_columns[i];
+            if( field.is_string() )
+            {
+                append_string( field.get_string( data ),
+                               output );
+                continue;
+            }
+
+            int end = format_number( field,
+                                     data );
+            for( int j = 0; j < end; j++ )
+            {
+                output.append( (char)m_number[j] );
+            }
+        }
+
+        output.append( '\n' );
+    }
+
+    /**
+     * Writes the record as UTF-8, ending with a newline, at the buffer's position, which is advanced past it.
+     *
+     * @throws BufferOverflowException If the record does not fit, the buffer's position is left as it was.
+     */
+    public void write_record( Weather_data data,
+                              ByteBuffer output )
+            throws BufferOverflowException
+    {
+        int start = output.position();
+        try
+        {
+            for( int i = 0; i < m_columns.length; i++ )
+            {
+                if( i > 0 ) output.put( (byte)',' );
+
+                Weather_data.Field field = m_columns[i];
+                if( field.is_string() )
+                {
+                    put_string( field.get_string( data ),
+                                output );
+                    continue;
+                }
+
+                output.put( m_number,
+                            0,
+                            format_number( field,
+                                           data ) );
+            }
+
+            output.put( (byte)'\n' );
+        }
+        catch( BufferOverflowException exception )
+        {
+            output.position( start );
+            throw exception;
+        }
+    }
+
+    /*
+     * Formats into the scratch buffer, returning the length.
+     */
+    private int format_number( Weather_data.Field field,
+                               Weather_data data )
+    {
+        double value = field.get_number( data );
+        if( field.kind == Weather_data.Field.Kind.INT )
+        {
+            return Number_formatter.format_long( (int)value,
+                                                 m_number,
+                                                 0 );
+        }
+
+        return Number_formatter.format_double( value,
+                                               field.decimals,
+                                               m_number,
+                                               0 );
+    }
+
+    private static void append_string( String value,
+                                       StringBuilder output )
+    {
+        if( !needs_quotes( value ) )
+        {
+            output.append( value );
+            return;
+        }
+
+        output.append( '"' );
+        for( int i = 0; i < value.length(); i++ )
+        {
+            char c = value.charAt( i );
+            if( c == '"' ) output.append( '"' );
+            output.append( c );
+        }
+
+        output.append( '"' );
+    }
+
+    private static void put_string( String value,
+                                    ByteBuffer output )
+    {
+        if( value == null )
+        {
+            put_UTF_8( "null",
+                       output );
+            return;
+        }
+
+        if( !needs_quotes( value ) )
+        {
+            put_UTF_8( value,
+                       output );
+            return;
+        }
+
+        output.put( (byte)'"' );
+        for( int i = 0; i < value.length(); i++ )
+        {
+            if( value.charAt( i ) == '"' ) output.put( (byte)'"' );
+            i = put_UTF_8( value,
+                           i,
+                           output );
+        }
+
+        output.put( (byte)'"' );
+    }
+
+    private static boolean needs_quotes( String value )
+    {
+        if( value == null ) return false;
+
+        for( int i = 0; i < value.length(); i++ )
+        {
+            char c = value.charAt( i );
+            if( ( c == ',' ) || ( c == '"' ) || ( c == '\n' ) || ( c == '\r' ) ) return true;
+        }
+
+        return false;
+    }
+
+    private static void put_UTF_8( String value,
+                                   ByteBuffer output )
+    {
+        for( int i = 0; i < value.length(); i++ )
+        {
+            i = put_UTF_8( value,
+                           i,
+                           output );
+        }
+    }
+
+    /*
+     * Encodes the character at the index as String.getBytes does, with unpaired surrogates becoming '?'. Returns the
+     * index of its last char.
+     */
+    private static int put_UTF_8( String value,
+                                  int index,
+                                  ByteBuffer output )
+    {
+        char c = value.charAt( index );
+        if( c < 0x80 )
+        {
+            output.put( (byte)c );
+        }
+        else if( c < 0x800 )
+        {
+            output.put( (byte)( 0xC0 | ( c >> 6 ) ) );
+            output.put( (byte)( 0x80 | ( c & 0x3F ) ) );
+        }
+        else if( Character.isHighSurrogate( c ) && ( ( index + 1 ) < value.length() )
+                && Character.isLowSurrogate( value.charAt( index + 1 ) ) )
+        {
+            int code_point = Character.toCodePoint( c,
+                                                    value.charAt( ++index ) );
+            output.put( (byte)( 0xF0 | ( code_point >> 18 ) ) );
+            output.put( (byte)( 0x80 | ( ( code_point >> 12 ) & 0x3F ) ) );
+            output.put( (byte)( 0x80 | ( ( code_point >> 6 ) & 0x3F ) ) );
+            output.put( (byte)( 0x80 | ( code_point & 0x3F ) ) );
+        }
+        else if( Character.isSurrogate( c ) )
+        {
+            output.put( (byte)'?' );
+        }
+        else
+        {
+            output.put( (byte)( 0xE0 | ( c >> 12 ) ) );
+            output.put( (byte)( 0x80 | ( ( c >> 6 ) & 0x3F ) ) );
+            output.put( (byte)( 0x80 | ( c & 0x3F ) ) );
+        }
+
+        return index;
+    }
+}
@@ -0,0 +1,449 @@
+/*
+ * Copyright (c) 2024 RKDAW Enterprises and Ralph Williamson.
+ *       email: rkdawenterprises@gmail.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ddns.rkdawenterprises.rkdawe_api_common;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * Writes {@link Weather_data} and {@link Get_weather_station_data_GET_response} as compact UTF-8 JSON, without
+ * reflection or building a String. The output is the same as Gson's, as set up in {@link Weather_data#s_GSON} but
+ * without the pretty printing: the same field order, null fields left out, no HTML escaping and numbers formatted
+ * like {@link Double#toString(double)}.
+ * <p>
+ * The output buffer is kept and reused between calls. Not thread safe, use one writer per thread.
+ */
+@SuppressWarnings("unused")
+public final class Weather_data_JSON_writer
+{
+    private static final Weather_data.Field[] FIELDS = Weather_data.Field.get_values();
+    private static final byte[][] KEYS = new byte[FIELDS.length][];
+    private static final byte[] WEATHER_DATA_KEY = "\"weather_data\":".getBytes( StandardCharsets.UTF_8 );
+    private static final byte[] SUCCESS_KEY = "\"success\":".getBytes( StandardCharsets.UTF_8 );
+    private static final byte[] EPOCH_KEY = "\"epoch\":".getBytes( StandardCharsets.UTF_8 );
+    private static final byte[] VERSION_KEY = "\"version\":".getBytes( StandardCharsets.UTF_8 );
+    private static final byte[] BASE_VERSION_KEY = "\"base_version\":".getBytes( StandardCharsets.UTF_8 );
+    private static final byte[] DELTA_KEY = "\"delta\":".getBytes( StandardCharsets.UTF_8 );
+    private static final byte[] HEX = "0123456789abcdef".getBytes( StandardCharsets.UTF_8 );
+
+    static
+    {
+        for( int i = 0; i < FIELDS.length; i++ )
+        {
+            KEYS[i] = ( "\"" + FIELDS[i].json_name + "\":" ).getBytes( StandardCharsets.UTF_8 );
+        }
+    }
+
+    private byte[] m_buffer = new byte[8 * 1024];
+    private int m_count = 0;
+
+    public Weather_data_JSON_writer()
+    {
+    }
+
+    /**
+     * @throws IllegalArgumentException If a value is NaN or infinite, as Gson does.
+     */
+    public byte[] to_bytes( Weather_data data )
+            throws IllegalArgumentException
+    {
+        encode( data );
+        return Arrays.copyOf( m_buffer,
+                              m_count );
+    }
+
+    /**
+     * @throws IllegalArgumentException If a value is NaN or infinite, as Gson does.
+     */
+    public byte[] to_bytes( Get_weather_station_data_GET_response response )
+            throws IllegalArgumentException
+    {
+        encode( response );
+        return Arrays.copyOf( m_buffer,
+                              m_count );
+    }
+
+    /**
+     * @throws IllegalArgumentException If a value is NaN or infinite, as Gson does.
+     */
+    public void write( Weather_data data,
+                       OutputStream output )
+            throws IOException, IllegalArgumentException
+    {
+        encode( data );
+        output.write( m_buffer,
+                      0,
+                      m_count );
+    }
+
+    /**
+     * @throws IllegalArgumentException If a value is NaN or infinite, as Gson does.
+     */
+    public void write( Get_weather_station_data_GET_response response,
+                       OutputStream output )
+            throws IOException, IllegalArgumentException
+    {
+        encode( response );
+        output.write( m_buffer,
+                      0,
+                      m_count );
+    }
+
+    /**
+     * Writes at the buffer's position, which is advanced past the JSON.
+     *
+     * @throws java.nio.BufferOverflowException If the JSON does not fit, nothing is written.
+     * @throws IllegalArgumentException         If a value is NaN or infinite, as Gson does.
+     */
+    public void write( Weather_data data,
+                       ByteBuffer output )
+            throws IllegalArgumentException
+    {
+        encode( data );
+        output.put( m_buffer,
+                    0,
+                    m_count );
+    }
+
+    /**
+     * Writes at the buffer's position, which is advanced past the JSON.
+     *
+     * @throws java.nio.BufferOverflowException If the JSON does not fit, nothing is written.
+     * @throws IllegalArgumentException         If a value is NaN or infinite, as Gson does.
+     */
+    public void write( Get_weather_station_data_GET_response response,
+                       ByteBuffer output )
+            throws IllegalArgumentException
+    {
+        encode( response );
+        output.put( m_buffer,
+                    0,
+                    m_count );
+    }
+
+    private void encode( Weather_data data )
+    {
+        m_count = 0;
+        append_object( data );
+    }
+
+    private void encode( Get_weather_station_data_GET_response response )
+    {
+        m_count = 0;
+        append( (byte)'{' );
+
+        boolean first = true;
+        if( response.weather_data != null )
+        {
+            append( WEATHER_DATA_KEY );
+            append_object( response.weather_data );
+            first = false;
+        }
+
+        if( response.success != null )
+        {
+            if( !first ) append( (byte)',' );
+            append( SUCCESS_KEY );
+            append_string( response.success );
+            first = false;
+        }
+
+        if( response.epoch != null )
+        {
+            if( !first ) append( (byte)',' );
+            append( EPOCH_KEY );
+            append_string( response.epoch );
+            first = false;
+        }
+
+        if( response.version != null )
+        {
+            if( !first ) append( (byte)',' );
+            append( VERSION_KEY );
+            append_long( response.version );
+            first = false;
+        }
+
+        if( response.base_version != null )
+        {
+            if( !first ) append( (byte)',' );
+            append( BASE_VERSION_KEY );
+            append_long( response.base_version );
+            first = false;
+        }
+
+        if( response.delta != null )
+        {
+            if( !first ) append( (byte)',' );
+            append( DELTA_KEY );
+            append_delta( response.delta );
+        }
+
+        append( (byte)'}' );
+    }
+
+    private void append_delta( JsonObject delta )
+    {
+        append( (byte)'{' );
+
+        boolean first = true;
+        for( Map.Entry< String, JsonElement > entry : delta.entrySet() )
+        {
+            JsonElement value = entry.getValue();
+            if( value.isJsonNull() ) continue;
+
+            if( !first ) append( (byte)',' );
+            append_string( entry.getKey() );
+            append( (byte)':' );
+            first = false;
+
+            if( !value.isJsonPrimitive() )
+            {
+                append_ASCII( value.toString() );
+                continue;
+            }
+
+            JsonPrimitive primitive = value.getAsJsonPrimitive();
+            if( primitive.isString() )
+            {
+                append_string( primitive.getAsString() );
+            }
+            else if( primitive.isNumber() && ( primitive.getAsNumber() instanceof Double ) )
+            {
+                Weather_data.Field field = Weather_data.Field.for_json_name( entry.getKey() );
+                append_double( primitive.getAsDouble(),
+                               ( field == null ) ? -1 : field.decimals );
+            }
+            else
+            {
+                append_ASCII( primitive.toString() );
+            }
+        }
+
+        append( (byte)'}' );
+    }
+
+    private void append_object( Weather_data data )
+    {
+        append( (byte)'{' );
+
+        boolean first = true;
+        for( int i = 0; i < FIELDS.length; i++ )
+        {
+            Weather_data.Field field = FIELDS[i];
+            if( field.is_string() )
+            {
+                String value = field.get_string( data );
+                if( value == null ) continue;
+
+                if( !first ) append( (byte)',' );
+                append( KEYS[i] );
+                append_string( value );
+            }
+            else
+            {
+                if( !first ) append( (byte)',' );
+                append( KEYS[i] );
+
+                double value = field.get_number( data );
+                if( field.kind == Weather_data.Field.Kind.INT )
+                {
+                    append_long( (int)value );
+                }
+                else
+                {
+                    append_double( value,
+                                   field.decimals );
+                }
+            }
+
+            first = false;
+        }
+
+        append( (byte)'}' );
+    }
+
+    private void append_double( double value,
+                                int decimals )
+    {
+        if( Double.isNaN( value ) || Double.isInfinite( value ) )
+        {
+            throw new IllegalArgumentException( value + " is not a valid double value as per JSON specification." );
+        }
+
+        ensure_capacity( Number_formatter.MAX_LENGTH );
+        m_count = Number_formatter.format_double( value,
+                                                  decimals,
+                                                  m_buffer,
+                                                  m_count );
+    }
+
+    private void append_ASCII( String string )
+    {
+        ensure_capacity( string.length() );
+        for( int i = 0; i < string.length(); i++ )
+        {
+            m_buffer[m_count++] = (byte)string.charAt( i );
+        }
+    }
+
+    private void append_long( long value )
+    {
+        ensure_capacity( Number_formatter.MAX_LENGTH );
+        m_count = Number_formatter.format_long( value,
+                                                m_buffer,
+                                                m_count );
+    }
+
+    /*
+     * Escapes as Gson does with HTML escaping disabled, and encodes to UTF-8 as String.getBytes does, with unpaired
+     * surrogates becoming '?'.
+     */
+    private void append_string( String value )
+    {
+        int length = value.length();
+        ensure_capacity( ( length * 6 ) + 2 );
+
+        byte[] buffer = m_buffer;
+        int count = m_count;
+        buffer[count++] = '"';
+
+        for( int i = 0; i < length; i++ )
+        {
+            char c = value.charAt( i );
+            if( c < 0x80 )
+            {
+                if( c >= 0x20 )
+                {
+                    if( ( c == '"' ) || ( c == '\\' ) ) buffer[count++] = '\\';
+                    buffer[count++] = (byte)c;
+                    continue;
+                }
+
+                buffer[count++] = '\\';
+                switch( c )
+                {
+                    case '\t':
+                        buffer[count++] = 't';
+                        break;
+                    case '\b':
+                        buffer[count++] = 'b';
+                        break;
+                    case '\n':
+                        buffer[count++] = 'n';
+                        break;
+                    case '\r':
+                        buffer[count++] = 'r';
+                        break;
+                    case '\f':
+                        buffer[count++] = 'f';
+                        break;
+                    default:
+                        count = append_unicode_escape( buffer,
+                                                       count,
+                                                       c );
+                        break;
+                }
+            }
+            else if( c < 0x800 )
+            {
+                buffer[count++] = (byte)( 0xC0 | ( c >>> 6 ) );
+                buffer[count++] = (byte)( 0x80 | ( c & 0x3F ) );
+            }
+            else if( ( c == 0x2028 ) || ( c == 0x2029 ) )
+            {
+                buffer[count++] = '\\';
+                count = append_unicode_escape( buffer,
+                                               count,
+                                               c );
+            }
+            else if( Character.isSurrogate( c ) )
+            {
+                if( Character.isHighSurrogate( c ) && ( ( i + 1 ) < length )
+                        && Character.isLowSurrogate( value.charAt( i + 1 ) ) )
+                {
+                    int code_point = Character.toCodePoint( c,
+                                                            value.charAt( ++i ) );
+                    buffer[count++] = (byte)( 0xF0 | ( code_point >>> 18 ) );
+                    buffer[count++] = (byte)( 0x80 | ( ( code_point >>> 12 ) & 0x3F ) );
+                    buffer[count++] = (byte)( 0x80 | ( ( code_point >>> 6 ) & 0x3F ) );
+                    buffer[count++] = (byte)( 0x80 | ( code_point & 0x3F ) );
+                }
+                else
+                {
+                    buffer[count++] = '?';
+                }
+            }
+            else
+            {
+                buffer[count++] = (byte)( 0xE0 | ( c >>> 12 ) );
+                buffer[count++] = (byte)( 0x80 | ( ( c >>> 6 ) & 0x3F ) );
+                buffer[count++] = (byte)( 0x80 | ( c & 0x3F ) );
+            }
+        }
+
+        buffer[count++] = '"';
+        m_count = count;
+    }
+
+    private static int append_unicode_escape( byte[] buffer,
+                                              int count,
+                                              char c )
+    {
+        buffer[count++] = 'u';
+        buffer[count++] = HEX[( c >>> 12 ) & 0xF];
+        buffer[count++] = HEX[( c >>> 8 ) & 0xF];
+        buffer[count++] = HEX[( c >>> 4 ) & 0xF];
+        buffer[count++] = HEX[c & 0xF];
+        return count;
+    }
+
+    private void append( byte value )
+    {
+        ensure_capacity( 1 );
+        m_buffer[m_count++] = value;
+    }
+
+    private void append( byte[] bytes )
+    {
+        ensure_capacity( bytes.length );
+        System.arraycopy( bytes,
+                          0,
+                          m_buffer,
+                          m_count,
+                          bytes.length );
+        m_count += bytes.length;
+    }
+
+    private void ensure_capacity( int needed )
+    {
+        if( ( m_count + needed ) > m_buffer.length )
+        {
+            m_buffer = Arrays.copyOf( m_buffer,
+                                      Math.max( m_buffer.length * 2,
+                                                m_count + needed ) );
+        }
+    }
+}
@@ -0,0 +1,536 @@
+/*
+ * Copyright (c) 2024 RKDAW Enterprises and Ralph Williamson.
+ *       email: rkdawenterprises@gmail.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ddns.rkdawenterprises.rkdawe_api_common;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Renders {@link Weather_data} as the "Tab Separated Values" display text of
+ * {@link Weather_data#to_display_TSV_string()}, whole or one section at a time, into any {@link Appendable}. The
+ * labels, section titles and separators are made once, so rendering only writes the values.
+ * <p>
+ * Thread safe, the template is shared and never changes.
+ */
+@SuppressWarnings("unused")
+public final class Weather_data_TSV_renderer
+{
+    /**
+     * The sections of the display, in order. Each but the heading starts with a line holding its title.
+     */
+    public enum Section
+    {
+        HEADING( null,
+                 line( "system_name",
+                       Weather_data.Field.SYSTEM_NAME ),
+                 line( "time",
+                       Weather_data.Field.TIME ) ),
+
+        TEMPERATURES( "Temperatures",
+                      line( "outside_temperature",
+                            Weather_data.Field.OUTSIDE_TEMPERATURE,
+                            Weather_data.Field.TEMPERATURE_UNITS ),
+                      line( "day_low_out_temp",
+                            Weather_data.Field.DAY_LOW_OUT_TEMP,
+                            Weather_data.Field.TEMPERATURE_UNITS ),
+                      line( "time_day_low_out_temp",
+                            Weather_data.Field.TIME_DAY_LOW_OUT_TEMP ),
+                      line( "day_hi_out_temp",
+                            Weather_data.Field.DAY_HI_OUT_TEMP,
+                            Weather_data.Field.TEMPERATURE_UNITS ),
+                      line( "time_day_hi_out_temp",
+                            Weather_data.Field.TIME_DAY_HI_OUT_TEMP ),
+                      line( "month_hi_out_temp",
+                            Weather_data.Field.MONTH_HI_OUT_TEMP,
+                            Weather_data.Field.TEMPERATURE_UNITS ),
+                      line( "month_low_out_temp",
+                            Weather_data.Field.MONTH_LOW_OUT_TEMP,
+                            Weather_data.Field.TEMPERATURE_UNITS ),
+                      line( "year_hi_out_temp",
+                            Weather_data.Field.YEAR_HI_OUT_TEMP,
+                            Weather_data.Field.TEMPERATURE_UNITS ),
+                      line( "year_low_out_temp",
+                            Weather_data.Field.YEAR_LOW_OUT_TEMP,
+                            Weather_data.Field.TEMPERATURE_UNITS ),
+                      line( "inside_temperature",
+                            Weather_data.Field.INSIDE_TEMPERATURE,
+                            Weather_data.Field.TEMPERATURE_UNITS ),
+                      line( "day_hi_inside_temp",
+                            Weather_data.Field.DAY_HI_INSIDE_TEMP,
+                            Weather_data.Field.TEMPERATURE_UNITS ),
+                      line( "time_day_hi_in_temp",
+                            Weather_data.Field.TIME_DAY_HI_IN_TEMP ),
+                      line( "day_low_inside_temp",
+                            Weather_data.Field.DAY_LOW_INSIDE_TEMP,
+                            Weather_data.Field.TEMPERATURE_UNITS ),
+                      line( "time_day_low_in_temp",
+                            Weather_data.Field.TIME_DAY_LOW_IN_TEMP ),
+                      line( "month_low_in_temp",
+                            Weather_data.Field.MONTH_LOW_IN_TEMP,
+                            Weather_data.Field.TEMPERATURE_UNITS ),
+                      line( "month_hi_in_temp",
+                            Weather_data.Field.MONTH_HI_IN_TEMP,
+                            Weather_data.Field.TEMPERATURE_UNITS ),
+                      line( "year_low_in_temp",
+                            Weather_data.Field.YEAR_LOW_IN_TEMP,
+                            Weather_data.Field.TEMPERATURE_UNITS ),
+                      line( "year_hi_in_temp",
+                            Weather_data.Field.YEAR_HI_IN_TEMP,
+                            Weather_data.Field.TEMPERATURE_UNITS ) ),
+
+        HUMIDITY( "Humidity",
+                  line( "outside_humidity",
+                        Weather_data.Field.OUTSIDE_HUMIDITY,
+                        Weather_data.Field.HUMIDITY_UNITS ),
+                  line( "day_low_humidity",
+                        Weather_data.Field.DAY_LOW_HUMIDITY,
+                        Weather_data.Field.HUMIDITY_UNITS ),
+                  line( "time_day_low_humidity",
+                        Weather_data.Field.TIME_DAY_LOW_HUMIDITY ),
+                  line( "day_hi_humidity",
+                        Weather_data.Field.DAY_HI_HUMIDITY,
+                        Weather_data.Field.HUMIDITY_UNITS ),
+                  line( "time_day_hi_humidity",
+                        Weather_data.Field.TIME_DAY_HI_HUMIDITY ),
+                  line( "month_hi_humidity",
+                        Weather_data.Field.MONTH_HI_HUMIDITY,
+                        Weather_data.Field.HUMIDITY_UNITS ),
+                  line( "month_low_humidity",
+                        Weather_data.Field.MONTH_LOW_HUMIDITY,
+                        Weather_data.Field.HUMIDITY_UNITS ),
+                  line( "year_hi_humidity",
+                        Weather_data.Field.YEAR_HI_HUMIDITY,
+                        Weather_data.Field.HUMIDITY_UNITS ),
+                  unspaced_line( "year_low_humidity",
+                                 Weather_data.Field.YEAR_LOW_HUMIDITY,
+                                 Weather_data.Field.HUMIDITY_UNITS ),
+                  line( "dew_point",
+                        Weather_data.Field.DEW_POINT,
+                        Weather_data.Field.TEMPERATURE_UNITS ),
+                  line( "heat_index",
+                        Weather_data.Field.HEAT_INDEX,
+                        Weather_data.Field.TEMPERATURE_UNITS ),
+                  line( "heat_index_derived",
+                        Weather_data.Field.HEAT_INDEX_DERIVED ),
+                  line( "day_high_heat",
+                        Weather_data.Field.DAY_HIGH_HEAT,
+                        Weather_data.Field.TEMPERATURE_UNITS ),
+                  line( "time_of_day_high_heat",
+                        Weather_data.Field.TIME_OF_DAY_HIGH_HEAT ),
+                  line( "month_high_heat",
+                        Weather_data.Field.MONTH_HIGH_HEAT,
+                        Weather_data.Field.TEMPERATURE_UNITS ),
+                  line( "year_high_heat",
+                        Weather_data.Field.YEAR_HIGH_HEAT,
+                        Weather_data.Field.TEMPERATURE_UNITS ),
+                  line( "day_low_dew_point",
+                        Weather_data.Field.DAY_LOW_DEW_POINT,
+                        Weather_data.Field.TEMPERATURE_UNITS ),
+                  line( "time_day_low_dew_point",
+                        Weather_data.Field.TIME_DAY_LOW_DEW_POINT ),
+                  line( "day_hi_dew_point",
+                        Weather_data.Field.DAY_HI_DEW_POINT,
+                        Weather_data.Field.TEMPERATURE_UNITS ),
+                  line( "time_day_hi_dew_point",
+                        Weather_data.Field.TIME_DAY_HI_DEW_POINT ),
+                  line( "month_hi_dew_point",
+                        Weather_data.Field.MONTH_HI_DEW_POINT,
+                        Weather_data.Field.TEMPERATURE_UNITS ),
+                  line( "month_low_dew_point",
+                        Weather_data.Field.MONTH_LOW_DEW_POINT,
+                        Weather_data.Field.TEMPERATURE_UNITS ),
+                  line( "year_hi_dew_point",
+                        Weather_data.Field.YEAR_HI_DEW_POINT,
+                        Weather_data.Field.TEMPERATURE_UNITS ),
+                  line( "year_low_dew_point",
+                        Weather_data.Field.YEAR_LOW_DEW_POINT,
+                        Weather_data.Field.TEMPERATURE_UNITS ),
+                  line( "inside_humidity",
+                        Weather_data.Field.INSIDE_HUMIDITY,
+                        Weather_data.Field.HUMIDITY_UNITS ),
+                  line( "day_hi_in_hum",
+                        Weather_data.Field.DAY_HI_IN_HUM,
+                        Weather_data.Field.HUMIDITY_UNITS ),
+                  line( "time_day_hi_in_hum",
+                        Weather_data.Field.TIME_DAY_HI_IN_HUM ),
+                  line( "day_low_in_hum",
+                        Weather_data.Field.DAY_LOW_IN_HUM,
+                        Weather_data.Field.HUMIDITY_UNITS ),
+                  line( "time_day_low_in_hum",
+                        Weather_data.Field.TIME_DAY_LOW_IN_HUM ),
+                  line( "month_hi_in_hum",
+                        Weather_data.Field.MONTH_HI_IN_HUM,
+                        Weather_data.Field.HUMIDITY_UNITS ),
+                  line( "month_low_in_hum",
+                        Weather_data.Field.MONTH_LOW_IN_HUM,
+                        Weather_data.Field.HUMIDITY_UNITS ),
+                  line( "year_hi_in_hum",
+                        Weather_data.Field.YEAR_HI_IN_HUM,
+                        Weather_data.Field.HUMIDITY_UNITS ),
+                  line( "year_low_in_hum",
+                        Weather_data.Field.YEAR_LOW_IN_HUM,
+                        Weather_data.Field.HUMIDITY_UNITS ) ),
+
+        WIND( "Wind",
+              line( "wind_speed",
+                    Weather_data.Field.WIND_SPEED,
+                    Weather_data.Field.WIND_SPEED_UNITS ),
+              line( "wind_direction",
+                    Weather_data.Field.WIND_DIRECTION,
+                    Weather_data.Field.WIND_DIRECTION_UNITS ),
+              line( "ten_min_avg_wind_speed",
+                    Weather_data.Field.TEN_MIN_AVG_WIND_SPEED,
+                    Weather_data.Field.WIND_SPEED_UNITS ),
+              line( "two_min_avg_wind_speed",
+                    Weather_data.Field.TWO_MIN_AVG_WIND_SPEED,
+                    Weather_data.Field.WIND_SPEED_UNITS ),
+              line( "ten_min_wind_gust",
+                    Weather_data.Field.TEN_MIN_WIND_GUST,
+                    Weather_data.Field.WIND_SPEED_UNITS ),
+              line( "dir_ten_min_wind_gust",
+                    Weather_data.Field.WIND_DIRECTION_OF_TEN_MIN_WIND_GUST,
+                    Weather_data.Field.WIND_DIRECTION_UNITS ),
+              line( "wind_chill",
+                    Weather_data.Field.WIND_CHILL,
+                    Weather_data.Field.TEMPERATURE_UNITS ),
+              line( "wind_chill_derived",
+                    Weather_data.Field.WIND_CHILL_DERIVED ),
+              line( "daily_hi_wind_speed",
+                    Weather_data.Field.DAILY_HI_WIND_SPEED,
+                    Weather_data.Field.WIND_SPEED_UNITS ),
+              line( "time_of_hi_speed",
+                    Weather_data.Field.TIME_OF_HI_SPEED ),
+              line( "month_hi_wind_speed",
+                    Weather_data.Field.MONTH_HI_WIND_SPEED,
+                    Weather_data.Field.WIND_SPEED_UNITS ),
+              line( "year_hi_wind_speed",
+                    Weather_data.Field.YEAR_HI_WIND_SPEED,
+                    Weather_data.Field.WIND_SPEED_UNITS ),
+              line( "day_low_wind_chill",
+                    Weather_data.Field.DAY_LOW_WIND_CHILL,
+                    Weather_data.Field.TEMPERATURE_UNITS ),
+              line( "time_day_low_chill",
+                    Weather_data.Field.TIME_DAY_LOW_CHILL ),
+              line( "month_low_wind_chill",
+                    Weather_data.Field.MONTH_LOW_WIND_CHILL,
+                    Weather_data.Field.TEMPERATURE_UNITS ),
+              line( "year_low_wind_chill",
+                    Weather_data.Field.YEAR_LOW_WIND_CHILL,
+                    Weather_data.Field.TEMPERATURE_UNITS ) ),
+
+        RAIN( "Rain",
+              line( "storm_rain",
+                    Weather_data.Field.STORM_RAIN,
+                    Weather_data.Field.RAIN_UNITS ),
+              line( "start_date_curr_storm",
+                    Weather_data.Field.START_DATE_OF_CURRENT_STORM ),
+              line( "rain_rate",
+                    Weather_data.Field.RAIN_RATE,
+                    Weather_data.Field.RAIN_RATE_UNITS ),
+              line( "last_fifteen_min_rain",
+                    Weather_data.Field.LAST_FIFTEEN_MIN_RAIN,
+                    Weather_data.Field.RAIN_UNITS ),
+              line( "last_hour_rain",
+                    Weather_data.Field.LAST_HOUR_RAIN,
+                    Weather_data.Field.RAIN_UNITS ),
+              line( "daily_rain",
+                    Weather_data.Field.DAILY_RAIN,
+                    Weather_data.Field.RAIN_UNITS ),
+              line( "last_24_hour_rain",
+                    Weather_data.Field.LAST_TWENTY_FOUR_HOUR_RAIN,
+                    Weather_data.Field.RAIN_UNITS ),
+              line( "month_rain",
+                    Weather_data.Field.MONTH_RAIN,
+                    Weather_data.Field.RAIN_UNITS ),
+              line( "year_rain",
+                    Weather_data.Field.YEAR_RAIN,
+                    Weather_data.Field.RAIN_UNITS ),
+              line( "day_high_rain_rate",
+                    Weather_data.Field.DAY_HIGH_RAIN_RATE,
+                    Weather_data.Field.RAIN_RATE_UNITS ),
+              line( "time_day_hi_rain_rate",
+                    Weather_data.Field.TIME_OF_DAY_HIGH_RAIN_RATE ),
+              line( "hour_high_rain_rate",
+                    Weather_data.Field.HOUR_HIGH_RAIN_RATE,
+                    Weather_data.Field.RAIN_RATE_UNITS ),
+              line( "month_high_rain_rate",
+                    Weather_data.Field.MONTH_HIGH_RAIN_RATE,
+                    Weather_data.Field.RAIN_RATE_UNITS ),
+              line( "year_high_rain_rate",
+                    Weather_data.Field.YEAR_HIGH_RAIN_RATE,
+                    Weather_data.Field.RAIN_RATE_UNITS ) ),
+
+        BAROMETER( "Barometer",
+                   line( "barometer",
+                         Weather_data.Field.BAROMETER,
+                         Weather_data.Field.BAROMETER_UNITS ),
+                   line( "bar_trend",
+                         Weather_data.Field.BAR_TREND ),
+                   line( "daily_low_barometer",
+                         Weather_data.Field.DAILY_LOW_BAROMETER,
+                         Weather_data.Field.BAROMETER_UNITS ),
+                   line( "time_of_day_low_bar",
+                         Weather_data.Field.TIME_OF_DAY_LOW_BAR ),
+                   line( "daily_high_barometer",
+                         Weather_data.Field.DAILY_HIGH_BAROMETER,
+                         Weather_data.Field.BAROMETER_UNITS ),
+                   line( "time_of_day_high_bar",
+                         Weather_data.Field.TIME_OF_DAY_HIGH_BAR ),
+                   line( "month_low_bar",
+                         Weather_data.Field.MONTH_LOW_BAR,
+                         Weather_data.Field.BAROMETER_UNITS ),
+                   line( "month_high_bar",
+                         Weather_data.Field.MONTH_HIGH_BAR,
+                         Weather_data.Field.BAROMETER_UNITS ),
+                   line( "year_low_barometer",
+                         Weather_data.Field.YEAR_LOW_BAROMETER,
+                         Weather_data.Field.BAROMETER_UNITS ),
+                   line( "year_high_barometer",
+                         Weather_data.Field.YEAR_HIGH_BAROMETER,
+                         Weather_data.Field.BAROMETER_UNITS ) ),
+
+        SYSTEM( "System",
+                line( "station_battery_status",
+                      Weather_data.Field.TRANSMITTER_BATTERY_STATUS ),
+                line( "console_battery_voltage",
+                      Weather_data.Field.CONSOLE_BATTERY_VOLTAGE,
+                      Weather_data.Field.CONSOLE_BATTERY_VOLTAGE_UNITS ) ),
+
+        FORECAST( "Forecast",
+                  line( "forecast_location_coordinates",
+                        Weather_data.Field.FORECAST_LOCATION_COORDINATES ),
+                  line( "forecast_location_city",
+                        Weather_data.Field.FORECAST_LOCATION_CITY ),
+                  line( "forecast_location_state",
+                        Weather_data.Field.FORECAST_LOCATION_STATE ),
+                  line( "period_1_forecast_icon",
+                        Weather_data.Field.PERIOD_1_FORECAST_ICON ),
+                  line( "period_1_short_forecast",
+                        Weather_data.Field.PERIOD_1_SHORT_FORECAST ) );
+
+        private final String m_title;
+        private final String m_title_line;
+        private final Line[] m_lines;
+
+        Section( String title,
+                 Line... lines )
+        {
+            m_title = title;
+            m_title_line = ( title == null ) ? null : ( title + "\n" );
+            m_lines = lines;
+        }
+
+        /**
+         * @return The title of the section, or null for the heading, which has none.
+         */
+        public String get_title()
+        {
+            return m_title;
+        }
+    }
+
+    /*
+     * A label, a value and maybe its units, as "label\tvalue units\n".
+     */
+    private static final class Line
+    {
+        private final String m_label;
+        private final Weather_data.Field m_value;
+        private final Weather_data.Field m_units;
+        private final String m_separator;
+
+        Line( String label,
+              Weather_data.Field value,
+              Weather_data.Field units,
+              String separator )
+        {
+            m_label = label + "\t";
+            m_value = value;
+            m_units = units;
+            m_separator = separator;
+        }
+    }
+
+    private static final Section[] SECTIONS = Section.values();
+
+    private Weather_data_TSV_renderer()
+    {
+    }
+
+    /**
+     * Renders every section, the same as {@link Weather_data#to_display_TSV_string()}.
+     */
+    public static void render( Weather_data data,
+                               Appendable output )
+            throws IOException
+    {
+        byte[] number = new byte[Number_formatter.MAX_LENGTH];
+        for( Section section : SECTIONS )
+        {
+            render( data,
+                    section,
+                    output,
+                    number );
+        }
+    }
+
+    /**
+     * Renders one section, including its title line.
+     */
+    public static void render( Weather_data data,
+                               Section section,
+                               Appendable output )
+            throws IOException
+    {
+        render( data,
+                section,
+                output,
+                new byte[Number_formatter.MAX_LENGTH] );
+    }
+
+    /**
+     * @return Every section, as a string.
+     */
+    public static String render_to_string( Weather_data data )
+    {
+        StringBuilder output = new StringBuilder( 4096 );
+        try
+        {
+            render( data,
+                    output );
+        }
+        catch( IOException exception )
+        {
+            throw new UncheckedIOException( exception );
+        }
+
+        return output.toString();
+    }
+
+    /**
+     * @return The section, as a string.
+     */
+    public static String render_to_string( Weather_data data,
+                                           Section section )
+    {
+        StringBuilder output = new StringBuilder( 1024 );
+        try
+        {
+            render( data,
+                    section,
+                    output );
+        }
+        catch( IOException exception )
+        {
+            throw new UncheckedIOException( exception );
+        }
+
+        return output.toString();
+    }
+
+    private static void render( Weather_data data,
+                                Section section,
+                                Appendable output,
+                                byte[] number )
+            throws IOException
+    {
+        if( section.m_title_line != null ) output.append( section.m_title_line );
+
+        for( Line line : section.m_lines )
+        {
+            output.append( line.m_label );
+            append_value( data,
+                          line.m_value,
+                          output,
+                          number );
+
+            if( line.m_units != null )
+            {
+                output.append( line.m_separator );
+                append_value( data,
+                              line.m_units,
+                              output,
+                              number );
+            }
+
+            output.append( '\n' );
+        }
+    }
+
+    /*
+     * Formats as string concatenation does, so null strings become "null".
+     */
+    private static void append_value( Weather_data data,
+                                      Weather_data.Field field,
+                                      Appendable output,
+                                      byte[] number )
+            throws IOException
+    {
+        if( field.is_string() )
+        {
+            String value = field.get_string( data );
+            output.append( ( value == null ) ? "null" : value );
+            return;
+        }
+
+        double value = field.get_number( data );
+        int length = ( field.kind == Weather_data.Field.Kind.INT )
+                ? Number_formatter.format_long( (int)value,
+                                                number,
+                                                0 )
+                : Number_formatter.format_double( value,
+                                                  field.decimals,
+                                                  number,
+                                                  0 );
+        for( int i = 0; i < length; i++ )
+        {
+            output.append( (char)number[i] );
+        }
+    }
+
+    private static Line line( String label,
+                              Weather_data.Field value )
+    {
+        return new Line( label,
+                         value,
+                         null,
+                         null );
+    }
+
+    private static Line line( String label,
+                              Weather_data.Field value,
+                              Weather_data.Field units )
+    {
+        return new Line( label,
+                         value,
+                         units,
+                         " " );
+    }
+
+    /*
+     * The display has always had no space before the units on some lines, kept so it does not change.
+     */
+    private static Line unspaced_line( String label,
+                                       Weather_data.Field value,
+                                       Weather_data.Field units )
+    {
+        return new Line( label,
+                         value,
+                         units,
+                         "" );
+    }
+}
@@ -0,0 +1,690 @@
+/*
+ * Copyright (c) 2024 RKDAW Enterprises and Ralph Williamson.
+ *       email: rkdawenterprises@gmail.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ddns.rkdawenterprises.rkdawe_api_common;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+
+/**
+ * A compact binary form of {@link Get_weather_station_data_GET_response}, for clients on slow links. A client asks
+ * for it by sending {@link #MEDIA_TYPE} in its Accept header.
+ * <p>
+ * The data starts with 'W', 'D' and the format version, followed by tagged values much like protocol buffers. Each
+ * tag is a varint of the field number shifted left two bits, with the wire type in the low two bits:
+ * <ul>
+ *     <li>VARINT, a zigzag varint. INT fields, DOUBLE fields from the station scaled by their decimals, and TIME
+ *     fields as seconds since the epoch.</li>
+ *     <li>FIXED64, the eight little-endian bytes of a double, for calculated values and values that do not scale.</li>
+ *     <li>BYTES, a varint length and that many bytes. Strings as UTF-8, times that do not parse, and the weather
+ *     data itself.</li>
+ *     <li>NULL, no value, for null strings.</li>
+ * </ul>
+ * The response has the weather data as field 1, success as 2, version as 3, base version as 4, the delta as 5 and
+ * the epoch as 6.
+ * In the weather data and the delta the field number of each {@link Weather_data.Field} is its
+ * {@link Weather_data.Field#tag}. In the weather data fields holding "no data", "N/A" or MAX_VALUE, are left out, and
+ * the decoder sets them back. In the delta they are sent, since a change to "no data" is a change. Unknown fields are
+ * skipped, so fields can be added with new tags, anywhere in {@link Weather_data.Field}, without breaking older
+ * clients. A field's tag must never change or be reused.
+ * <p>
+ * Not thread safe, the encode buffers are reused between calls. Use one codec per thread. Decoding is static.
+ */
+@SuppressWarnings("unused")
+public final class Weather_data_binary_codec
+{
+    public static final String MEDIA_TYPE = "application/vnd.rkdawe.weather-data";
+
+    public static final int FORMAT_VERSION = 1;
+
+    private static final byte MAGIC_0 = 'W';
+    private static final byte MAGIC_1 = 'D';
+
+    private static final int VARINT = 0;
+    private static final int FIXED64 = 1;
+    private static final int BYTES = 2;
+    private static final int NULL = 3;
+
+    private static final int WEATHER_DATA_FIELD = 1;
+    private static final int SUCCESS_FIELD = 2;
+    private static final int VERSION_FIELD = 3;
+    private static final int BASE_VERSION_FIELD = 4;
+    private static final int DELTA_FIELD = 5;
+    private static final int EPOCH_FIELD = 6;
+
+    private static final Weather_data.Field[] FIELDS = Weather_data.Field.get_values();
+    private static final double[] SCALES = { 1, 10, 100, 1000 };
+
+    private static final class Output
+    {
+        byte[] m_buffer = new byte[2 * 1024];
+        int m_count = 0;
+
+        void ensure_capacity( int needed )
+        {
+            if( ( m_count + needed ) > m_buffer.length )
+            {
+                m_buffer = Arrays.copyOf( m_buffer,
+                                          Math.max( m_buffer.length * 2,
+                                                    m_count + needed ) );
+            }
+        }
+
+        void write_byte( int value )
+        {
+            ensure_capacity( 1 );
+            m_buffer[m_count++] = (byte)value;
+        }
+
+        void write_varint( long value )
+        {
+            ensure_capacity( 10 );
+            while( ( value & ~0x7FL ) != 0 )
+            {
+                m_buffer[m_count++] = (byte)( ( value & 0x7F ) | 0x80 );
+                value >>>= 7;
+            }
+
+            m_buffer[m_count++] = (byte)value;
+        }
+
+        void write_fixed64( long value )
+        {
+            ensure_capacity( 8 );
+            for( int i = 0; i < 8; i++ )
+            {
+                m_buffer[m_count++] = (byte)value;
+                value >>>= 8;
+            }
+        }
+
+        void write_bytes( byte[] bytes,
+                          int length )
+        {
+            write_varint( length );
+            ensure_capacity( length );
+            System.arraycopy( bytes,
+                              0,
+                              m_buffer,
+                              m_count,
+                              length );
+            m_count += length;
+        }
+
+        void write_tag( int field_number,
+                        int wire_type )
+        {
+            write_varint( ( (long)field_number << 2 ) | wire_type );
+        }
+    }
+
+    private static final class Input
+    {
+        final ByteBuffer m_data;
+        int m_position;
+        final int m_end;
+
+        Input( ByteBuffer data,
+               int position,
+               int end )
+        {
+            m_data = data;
+            m_position = position;
+            m_end = end;
+        }
+
+        boolean has_remaining()
+        {
+            return( m_position < m_end );
+        }
+
+        int read_byte()
+        {
+            if( m_position >= m_end ) throw new IllegalArgumentException( "Truncated binary weather data" );
+
+            return m_data.get( m_position++ ) & 0xFF;
+        }
+
+        long read_varint()
+        {
+            long value = 0;
+            for( int shift = 0; shift < 64; shift += 7 )
+            {
+                int b = read_byte();
+                value |= (long)( b & 0x7F ) << shift;
+                if( ( b & 0x80 ) == 0 ) return value;
+            }
+
+            throw new IllegalArgumentException( "Malformed varint in binary weather data" );
+        }
+
+        long read_fixed64()
+        {
+            long value = 0;
+            for( int i = 0; i < 8; i++ )
+            {
+                value |= (long)read_byte() << ( i * 8 );
+            }
+
+            return value;
+        }
+
+        int read_length()
+        {
+            long length = read_varint();
+            if( ( length < 0 ) || ( length > ( m_end - m_position ) ) )
+            {
+                throw new IllegalArgumentException( "Truncated binary weather data" );
+            }
+
+            return (int)length;
+        }
+
+        String read_string()
+        {
+            int length = read_length();
+            byte[] bytes = new byte[length];
+            for( int i = 0; i < length; i++ )
+            {
+                bytes[i] = m_data.get( m_position + i );
+            }
+
+            m_position += length;
+            return new String( bytes,
+                               StandardCharsets.UTF_8 );
+        }
+
+        void skip( int wire_type )
+        {
+            switch( wire_type )
+            {
+                case VARINT:
+                    read_varint();
+                    break;
+                case FIXED64:
+                    read_fixed64();
+                    break;
+                case BYTES:
+                    m_position += read_length();
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private final Output m_output = new Output();
+    private final Output m_fields = new Output();
+
+    public Weather_data_binary_codec()
+    {
+    }
+
+    /**
+     * @param response The response to encode.
+     *
+     * @return The binary form.
+     */
+    public byte[] encode( Get_weather_station_data_GET_response response )
+    {
+        encode_response( response );
+        return Arrays.copyOf( m_output.m_buffer,
+                              m_output.m_count );
+    }
+
+    /**
+     * @param response The response to encode.
+     * @param output   Where to write the binary form.
+     */
+    public void write( Get_weather_station_data_GET_response response,
+                       OutputStream output )
+            throws IOException
+    {
+        encode_response( response );
+        output.write( m_output.m_buffer,
+                      0,
+                      m_output.m_count );
+    }
+
+    /**
+     * @throws IllegalArgumentException If the data is not a valid binary response.
+     */
+    public static Get_weather_station_data_GET_response decode( byte[] data )
+            throws IllegalArgumentException
+    {
+        return decode( ByteBuffer.wrap( data ) );
+    }
+
+    /**
+     * Decodes the response between the buffer's position and limit, using absolute reads.
+     *
+     * @throws IllegalArgumentException If the data is not a valid binary response.
+     */
+    public static Get_weather_station_data_GET_response decode( ByteBuffer data )
+            throws IllegalArgumentException
+    {
+        Input input = new Input( data,
+                                 data.position(),
+                                 data.limit() );
+        if( ( input.read_byte() != MAGIC_0 ) || ( input.read_byte() != MAGIC_1 ) )
+        {
+            throw new IllegalArgumentException( "Not binary weather data" );
+        }
+
+        int version = input.read_byte();
+        if( version > FORMAT_VERSION )
+        {
+            throw new IllegalArgumentException( "Unsupported binary weather data version " + version );
+        }
+
+        Get_weather_station_data_GET_response response = new Get_weather_station_data_GET_response();
+        while( input.has_remaining() )
+        {
+            long tag = input.read_varint();
+            int wire_type = (int)( tag & 3 );
+            long field_number = tag >>> 2;
+
+            if( ( field_number == WEATHER_DATA_FIELD ) && ( wire_type == BYTES ) )
+            {
+                int length = input.read_length();
+                Weather_data weather_data = new Weather_data();
+                for( Weather_data.Field field : FIELDS )
+                {
+                    field.clear( weather_data );
+                }
+
+                decode_fields( new Input( data,
+                                          input.m_position,
+                                          input.m_position + length ),
+                               weather_data,
+                               null );
+                response.weather_data = weather_data;
+                input.m_position += length;
+            }
+            else if( ( field_number == SUCCESS_FIELD ) && ( wire_type == BYTES ) )
+            {
+                response.success = input.read_string();
+            }
+            else if( ( field_number == VERSION_FIELD ) && ( wire_type == VARINT ) )
+            {
+                response.version = unzigzag( input.read_varint() );
+            }
+            else if( ( field_number == BASE_VERSION_FIELD ) && ( wire_type == VARINT ) )
+            {
+                response.base_version = unzigzag( input.read_varint() );
+            }
+            else if( ( field_number == EPOCH_FIELD ) && ( wire_type == BYTES ) )
+            {
+                response.epoch = input.read_string();
+            }
+            else if( ( field_number == DELTA_FIELD ) && ( wire_type == BYTES ) )
+            {
+                int length = input.read_length();
+                response.delta = new JsonObject();
+                decode_fields( new Input( data,
+                                          input.m_position,
+                                          input.m_position + length ),
+                               null,
+                               response.delta );
+                input.m_position += length;
+            }
+            else
+            {
+                input.skip( wire_type );
+            }
+        }
+
+        return response;
+    }
+
+    private void encode_response( Get_weather_station_data_GET_response response )
+    {
+        Output output = m_output;
+        output.m_count = 0;
+        output.write_byte( MAGIC_0 );
+        output.write_byte( MAGIC_1 );
+        output.write_byte( FORMAT_VERSION );
+
+        if( response.weather_data != null )
+        {
+            m_fields.m_count = 0;
+            encode_weather_data( response.weather_data,
+                                 m_fields );
+            output.write_tag( WEATHER_DATA_FIELD,
+                              BYTES );
+            output.write_bytes( m_fields.m_buffer,
+                                m_fields.m_count );
+        }
+
+        if( response.success != null )
+        {
+            byte[] success = response.success.getBytes( StandardCharsets.UTF_8 );
+            output.write_tag( SUCCESS_FIELD,
+                              BYTES );
+            output.write_bytes( success,
+                                success.length );
+        }
+
+        if( response.epoch != null )
+        {
+            byte[] epoch = response.epoch.getBytes( StandardCharsets.UTF_8 );
+            output.write_tag( EPOCH_FIELD,
+                              BYTES );
+            output.write_bytes( epoch,
+                                epoch.length );
+        }
+
+        if( response.version != null )
+        {
+            output.write_tag( VERSION_FIELD,
+                              VARINT );
+            output.write_varint( zigzag( response.version ) );
+        }
+
+        if( response.base_version != null )
+        {
+            output.write_tag( BASE_VERSION_FIELD,
+                              VARINT );
+            output.write_varint( zigzag( response.base_version ) );
+        }
+
+        if( response.delta != null )
+        {
+            m_fields.m_count = 0;
+            encode_delta( response.delta,
+                          m_fields );
+            output.write_tag( DELTA_FIELD,
+                              BYTES );
+            output.write_bytes( m_fields.m_buffer,
+                                m_fields.m_count );
+        }
+    }
+
+    private static void encode_weather_data( Weather_data data,
+                                             Output output )
+    {
+        for( Weather_data.Field field : FIELDS )
+        {
+            if( field.is_string() )
+            {
+                write_string_field( output,
+                                    field.tag,
+                                    field,
+                                    field.get_string( data ),
+                                    true );
+            }
+            else
+            {
+                write_number_field( output,
+                                    field.tag,
+                                    field,
+                                    field.get_number( data ),
+                                    true );
+            }
+        }
+    }
+
+    /*
+     * Fields changed to "no data" must be sent, so nothing is left out. Fields this version does not know can not be
+     * typed and are dropped.
+     */
+    private static void encode_delta( JsonObject delta,
+                                      Output output )
+    {
+        for( Map.Entry< String, JsonElement > entry : delta.entrySet() )
+        {
+            Weather_data.Field field = Weather_data.Field.for_json_name( entry.getKey() );
+            JsonElement value = entry.getValue();
+            if( field == null ) continue;
+
+            if( field.is_string() )
+            {
+                write_string_field( output,
+                                    field.tag,
+                                    field,
+                                    value.isJsonNull() ? null : value.getAsString(),
+                                    false );
+            }
+            else if( !value.isJsonNull() )
+            {
+                write_number_field( output,
+                                    field.tag,
+                                    field,
+                                    value.getAsDouble(),
+                                    false );
+            }
+        }
+    }
+
+    private static void write_string_field( Output output,
+                                            int field_number,
+                                            Weather_data.Field field,
+                                            String value,
+                                            boolean omit_no_data )
+    {
+        if( value == null )
+        {
+            output.write_tag( field_number,
+                              NULL );
+            return;
+        }
+
+        if( omit_no_data && value.equals( "N/A" ) ) return;
+
+        if( field.kind == Weather_data.Field.Kind.TIME )
+        {
+            long time_ms = Compact_weather_data.parse_time( value );
+            if( time_ms != Long.MIN_VALUE )
+            {
+                output.write_tag( field_number,
+                                  VARINT );
+                output.write_varint( zigzag( time_ms / 1000 ) );
+                return;
+            }
+        }
+
+        byte[] bytes = value.getBytes( StandardCharsets.UTF_8 );
+        output.write_tag( field_number,
+                          BYTES );
+        output.write_bytes( bytes,
+                            bytes.length );
+    }
+
+    private static void write_number_field( Output output,
+                                            int field_number,
+                                            Weather_data.Field field,
+                                            double value,
+                                            boolean omit_no_data )
+    {
+        if( field.kind == Weather_data.Field.Kind.INT )
+        {
+            if( omit_no_data && ( value == Integer.MAX_VALUE ) ) return;
+
+            output.write_tag( field_number,
+                              VARINT );
+            output.write_varint( zigzag( (long)value ) );
+            return;
+        }
+
+        if( omit_no_data && ( value == Double.MAX_VALUE ) ) return;
+
+        if( field.decimals >= 0 )
+        {
+            double scaled = Math.rint( value * SCALES[field.decimals] );
+            if( ( Math.abs( scaled ) < ( 1L << 53 ) )
+                    && ( Double.doubleToRawLongBits( scaled / SCALES[field.decimals] )
+                    == Double.doubleToRawLongBits( value ) ) )
+            {
+                output.write_tag( field_number,
+                                  VARINT );
+                output.write_varint( zigzag( (long)scaled ) );
+                return;
+            }
+        }
+
+        output.write_tag( field_number,
+                          FIXED64 );
+        output.write_fixed64( Double.doubleToRawLongBits( value ) );
+    }
+
+    /*
+     * Decodes the fields into the weather data, or if it is null into the delta.
+     */
+    private static void decode_fields( Input input,
+                                       Weather_data data,
+                                       JsonObject delta )
+    {
+        while( input.has_remaining() )
+        {
+            long tag = input.read_varint();
+            int wire_type = (int)( tag & 3 );
+            long field_number = tag >>> 2;
+
+            Weather_data.Field field = Weather_data.Field.for_tag( field_number );
+            if( field == null )
+            {
+                input.skip( wire_type );
+                continue;
+            }
+
+            switch( wire_type )
+            {
+                case NULL:
+                    if( field.is_string() )
+                    {
+                        put_string( field,
+                                    null,
+                                    data,
+                                    delta );
+                    }
+                    break;
+
+                case BYTES:
+                    if( field.is_string() )
+                    {
+                        put_string( field,
+                                    input.read_string(),
+                                    data,
+                                    delta );
+                    }
+                    else
+                    {
+                        input.skip( wire_type );
+                    }
+                    break;
+
+                case VARINT:
+                    long value = unzigzag( input.read_varint() );
+                    if( field.kind == Weather_data.Field.Kind.TIME )
+                    {
+                        put_string( field,
+                                    Time_of_day_table.UTC_FORMATTER.format( Instant.ofEpochSecond( value ) ),
+                                    data,
+                                    delta );
+                    }
+                    else if( field.kind == Weather_data.Field.Kind.INT )
+                    {
+                        put_number( field,
+                                    (int)value,
+                                    data,
+                                    delta );
+                    }
+                    else if( field.kind == Weather_data.Field.Kind.DOUBLE )
+                    {
+                        put_number( field,
+                                    (double)value / ( ( field.decimals < 0 ) ? 1 : SCALES[field.decimals] ),
+                                    data,
+                                    delta );
+                    }
+                    break;
+
+                default:
+                    long bits = input.read_fixed64();
+                    if( field.kind == Weather_data.Field.Kind.DOUBLE )
+                    {
+                        put_number( field,
+                                    Double.longBitsToDouble( bits ),
+                                    data,
+                                    delta );
+                    }
+                    break;
+            }
+        }
+    }
+
+    private static void put_string( Weather_data.Field field,
+                                    String value,
+                                    Weather_data data,
+                                    JsonObject delta )
+    {
+        if( data != null )
+        {
+            field.set_string( data,
+                              value );
+        }
+        else if( value == null )
+        {
+            delta.add( field.json_name,
+                       JsonNull.INSTANCE );
+        }
+        else
+        {
+            delta.addProperty( field.json_name,
+                               value );
+        }
+    }
+
+    private static void put_number( Weather_data.Field field,
+                                    double value,
+                                    Weather_data data,
+                                    JsonObject delta )
+    {
+        if( data != null )
+        {
+            field.set_number( data,
+                              value );
+        }
+        else if( field.kind == Weather_data.Field.Kind.INT )
+        {
+            delta.addProperty( field.json_name,
+                               (int)value );
+        }
+        else
+        {
+            delta.addProperty( field.json_name,
+                               value );
+        }
+    }
+
+    private static long zigzag( long value )
+    {
+        return( value << 1 ) ^ ( value >> 63 );
+    }
+
+    private static long unzigzag( long value )
+    {
+        return( value >>> 1 ) ^ -( value & 1 );
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2024 RKDAW Enterprises and Ralph Williamson.
+ *       email: rkdawenterprises@gmail.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ddns.rkdawenterprises.rkdawe_api_common;
+
+import com.google.gson.JsonObject;
+
+/**
+ * Makes the responses for {@link API_paths#WEATHER_STATION_DATA_PATH} when the client sends the version it last saw
+ * in {@link API_paths#SINCE_VERSION_PARAMETER}, and its epoch in {@link API_paths#SINCE_EPOCH_PARAMETER}. Keeps the
+ * fields changed by each of the last published snapshots, so the response can hold just the fields changed since the
+ * client's version. A client whose version is too old, unknown, or from another epoch, gets the full weather data.
+ * <p>
+ * Snapshots must be added in version order, as published by {@link Weather_data_publisher}. A gap in the versions,
+ * or a new epoch, makes all the older versions too old.
+ */
+@SuppressWarnings("unused")
+public class Weather_data_delta_tracker
+{
+    public static final int DEFAULT_HISTORY = 256;
+
+    /*
+     * The fields changed by each version, at the index of the version modulo the length.
+     */
+    private final Field_mask[] m_changes;
+    private Weather_data_snapshot m_latest = null;
+
+    /*
+     * The oldest version a delta can be made from.
+     */
+    private long m_oldest_base_version = 0;
+
+    public Weather_data_delta_tracker()
+    {
+        this( DEFAULT_HISTORY );
+    }
+
+    /**
+     * @param history The number of versions to keep the changes of.
+     */
+    public Weather_data_delta_tracker( int history )
+    {
+        if( history < 1 ) throw new IllegalArgumentException( "History must be at least one version" );
+
+        m_changes = new Field_mask[history];
+        for( int i = 0; i < history; i++ )
+        {
+            m_changes[i] = new Field_mask();
+        }
+    }
+
+    /**
+     * @param snapshot The newly published snapshot.
+     */
+    public synchronized void add( Weather_data_snapshot snapshot )
+    {
+        long version = snapshot.get_version();
+        boolean same_epoch = ( m_latest != null ) && m_latest.get_epoch()
+                                                             .equals( snapshot.get_epoch() );
+        if( same_epoch && ( version <= m_latest.get_version() ) ) return;
+
+        // The changes from before a gap, before the first snapshot, or from another epoch, are not known.
+        if( !same_epoch || ( version != ( m_latest.get_version() + 1 ) ) )
+        {
+            m_oldest_base_version = version;
+        }
+
+        m_changes[(int)Math.floorMod( version,
+                                      (long)m_changes.length )].copy_from( snapshot.get_changed_mask() );
+        m_oldest_base_version = Math.max( m_oldest_base_version,
+                                          version - m_changes.length );
+        m_latest = snapshot;
+    }
+
+    /**
+     * @return The latest snapshot added, or null if none.
+     */
+    public synchronized Weather_data_snapshot get_latest()
+    {
+        return m_latest;
+    }
+
+    /**
+     * @param since_epoch   The epoch of the version the client last saw, or null if it sent none.
+     * @param since_version The version the client last saw, or null if it sent none.
+     * @param success       The response's success value.
+     *
+     * @return A delta from the client's version if it is of the latest snapshot's epoch and recent enough,
+     *         otherwise the full weather data. Null if no snapshot has been added.
+     */
+    public Get_weather_station_data_GET_response make_response( String since_epoch,
+                                                                Long since_version,
+                                                                String success )
+    {
+        Weather_data_snapshot latest;
+        Field_mask changed = null;
+
+        synchronized( this )
+        {
+            latest = m_latest;
+            if( latest == null ) return null;
+
+            boolean same_epoch = latest.get_epoch()
+                                       .equals( since_epoch );
+            if( same_epoch && ( since_version != null ) && ( since_version >= m_oldest_base_version )
+                    && ( since_version <= latest.get_version() ) )
+            {
+                changed = new Field_mask();
+                for( long version = since_version + 1; version <= latest.get_version(); version++ )
+                {
+                    changed.or( m_changes[(int)Math.floorMod( version,
+                                                              (long)m_changes.length )] );
+                }
+            }
+        }
+
+        Get_weather_station_data_GET_response response = new Get_weather_station_data_GET_response();
+        response.success = success;
+        response.epoch = latest.get_epoch();
+        response.version = latest.get_version();
+
+        if( ( changed != null ) && is_representable( latest,
+                                                     changed ) )
+        {
+            response.base_version = since_version;
+            response.delta = make_delta( latest,
+                                         changed );
+        }
+        else
+        {
+            response.weather_data = latest.to_weather_data();
+        }
+
+        return response;
+    }
+
+    /*
+     * Gson leaves out null members, so a field changed to a null string can only be sent in full.
+     */
+    private static boolean is_representable( Weather_data_snapshot snapshot,
+                                             Field_mask changed )
+    {
+        for( Weather_data.Field field = changed.next( null ); field != null; field = changed.next( field ) )
+        {
+            if( field.is_string() && ( snapshot.get_string( field ) == null ) ) return false;
+        }
+
+        return true;
+    }
+
+    private static JsonObject make_delta( Weather_data_snapshot snapshot,
+                                          Field_mask changed )
+    {
+        JsonObject delta = new JsonObject();
+        for( Weather_data.Field field = changed.next( null ); field != null; field = changed.next( field ) )
+        {
+            switch( field.kind )
+            {
+                case INT:
+                    delta.addProperty( field.json_name,
+                                       (int)snapshot.get_number( field ) );
+                    break;
+                case DOUBLE:
+                    delta.addProperty( field.json_name,
+                                       snapshot.get_number( field ) );
+                    break;
+                default:
+                    delta.addProperty( field.json_name,
+                                       snapshot.get_string( field ) );
+                    break;
+            }
+        }
+
+        return delta;
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright (c) 2024 RKDAW Enterprises and Ralph Williamson.
+ *       email: rkdawenterprises@gmail.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ddns.rkdawenterprises.rkdawe_api_common;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Owns a working {@link Weather_data} that a stream of packets is parsed into, along with the state kept from one
+ * packet to the next, so that none of it is carried by the weather data itself.
+ * <p>
+ * Not thread safe.
+ */
+@SuppressWarnings("unused")
+public class Weather_data_ingester
+{
+    private final Weather_data m_data;
+
+    /*
+     * The values of the packet's fields from before it was parsed, for finding what changed.
+     */
+    private final double[] m_previous_numbers;
+    private final String[] m_previous_strings;
+
+    /*
+     * The last LOOP2 packet parsed, for skipping duplicates. The CRC is 16 bits, so -1 means there is none.
+     */
+    private boolean m_skip_duplicate_packets = false;
+    private byte[] m_last_LOOP2 = null;
+    private ByteBuffer m_last_LOOP2_view = null;
+    private int m_last_LOOP2_CRC = -1;
+    private long m_number_of_duplicate_packets_skipped = 0;
+
+    public Weather_data_ingester()
+    {
+        this( new Weather_data() );
+    }
+
+    /**
+     * @param initial The starting weather data, which is copied.
+     */
+    public Weather_data_ingester( Weather_data initial )
+    {
+        m_data = new Weather_data();
+        m_data.copy_from( initial );
+
+        int most_fields = 0;
+        for( Weather_data.Type type : Weather_data.Type.values() )
+        {
+            most_fields = Math.max( most_fields,
+                                    Weather_data.get_packet_fields( type ).length );
+        }
+
+        m_previous_numbers = new double[most_fields];
+        m_previous_strings = new String[most_fields];
+    }
+
+    /**
+     * @return The working weather data, not a copy. It may be changed between packets, see
+     *         {@link #set_skip_duplicate_packets(boolean)}.
+     */
+    public Weather_data get_data()
+    {
+        return m_data;
+    }
+
+    /**
+     * Parses the packet into the working weather data, see
+     * {@link Weather_data#parse_packet(Weather_data.Type, ByteBuffer)}.
+     *
+     * @param type   The type of the packet data being parsed.
+     * @param packet The packet data between the buffer's position and limit.
+     *
+     * @return False if the packet was skipped as a duplicate.
+     *
+     * @throws IllegalArgumentException
+     * @throws ArithmeticException
+     */
+    public boolean parse_packet( Weather_data.Type type,
+                                 ByteBuffer packet )
+            throws IllegalArgumentException, ArithmeticException
+    {
+        if( skip_duplicate_packet( type,
+                                   packet ) )
+        {
+            return false;
+        }
+
+        m_data.parse_packet( type,
+                             packet );
+        if( m_skip_duplicate_packets && ( type == Weather_data.Type.LOOP2 ) ) remember_LOOP2( packet );
+
+        return true;
+    }
+
+    /**
+     * @see #parse_packet(Weather_data.Type, ByteBuffer)
+     */
+    public boolean parse_packet( Weather_data.Type type,
+                                 byte[] packet,
+                                 int length )
+            throws IllegalArgumentException, ArithmeticException
+    {
+        if( ( length < 0 ) || ( length > packet.length ) ) throw new IllegalArgumentException( "Incorrect packet size" );
+
+        return parse_packet( type,
+                             ByteBuffer.wrap( packet,
+                                              0,
+                                              length ) );
+    }
+
+    /**
+     * Parses the packet like {@link Weather_data#parse_packet(Weather_data.Type, ByteBuffer)}, and also reports which
+     * fields it changed. Only the fields the packet type sets are compared, so this is cheap enough to do for every
+     * packet.
+     *
+     * @param type    The type of the packet data being parsed.
+     * @param packet  The given packet data to parse.
+     * @param changed The fields whose values changed are added to this mask. The other bits are left as they are,
+     *                so the changes of several packets can be gathered. Left unchanged if the packet does not parse
+     *                or is skipped.
+     *
+     * @return False if the packet was skipped as a duplicate.
+     *
+     * @throws IllegalArgumentException
+     * @throws ArithmeticException
+     */
+    public boolean parse_packet( Weather_data.Type type,
+                                 ByteBuffer packet,
+                                 Field_mask changed )
+            throws IllegalArgumentException, ArithmeticException
+    {
+        if( skip_duplicate_packet( type,
+                                   packet ) )
+        {
+            return false;
+        }
+
+        Weather_data.Field[] fields = Weather_data.get_packet_fields( type );
+        for( int i = 0; i < fields.length; i++ )
+        {
+            if( fields[i].is_string() )
+            {
+                m_previous_strings[i] = fields[i].get_string( m_data );
+            }
+            else
+            {
+                m_previous_numbers[i] = fields[i].get_number( m_data );
+            }
+        }
+
+        m_data.parse_packet( type,
+                             packet );
+        if( m_skip_duplicate_packets && ( type == Weather_data.Type.LOOP2 ) ) remember_LOOP2( packet );
+
+        for( int i = 0; i < fields.length; i++ )
+        {
+            if( fields[i].is_string() )
+            {
+                if( !Objects.equals( m_previous_strings[i],
+                                     fields[i].get_string( m_data ) ) )
+                {
+                    changed.set( fields[i] );
+                }
+
+                m_previous_strings[i] = null;
+            }
+            else if( Double.doubleToLongBits( m_previous_numbers[i] )
+                    != Double.doubleToLongBits( fields[i].get_number( m_data ) ) )
+            {
+                changed.set( fields[i] );
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * The station often sends LOOP2 packets that are the same as the one before. When skipping is on, such a packet
+     * is not checked or decoded again, since it would give the same values, and the parse methods return false
+     * without changing anything. Skipping is off by default.
+     * <p>
+     * The packet is first compared by its CRC, then byte for byte. Setting fields of the working data directly
+     * between packets can make a skipped packet leave them as set, call {@link #forget_last_packet()} after doing so.
+     *
+     * @param skip True to skip duplicate LOOP2 packets.
+     */
+    public void set_skip_duplicate_packets( boolean skip )
+    {
+        m_skip_duplicate_packets = skip;
+        m_last_LOOP2_CRC = -1;
+    }
+
+    public boolean get_skip_duplicate_packets()
+    {
+        return m_skip_duplicate_packets;
+    }
+
+    public long get_number_of_duplicate_packets_skipped()
+    {
+        return m_number_of_duplicate_packets_skipped;
+    }
+
+    /**
+     * Forgets the last LOOP2 packet, so the next one is parsed even if it is the same.
+     */
+    public void forget_last_packet()
+    {
+        m_last_LOOP2_CRC = -1;
+    }
+
+    private boolean skip_duplicate_packet( Weather_data.Type type,
+                                           ByteBuffer packet )
+    {
+        if( !m_skip_duplicate_packets || ( type != Weather_data.Type.LOOP2 ) || ( m_last_LOOP2_CRC == -1 )
+                || ( packet.remaining() != m_last_LOOP2.length ) )
+        {
+            return false;
+        }
+
+        int base = packet.position();
+        int CRC = Weather_data.bytes_to_short( packet,
+                                               base + m_last_LOOP2.length - 2 ) & 0xFFFF;
+        if( CRC != m_last_LOOP2_CRC ) return false;
+
+        int mismatch;
+        if( packet.hasArray() )
+        {
+            int offset = packet.arrayOffset() + base;
+            mismatch = Arrays.mismatch( m_last_LOOP2,
+                                        0,
+                                        m_last_LOOP2.length,
+                                        packet.array(),
+                                        offset,
+                                        offset + m_last_LOOP2.length );
+        }
+        else
+        {
+            mismatch = m_last_LOOP2_view.mismatch( packet );
+        }
+
+        if( mismatch != -1 ) return false;
+
+        m_number_of_duplicate_packets_skipped++;
+        return true;
+    }
+
+    private void remember_LOOP2( ByteBuffer packet )
+    {
+        int base = packet.position();
+        int length = packet.remaining();
+        if( ( m_last_LOOP2 == null ) || ( m_last_LOOP2.length != length ) )
+        {
+            m_last_LOOP2 = new byte[length];
+            m_last_LOOP2_view = ByteBuffer.wrap( m_last_LOOP2 );
+        }
+
+        if( packet.hasArray() )
+        {
+            System.arraycopy( packet.array(),
+                              packet.arrayOffset() + base,
+                              m_last_LOOP2,
+                              0,
+                              length );
+        }
+        else
+        {
+            for( int i = 0; i < length; i++ )
+            {
+                m_last_LOOP2[i] = packet.get( base + i );
+            }
+        }
+
+        m_last_LOOP2_CRC = Weather_data.bytes_to_short( packet,
+                                                        base + length - 2 ) & 0xFFFF;
+    }
+}
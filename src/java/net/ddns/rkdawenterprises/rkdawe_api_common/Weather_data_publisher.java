@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2024 RKDAW Enterprises and Ralph Williamson.
+ *       email: rkdawenterprises@gmail.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ddns.rkdawenterprises.rkdawe_api_common;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * Owns the {@link Weather_data_ingester} that packets are merged into, and publishes an immutable
+ * {@link Weather_data_snapshot} of it after each merge. Readers, such as request threads, get the latest snapshot
+ * with a single volatile read and never see a partly merged packet.
+ * <p>
+ * The versions start over with each publisher, so each has its own epoch, made from the time it was created and
+ * some random bits, which goes with the versions it publishes.
+ * <p>
+ * The updating methods are synchronized against each other, they are not on the readers' path.
+ */
+@SuppressWarnings("unused")
+public class Weather_data_publisher
+{
+    private final Weather_data_ingester m_ingester;
+    private final Field_mask m_changed = new Field_mask();
+    private final String m_epoch = make_epoch();
+    private long m_version = 0;
+    private volatile Weather_data_snapshot m_latest;
+
+    public Weather_data_publisher()
+    {
+        this( new Weather_data() );
+    }
+
+    /**
+     * @param initial The starting weather data, which is copied.
+     */
+    public Weather_data_publisher( Weather_data initial )
+    {
+        m_ingester = new Weather_data_ingester( initial );
+        m_latest = new Weather_data_snapshot( m_ingester.get_data(),
+                                              m_epoch,
+                                              m_version );
+    }
+
+    /**
+     * @return The epoch of the versions this publisher publishes.
+     */
+    public String get_epoch()
+    {
+        return m_epoch;
+    }
+
+    /**
+     * @return The latest snapshot, never null.
+     */
+    public Weather_data_snapshot get_latest()
+    {
+        return m_latest;
+    }
+
+    /**
+     * Merges the packet into the working weather data and publishes a new snapshot, with the fields the packet
+     * changed marked. If the packet does not parse, nothing is changed or published. If the packet is a skipped
+     * duplicate, see {@link #set_skip_duplicate_packets(boolean)}, nothing is published either.
+     *
+     * @param type   The type of the packet data being parsed.
+     * @param packet The packet data between the buffer's position and limit.
+     *
+     * @return The new snapshot, or the latest one if the packet was skipped.
+     *
+     * @throws IllegalArgumentException
+     * @throws ArithmeticException
+     */
+    public synchronized Weather_data_snapshot parse_packet( Weather_data.Type type,
+                                                            ByteBuffer packet )
+            throws IllegalArgumentException, ArithmeticException
+    {
+        m_changed.clear();
+        if( !m_ingester.parse_packet( type,
+                                      packet,
+                                      m_changed ) ) return m_latest;
+
+        return publish( m_changed );
+    }
+
+    /**
+     * @see #parse_packet(Weather_data.Type, ByteBuffer)
+     */
+    public synchronized Weather_data_snapshot parse_packet( Weather_data.Type type,
+                                                            byte[] packet,
+                                                            int length )
+            throws IllegalArgumentException, ArithmeticException
+    {
+        if( ( length < 0 ) || ( length > packet.length ) ) throw new IllegalArgumentException( "Incorrect packet size" );
+
+        return parse_packet( type,
+                             ByteBuffer.wrap( packet,
+                                              0,
+                                              length ) );
+    }
+
+    /**
+     * Applies other changes, such as statistics or forecast data, to the working weather data and publishes a new
+     * snapshot with every field marked as changed. The working data must not be kept by the updater.
+     *
+     * @param updater Makes the changes.
+     *
+     * @return The new snapshot.
+     */
+    public synchronized Weather_data_snapshot update( Consumer< Weather_data > updater )
+    {
+        return update( null,
+                       updater );
+    }
+
+    /**
+     * Like {@link #update(Consumer)}, but only the given fields are marked as changed.
+     *
+     * @param fields  The fields the updater may change, or null for all of them.
+     * @param updater Makes the changes.
+     *
+     * @return The new snapshot.
+     */
+    public synchronized Weather_data_snapshot update( Field_mask fields,
+                                                      Consumer< Weather_data > updater )
+    {
+        updater.accept( m_ingester.get_data() );
+        m_ingester.forget_last_packet();
+        return publish( fields );
+    }
+
+    /**
+     * @see Weather_data_ingester#set_skip_duplicate_packets(boolean)
+     */
+    public synchronized void set_skip_duplicate_packets( boolean skip )
+    {
+        m_ingester.set_skip_duplicate_packets( skip );
+    }
+
+    public synchronized long get_number_of_duplicate_packets_skipped()
+    {
+        return m_ingester.get_number_of_duplicate_packets_skipped();
+    }
+
+    private static String make_epoch()
+    {
+        int random = ThreadLocalRandom.current()
+                                      .nextInt( Integer.MAX_VALUE );
+        return Long.toString( System.currentTimeMillis(),
+                              36 ) + "-" + Integer.toString( random,
+                                                             36 );
+    }
+
+    private Weather_data_snapshot publish( Field_mask changed )
+    {
+        Weather_data_snapshot snapshot = new Weather_data_snapshot( m_ingester.get_data(),
+                                                                    m_epoch,
+                                                                    ++m_version,
+                                                                    changed );
+        m_latest = snapshot;
+        return snapshot;
+    }
+}
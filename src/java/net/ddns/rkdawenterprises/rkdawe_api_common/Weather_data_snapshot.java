@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2024 RKDAW Enterprises and Ralph Williamson.
+ *       email: rkdawenterprises@gmail.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ddns.rkdawenterprises.rkdawe_api_common;
+
+/**
+ * An immutable copy of {@link Weather_data}, as published by {@link Weather_data_publisher}. It can be shared
+ * freely between threads. The JSON and TSV forms are made the first time they are asked for and then reused by every
+ * reader of the snapshot.
+ */
+@SuppressWarnings("unused")
+public final class Weather_data_snapshot
+{
+    private final Weather_data m_data;
+    private final String m_epoch;
+    private final long m_version;
+    private final Field_mask m_changed = new Field_mask();
+
+    /*
+     * Made lazily. Two threads may make the same string, which is harmless.
+     */
+    private volatile String m_JSON = null;
+    private volatile String m_TSV = null;
+
+    /**
+     * A snapshot with every field marked as changed.
+     *
+     * @param data    The weather data, which is copied.
+     * @param epoch   The epoch of the version.
+     * @param version The version of the snapshot.
+     */
+    public Weather_data_snapshot( Weather_data data,
+                                  String epoch,
+                                  long version )
+    {
+        this( data,
+              epoch,
+              version,
+              null );
+    }
+
+    /**
+     * @param data    The weather data, which is copied.
+     * @param epoch   The epoch of the version.
+     * @param version The version of the snapshot.
+     * @param changed The fields that changed from the snapshot before this one, which is copied. If null, every
+     *                field is marked.
+     */
+    public Weather_data_snapshot( Weather_data data,
+                                  String epoch,
+                                  long version,
+                                  Field_mask changed )
+    {
+        m_data = new Weather_data();
+        m_data.copy_from( data );
+        m_epoch = epoch;
+        m_version = version;
+
+        if( changed != null )
+        {
+            m_changed.copy_from( changed );
+        }
+        else
+        {
+            for( Weather_data.Field field : Weather_data.Field.get_values() )
+            {
+                m_changed.set( field );
+            }
+        }
+    }
+
+    /**
+     * @return The epoch of the version, which is different for each publisher, so a version from another one, or
+     *         from before a restart, is not mistaken for one of its own.
+     */
+    public String get_epoch()
+    {
+        return m_epoch;
+    }
+
+    /**
+     * @return The version of the snapshot, which increases by one with each one published in the epoch.
+     */
+    public long get_version()
+    {
+        return m_version;
+    }
+
+    /**
+     * @return A copy of the fields that changed from the previous snapshot.
+     */
+    public Field_mask get_changed()
+    {
+        Field_mask changed = new Field_mask();
+        changed.copy_from( m_changed );
+        return changed;
+    }
+
+    public boolean is_changed( Weather_data.Field field )
+    {
+        return m_changed.get( field );
+    }
+
+    /*
+     * Not copied, must not be modified.
+     */
+    Field_mask get_changed_mask()
+    {
+        return m_changed;
+    }
+
+    public String get_time()
+    {
+        return m_data.time;
+    }
+
+    public String get_string( Weather_data.Field field )
+    {
+        return field.get_string( m_data );
+    }
+
+    public double get_number( Weather_data.Field field )
+    {
+        return field.get_number( m_data );
+    }
+
+    public boolean has_data( Weather_data.Field field )
+    {
+        return field.has_data( m_data );
+    }
+
+    /**
+     * @return A new, mutable, copy of the weather data.
+     */
+    public Weather_data to_weather_data()
+    {
+        Weather_data data = new Weather_data();
+        data.copy_from( m_data );
+        return data;
+    }
+
+    public String serialize_to_JSON()
+    {
+        String JSON = m_JSON;
+        if( JSON == null )
+        {
+            JSON = m_data.serialize_to_JSON();
+            m_JSON = JSON;
+        }
+
+        return JSON;
+    }
+
+    public String to_display_TSV_string()
+    {
+        String TSV = m_TSV;
+        if( TSV == null )
+        {
+            TSV = m_data.to_display_TSV_string();
+            m_TSV = TSV;
+        }
+
+        return TSV;
+    }
+}
@@ -0,0 +1,798 @@
+/*
+ * Copyright (c) 2024 RKDAW Enterprises and Ralph Williamson.
+ *       email: rkdawenterprises@gmail.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ddns.rkdawenterprises.rkdawe_api_common;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Read-only view of a single validated LOOP, LOOP2 or HILOWS packet. Nothing is decoded up front, each getter
+ * decodes its field from the packet bytes when called. Getters for fields not carried by the packet's type return
+ * the same "no data" values as {@link Weather_data}.
+ * <p>
+ * The view keeps a reference to the packet bytes, not a copy, so the caller must not reuse the bytes while the view
+ * is in use.
+ */
+@SuppressWarnings("unused")
+public class Weather_data_view
+{
+    private final Weather_data.Type m_type;
+    private final ByteBuffer m_packet;
+
+    /**
+     * @param type The type of the packet data.
+     * @param packet The packet data between the buffer's position and limit. The buffer's position, limit and byte
+     *               order are left unchanged.
+     *
+     * @throws IllegalArgumentException
+     * @throws ArithmeticException
+     */
+    public Weather_data_view( Weather_data.Type type,
+                              ByteBuffer packet )
+            throws IllegalArgumentException, ArithmeticException
+    {
+        Weather_data.check_packet( type,
+                                   packet );
+
+        m_type = type;
+        m_packet = packet.slice();
+    }
+
+    /**
+     * @param type The type of the packet data.
+     * @param packet The packet data.
+     * @param length The actual size of the packet data within the given byte array.
+     *
+     * @throws IllegalArgumentException
+     * @throws ArithmeticException
+     */
+    public Weather_data_view( Weather_data.Type type,
+                              byte[] packet,
+                              int length )
+            throws IllegalArgumentException, ArithmeticException
+    {
+        this( type,
+              ByteBuffer.wrap( packet,
+                               0,
+                               length ) );
+    }
+
+    public Weather_data.Type get_type()
+    {
+        return m_type;
+    }
+
+    /**
+     * Decodes all the fields of the packet into a new weather data object.
+     *
+     * @return The fully decoded weather data.
+     */
+    public Weather_data to_weather_data()
+    {
+        Weather_data weather_data = new Weather_data();
+        merge_into( weather_data );
+        return weather_data;
+    }
+
+    /**
+     * Decodes all the fields of the packet into the given weather data, the same as
+     * {@link Weather_data#parse_packet(Weather_data.Type, ByteBuffer)}.
+     *
+     * @param weather_data The weather data to update.
+     */
+    public void merge_into( Weather_data weather_data )
+    {
+        weather_data.parse_packet( m_type,
+                                   m_packet );
+    }
+
+    /*
+     * Loop2 packet data.
+     */
+    public String getBar_trend()
+    {
+        if( m_type != Weather_data.Type.LOOP2 ) return "N/A";
+
+        return Weather_data.bar_trend_to_string( m_packet.get( 3 ) );
+    }
+
+    public double getBarometer()
+    {
+        if( m_type != Weather_data.Type.LOOP2 ) return Double.MAX_VALUE;
+
+        return (double)short_at( 7 ) / 1000;
+    }
+
+    public double getInside_temperature()
+    {
+        if( m_type != Weather_data.Type.LOOP2 ) return Double.MAX_VALUE;
+
+        return (double)short_at( 9 ) / 10;
+    }
+
+    public int getInside_humidity()
+    {
+        if( m_type != Weather_data.Type.LOOP2 ) return Integer.MAX_VALUE;
+
+        return byte_at( 11 );
+    }
+
+    public double getOutside_temperature()
+    {
+        if( m_type != Weather_data.Type.LOOP2 ) return Double.MAX_VALUE;
+
+        return (double)short_at( 12 ) / 10;
+    }
+
+    public int getWind_speed()
+    {
+        if( m_type != Weather_data.Type.LOOP2 ) return Integer.MAX_VALUE;
+
+        return byte_at( 14 );
+    }
+
+    public int getWind_direction()
+    {
+        if( m_type != Weather_data.Type.LOOP2 ) return Integer.MAX_VALUE;
+
+        return short_at( 16 );
+    }
+
+    public double getTen_min_avg_wind_speed()
+    {
+        if( m_type != Weather_data.Type.LOOP2 ) return Double.MAX_VALUE;
+
+        return (double)short_at( 18 ) / 10;
+    }
+
+    public double getTwo_min_avg_wind_speed()
+    {
+        if( m_type != Weather_data.Type.LOOP2 ) return Double.MAX_VALUE;
+
+        return (double)short_at( 20 ) / 10;
+    }
+
+    public double getTen_min_wind_gust()
+    {
+        if( m_type != Weather_data.Type.LOOP2 ) return Double.MAX_VALUE;
+
+        return (double)short_at( 22 ) / 10;
+    }
+
+    public int getWind_direction_of_ten_min_wind_gust()
+    {
+        if( m_type != Weather_data.Type.LOOP2 ) return Integer.MAX_VALUE;
+
+        return short_at( 24 );
+    }
+
+    public int getDew_point()
+    {
+        if( m_type != Weather_data.Type.LOOP2 ) return Integer.MAX_VALUE;
+
+        return short_at( 30 );
+    }
+
+    public int getOutside_humidity()
+    {
+        if( m_type != Weather_data.Type.LOOP2 ) return Integer.MAX_VALUE;
+
+        return byte_at( 33 );
+    }
+
+    public int getHeat_index()
+    {
+        if( m_type != Weather_data.Type.LOOP2 ) return Integer.MAX_VALUE;
+
+        return short_at( 35 );
+    }
+
+    public int getWind_chill()
+    {
+        if( m_type != Weather_data.Type.LOOP2 ) return Integer.MAX_VALUE;
+
+        return short_at( 37 );
+    }
+
+    public double getRain_rate()
+    {
+        if( m_type != Weather_data.Type.LOOP2 ) return Double.MAX_VALUE;
+
+        return (double)short_at( 41 ) / 100;
+    }
+
+    public double getStorm_rain()
+    {
+        if( m_type != Weather_data.Type.LOOP2 ) return Double.MAX_VALUE;
+
+        return (double)short_at( 46 ) / 100;
+    }
+
+    public String getStart_date_of_current_storm()
+    {
+        if( m_type != Weather_data.Type.LOOP2 ) return "N/A";
+
+        return Weather_data.bytes_to_date( m_packet,
+                                           48 );
+    }
+
+    public double getDaily_rain()
+    {
+        if( m_type != Weather_data.Type.LOOP2 ) return Double.MAX_VALUE;
+
+        return (double)short_at( 50 ) / 100;
+    }
+
+    public double getLast_fifteen_min_rain()
+    {
+        if( m_type != Weather_data.Type.LOOP2 ) return Double.MAX_VALUE;
+
+        return (double)short_at( 52 ) / 100;
+    }
+
+    public double getLast_hour_rain()
+    {
+        if( m_type != Weather_data.Type.LOOP2 ) return Double.MAX_VALUE;
+
+        return (double)short_at( 54 ) / 100;
+    }
+
+    public double getDaily_et()
+    {
+        if( m_type != Weather_data.Type.LOOP2 ) return Double.MAX_VALUE;
+
+        return (double)short_at( 56 ) / 1000;
+    }
+
+    public double getLast_twenty_four_hour_rain()
+    {
+        if( m_type != Weather_data.Type.LOOP2 ) return Double.MAX_VALUE;
+
+        return (double)short_at( 58 ) / 100;
+    }
+
+    public double getHeat_index_derived()
+    {
+        if( m_type != Weather_data.Type.LOOP2 ) return Double.MAX_VALUE;
+
+        return Weather_data.calculate_heat_index( getOutside_temperature(),
+                                                  getOutside_humidity() );
+    }
+
+    public double getWind_chill_derived()
+    {
+        if( m_type != Weather_data.Type.LOOP2 ) return Double.MAX_VALUE;
+
+        return Weather_data.calculate_wind_chill( getOutside_temperature(),
+                                                  getWind_speed() );
+    }
+
+    /*
+     * Loop packet data.
+     */
+    public double getMonth_rain()
+    {
+        if( m_type != Weather_data.Type.LOOP ) return Double.MAX_VALUE;
+
+        return (double)short_at( 52 ) / 100;
+    }
+
+    public double getYear_rain()
+    {
+        if( m_type != Weather_data.Type.LOOP ) return Double.MAX_VALUE;
+
+        return (double)short_at( 54 ) / 100;
+    }
+
+    public String getTransmitter_battery_status()
+    {
+        if( m_type != Weather_data.Type.LOOP ) return "N/A";
+
+        return( ( byte_at( 86 ) & 0x01 ) == 0 ) ? "OK" : "LOW";
+    }
+
+    public double getConsole_battery_voltage()
+    {
+        if( m_type != Weather_data.Type.LOOP ) return Double.MAX_VALUE;
+
+        return ( ( (double)( short_at( 87 ) ) * 300 ) / 512 ) / 100;
+    }
+
+    /*
+     * HILOWS packet data.
+     */
+    public double getDaily_low_barometer()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Double.MAX_VALUE;
+
+        return (double)short_at( 0 ) / 1000;
+    }
+
+    public double getDaily_high_barometer()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Double.MAX_VALUE;
+
+        return (double)short_at( 2 ) / 1000;
+    }
+
+    public double getMonth_low_bar()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Double.MAX_VALUE;
+
+        return (double)short_at( 4 ) / 1000;
+    }
+
+    public double getMonth_high_bar()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Double.MAX_VALUE;
+
+        return (double)short_at( 6 ) / 1000;
+    }
+
+    public double getYear_low_barometer()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Double.MAX_VALUE;
+
+        return (double)short_at( 8 ) / 1000;
+    }
+
+    public double getYear_high_barometer()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Double.MAX_VALUE;
+
+        return (double)short_at( 10 ) / 1000;
+    }
+
+    public String getTime_of_day_low_bar()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return "N/A";
+
+        return Weather_data.bytes_to_time( m_packet,
+                                           12 );
+    }
+
+    public String getTime_of_day_high_bar()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return "N/A";
+
+        return Weather_data.bytes_to_time( m_packet,
+                                           14 );
+    }
+
+    public int getDaily_hi_wind_speed()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Integer.MAX_VALUE;
+
+        return byte_at( 16 );
+    }
+
+    public String getTime_of_hi_speed()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return "N/A";
+
+        return Weather_data.bytes_to_time( m_packet,
+                                           17 );
+    }
+
+    public int getMonth_hi_wind_speed()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Integer.MAX_VALUE;
+
+        return byte_at( 19 );
+    }
+
+    public int getYear_hi_wind_speed()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Integer.MAX_VALUE;
+
+        return byte_at( 20 );
+    }
+
+    public double getDay_hi_inside_temp()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Double.MAX_VALUE;
+
+        return (double)short_at( 21 ) / 10;
+    }
+
+    public double getDay_low_inside_temp()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Double.MAX_VALUE;
+
+        return (double)short_at( 23 ) / 10;
+    }
+
+    public String getTime_day_hi_in_temp()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return "N/A";
+
+        return Weather_data.bytes_to_time( m_packet,
+                                           25 );
+    }
+
+    public String getTime_day_low_in_temp()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return "N/A";
+
+        return Weather_data.bytes_to_time( m_packet,
+                                           27 );
+    }
+
+    public double getMonth_low_in_temp()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Double.MAX_VALUE;
+
+        return (double)short_at( 29 ) / 10;
+    }
+
+    public double getMonth_hi_in_temp()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Double.MAX_VALUE;
+
+        return (double)short_at( 31 ) / 10;
+    }
+
+    public double getYear_low_in_temp()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Double.MAX_VALUE;
+
+        return (double)short_at( 33 ) / 10;
+    }
+
+    public double getYear_hi_in_temp()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Double.MAX_VALUE;
+
+        return (double)short_at( 35 ) / 10;
+    }
+
+    public int getDay_hi_in_hum()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Integer.MAX_VALUE;
+
+        return byte_at( 37 );
+    }
+
+    public int getDay_low_in_hum()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Integer.MAX_VALUE;
+
+        return byte_at( 38 );
+    }
+
+    public String getTime_day_hi_in_hum()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return "N/A";
+
+        return Weather_data.bytes_to_time( m_packet,
+                                           39 );
+    }
+
+    public String getTime_day_low_in_hum()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return "N/A";
+
+        return Weather_data.bytes_to_time( m_packet,
+                                           41 );
+    }
+
+    public int getMonth_hi_in_hum()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Integer.MAX_VALUE;
+
+        return byte_at( 43 );
+    }
+
+    public int getMonth_low_in_hum()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Integer.MAX_VALUE;
+
+        return byte_at( 44 );
+    }
+
+    public int getYear_hi_in_hum()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Integer.MAX_VALUE;
+
+        return byte_at( 45 );
+    }
+
+    public int getYear_low_in_hum()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Integer.MAX_VALUE;
+
+        return byte_at( 46 );
+    }
+
+    public double getDay_low_out_temp()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Double.MAX_VALUE;
+
+        return (double)short_at( 47 ) / 10;
+    }
+
+    public double getDay_hi_out_temp()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Double.MAX_VALUE;
+
+        return (double)short_at( 49 ) / 10;
+    }
+
+    public String getTime_day_low_out_temp()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return "N/A";
+
+        return Weather_data.bytes_to_time( m_packet,
+                                           51 );
+    }
+
+    public String getTime_day_hi_out_temp()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return "N/A";
+
+        return Weather_data.bytes_to_time( m_packet,
+                                           53 );
+    }
+
+    public double getMonth_hi_out_temp()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Double.MAX_VALUE;
+
+        return (double)short_at( 55 ) / 10;
+    }
+
+    public double getMonth_low_out_temp()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Double.MAX_VALUE;
+
+        return (double)short_at( 57 ) / 10;
+    }
+
+    public double getYear_hi_out_temp()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Double.MAX_VALUE;
+
+        return (double)short_at( 59 ) / 10;
+    }
+
+    public double getYear_low_out_temp()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Double.MAX_VALUE;
+
+        return (double)short_at( 61 ) / 10;
+    }
+
+    public int getDay_low_dew_point()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Integer.MAX_VALUE;
+
+        return short_at( 63 );
+    }
+
+    public int getDay_hi_dew_point()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Integer.MAX_VALUE;
+
+        return short_at( 65 );
+    }
+
+    public String getTime_day_low_dew_point()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return "N/A";
+
+        return Weather_data.bytes_to_time( m_packet,
+                                           67 );
+    }
+
+    public String getTime_day_hi_dew_point()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return "N/A";
+
+        return Weather_data.bytes_to_time( m_packet,
+                                           69 );
+    }
+
+    public int getMonth_hi_dew_point()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Integer.MAX_VALUE;
+
+        return short_at( 71 );
+    }
+
+    public int getMonth_low_dew_point()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Integer.MAX_VALUE;
+
+        return short_at( 73 );
+    }
+
+    public int getYear_hi_dew_point()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Integer.MAX_VALUE;
+
+        return short_at( 75 );
+    }
+
+    public int getYear_low_dew_point()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Integer.MAX_VALUE;
+
+        return short_at( 77 );
+    }
+
+    public int getDay_low_wind_chill()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Integer.MAX_VALUE;
+
+        return short_at( 79 );
+    }
+
+    public String getTime_day_low_chill()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return "N/A";
+
+        return Weather_data.bytes_to_time( m_packet,
+                                           81 );
+    }
+
+    public int getMonth_low_wind_chill()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Integer.MAX_VALUE;
+
+        return short_at( 83 );
+    }
+
+    public int getYear_low_wind_chill()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Integer.MAX_VALUE;
+
+        return short_at( 85 );
+    }
+
+    public int getDay_high_heat()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Integer.MAX_VALUE;
+
+        return short_at( 87 );
+    }
+
+    public String getTime_of_day_high_heat()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return "N/A";
+
+        return Weather_data.bytes_to_time( m_packet,
+                                           89 );
+    }
+
+    public int getMonth_high_heat()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Integer.MAX_VALUE;
+
+        return short_at( 91 );
+    }
+
+    public int getYear_high_heat()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Integer.MAX_VALUE;
+
+        return short_at( 93 );
+    }
+
+    public double getDay_high_rain_rate()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Double.MAX_VALUE;
+
+        return (double)short_at( 116 ) / 100;
+    }
+
+    public String getTime_of_day_high_rain_rate()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return "N/A";
+
+        return Weather_data.bytes_to_time( m_packet,
+                                           118 );
+    }
+
+    public double getHour_high_rain_rate()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Double.MAX_VALUE;
+
+        return (double)short_at( 120 ) / 100;
+    }
+
+    public double getMonth_high_rain_rate()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Double.MAX_VALUE;
+
+        return (double)short_at( 122 ) / 100;
+    }
+
+    public double getYear_high_rain_rate()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Double.MAX_VALUE;
+
+        return (double)short_at( 124 ) / 100;
+    }
+
+    public int getDay_low_humidity()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Integer.MAX_VALUE;
+
+        return byte_at( 276 );
+    }
+
+    public int getDay_hi_humidity()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Integer.MAX_VALUE;
+
+        return byte_at( 284 );
+    }
+
+    public String getTime_day_low_humidity()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return "N/A";
+
+        return Weather_data.bytes_to_time( m_packet,
+                                           292 );
+    }
+
+    public String getTime_day_hi_humidity()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return "N/A";
+
+        return Weather_data.bytes_to_time( m_packet,
+                                           308 );
+    }
+
+    public int getMonth_hi_humidity()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Integer.MAX_VALUE;
+
+        return byte_at( 324 );
+    }
+
+    public int getMonth_low_humidity()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Integer.MAX_VALUE;
+
+        return byte_at( 332 );
+    }
+
+    public int getYear_hi_humidity()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Integer.MAX_VALUE;
+
+        return byte_at( 340 );
+    }
+
+    public int getYear_low_humidity()
+    {
+        if( m_type != Weather_data.Type.HILOWS ) return Integer.MAX_VALUE;
+
+        return byte_at( 348 );
+    }
+
+    private short short_at( int index )
+    {
+        return Weather_data.bytes_to_short( m_packet,
+                                            index );
+    }
+
+    private int byte_at( int index )
+    {
+        return m_packet.get( index ) & 0xFF;
+    }
+}
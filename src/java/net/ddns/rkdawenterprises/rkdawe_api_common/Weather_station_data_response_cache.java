@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2024 RKDAW Enterprises and Ralph Williamson.
+ *       email: rkdawenterprises@gmail.com
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ddns.rkdawenterprises.rkdawe_api_common;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Holds the serialized response for {@link API_paths#WEATHER_STATION_DATA_PATH}, built once per data version and
+ * shared by all requests. Each version has the JSON bytes, the gzipped bytes, the {@link Weather_data_binary_codec}
+ * form and an ETag for each. A request whose If-None-Match matches the current ETag can be answered with 304 Not
+ * Modified without serializing anything.
+ * <p>
+ * Readers get the current entry with a single volatile read. Updates are synchronized against each other.
+ */
+@SuppressWarnings("unused")
+public class Weather_station_data_response_cache
+{
+    public static final class Entry
+    {
+        private final long m_version;
+        private final byte[] m_JSON;
+        private final byte[] m_gzip;
+        private final byte[] m_binary;
+        private final String m_ETag;
+        private final String m_gzip_ETag;
+        private final String m_binary_ETag;
+
+        Entry( long version,
+               byte[] JSON,
+               byte[] gzip,
+               byte[] binary,
+               String ETag )
+        {
+            m_version = version;
+            m_JSON = JSON;
+            m_gzip = gzip;
+            m_binary = binary;
+            m_ETag = "\"" + ETag + "\"";
+            m_gzip_ETag = "\"" + ETag + "-gz\"";
+            m_binary_ETag = "\"" + ETag + "-bin\"";
+        }
+
+        public long get_version()
+        {
+            return m_version;
+        }
+
+        /**
+         * @return The UTF-8 JSON, shared, so must not be modified.
+         */
+        public byte[] get_JSON()
+        {
+            return m_JSON;
+        }
+
+        /**
+         * @return The gzipped JSON, shared, so must not be modified.
+         */
+        public byte[] get_gzip()
+        {
+            return m_gzip;
+        }
+
+        /**
+         * @return The {@link Weather_data_binary_codec} form, shared, so must not be modified.
+         */
+        public byte[] get_binary()
+        {
+            return m_binary;
+        }
+
+        /**
+         * @return The quoted ETag of the JSON.
+         */
+        public String get_ETag()
+        {
+            return m_ETag;
+        }
+
+        /**
+         * @return The quoted ETag of the gzipped JSON.
+         */
+        public String get_gzip_ETag()
+        {
+            return m_gzip_ETag;
+        }
+
+        /**
+         * @return The quoted ETag of the binary form.
+         */
+        public String get_binary_ETag()
+        {
+            return m_binary_ETag;
+        }
+
+        /**
+         * @param accept The value of the request's Accept header, may be null.
+         *
+         * @return True if the client asked for the {@link Weather_data_binary_codec#MEDIA_TYPE} form.
+         */
+        public static boolean is_binary_requested( String accept )
+        {
+            return( accept != null ) && accept.contains( Weather_data_binary_codec.MEDIA_TYPE );
+        }
+
+        /**
+         * @param if_none_match The value of the request's If-None-Match header, may be null.
+         * @param gzip          True if the response would be gzipped.
+         *
+         * @return True if the client's copy of the JSON is current and 304 Not Modified can be sent.
+         */
+        public boolean is_not_modified( String if_none_match,
+                                        boolean gzip )
+        {
+            return is_not_modified( if_none_match,
+                                    gzip ? m_gzip_ETag : m_ETag );
+        }
+
+        /**
+         * Uses the weak comparison of RFC 9110, as If-None-Match requires.
+         *
+         * @param if_none_match The value of the request's If-None-Match header, may be null.
+         * @param ETag          The ETag of the form that would be sent.
+         *
+         * @return True if the client's copy is current and 304 Not Modified can be sent.
+         */
+        public static boolean is_not_modified( String if_none_match,
+                                               String ETag )
+        {
+            if( if_none_match == null ) return false;
+
+            int length = if_none_match.length();
+            int i = 0;
+            while( i < length )
+            {
+                char c = if_none_match.charAt( i );
+                if( ( c == ' ' ) || ( c == '\t' ) || ( c == ',' ) )
+                {
+                    i++;
+                    continue;
+                }
+
+                if( c == '*' ) return true;
+
+                if( if_none_match.startsWith( "W/",
+                                              i ) )
+                {
+                    i += 2;
+                }
+
+                int end = if_none_match.indexOf( ',',
+                                                 i );
+                if( end < 0 ) end = length;
+
+                String tag = if_none_match.substring( i,
+                                                      end )
+                                          .trim();
+                if( tag.equals( ETag ) ) return true;
+
+                i = end;
+            }
+
+            return false;
+        }
+    }
+
+    /*
+     * Keeps the ETags from repeating after a restart, when the versions start over.
+     */
+    private final String m_ETag_prefix = Long.toString( System.currentTimeMillis(),
+                                                        36 ) + "-";
+
+    private final Weather_data_JSON_writer m_writer = new Weather_data_JSON_writer();
+    private final Weather_data_binary_codec m_binary_codec = new Weather_data_binary_codec();
+    private volatile Entry m_entry = null;
+
+    public Weather_station_data_response_cache()
+    {
+    }
+
+    /**
+     * @return The current entry, or null if there has been no update.
+     */
+    public Entry get_entry()
+    {
+        return m_entry;
+    }
+
+    /**
+     * Builds the entry for a new version of the data. An update with a version not newer than the current one is
+     * ignored, so updates arriving out of order cannot replace newer data.
+     *
+     * @param version  The version of the data, which must increase with each change.
+     * @param response The response to serialize.
+     *
+     * @return The current entry.
+     */
+    public synchronized Entry update( long version,
+                                      Get_weather_station_data_GET_response response )
+    {
+        Entry entry = m_entry;
+        if( ( entry != null ) && ( version <= entry.m_version ) ) return entry;
+
+        byte[] JSON = m_writer.to_bytes( response );
+        entry = new Entry( version,
+                           JSON,
+                           gzip( JSON ),
+                           m_binary_codec.encode( response ),
+                           m_ETag_prefix + Long.toString( version,
+                                                          36 ) );
+        m_entry = entry;
+        return entry;
+    }
+
+    /**
+     * @param snapshot The published weather data, its version is used, and sent with its epoch.
+     * @param success  The response's success value.
+     *
+     * @return The current entry.
+     */
+    public Entry update( Weather_data_snapshot snapshot,
+                         String success )
+    {
+        Get_weather_station_data_GET_response response = new Get_weather_station_data_GET_response();
+        response.weather_data = snapshot.to_weather_data();
+        response.success = success;
+        response.epoch = snapshot.get_epoch();
+        response.version = snapshot.get_version();
+        return update( snapshot.get_version(),
+                       response );
+    }
+
+    private static byte[] gzip( byte[] data )
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream( data.length / 4 );
+        try( GZIPOutputStream gzip = new GZIPOutputStream( bytes ) )
+        {
+            gzip.write( data );
+        }
+        catch( IOException exception )
+        {
+            throw new UncheckedIOException( exception );
+        }
+
+        return bytes.toByteArray();
+    }
+}